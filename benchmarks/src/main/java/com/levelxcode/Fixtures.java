@@ -0,0 +1,49 @@
+package com.levelxcode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Canned OpenWeatherMap responses used by the benchmarks
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * Single city response from the weather endpoint
+     */
+    static byte[] weather() {
+        return load("weather.json");
+    }
+
+    /**
+     * Five city response from the group endpoint
+     */
+    static byte[] group() {
+        return load("group.json");
+    }
+
+    /**
+     * City names "city-0" to "city-(count-1)"
+     */
+    static String[] cityNames(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "city-" + i;
+        }
+        return names;
+    }
+
+    private static byte[] load(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing fixture " + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
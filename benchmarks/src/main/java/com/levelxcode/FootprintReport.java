@@ -0,0 +1,81 @@
+package com.levelxcode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Heap used per cached city with standard and compact storage.
+ * <p>
+ * Fills a cache with distinct cities parsed from the fixture response, drawing the
+ * weather condition from a realistic vocabulary, and measures the retained heap after
+ * a full GC. The standard layout is measured twice: as fetched, and after each entry
+ * was served once so its JSON is memoized, which is the steady state of a hot cache.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar com.levelxcode.FootprintReport [entries]}.
+ */
+public final class FootprintReport {
+    private static final String[][] CONDITIONS = {
+            {"Clear", "clear sky"}, {"Clouds", "few clouds"}, {"Clouds", "scattered clouds"},
+            {"Clouds", "broken clouds"}, {"Clouds", "overcast clouds"}, {"Rain", "light rain"},
+            {"Rain", "moderate rain"}, {"Drizzle", "light intensity drizzle"}, {"Snow", "light snow"},
+            {"Mist", "mist"}, {"Fog", "fog"}, {"Thunderstorm", "thunderstorm with rain"}
+    };
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long standard = measure(entries, false, false);
+        long served = measure(entries, false, true);
+        long compact = measure(entries, true, true);
+
+        System.out.printf("%,d cached cities%n", entries);
+        System.out.printf("%-28s %,8d bytes/entry%n", "standard, as fetched", standard / entries);
+        System.out.printf("%-28s %,8d bytes/entry%n", "standard, served once", served / entries);
+        System.out.printf("%-28s %,8d bytes/entry%n", "compact", compact / entries);
+        System.out.printf("compact saves %.0f%% against a served standard cache%n",
+                100.0 * (served - compact) / served);
+    }
+
+    /**
+     * Get the heap retained by a filled cache
+     * @param entries Number of cities to cache
+     * @param compact True for compact storage
+     * @param serve True to serialize every entry through the cache, as a lookup would
+     * @return Retained bytes
+     */
+    private static long measure(int entries, boolean compact, boolean serve) throws Exception {
+        byte[] body = Fixtures.weather();
+        long before = usedHeap();
+        WeatherCache cache = new WeatherCache(entries, 0, new WeatherSDKMetrics(WeatherSDKListener.NONE), compact);
+        for (int i = 0; i < entries; i++) {
+            // Each response is parsed separately, as it would be when fetched
+            WeatherData data = WeatherJsonParser.parseWeather(body);
+            String[] condition = CONDITIONS[i % CONDITIONS.length];
+            data.setMainWeather(new String(condition[0]));
+            data.setDescription(new String(condition[1]));
+            data.setCityName("City " + i);
+            data.setCityId(i);
+            data.setTimestamp(Long.MAX_VALUE / 2);
+            cache.put("city " + i, data);
+            if (serve) {
+                cache.get("city " + i).toJson();
+            }
+        }
+        long after = usedHeap();
+        if (cache.getCachedCities().size() != entries) {
+            throw new IllegalStateException("Cache lost entries");
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,99 @@
+package com.levelxcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link WeatherSDK#getWeather} from several threads.
+ * <p>
+ * Upstream calls are answered in-process by parsing a canned response, so miss
+ * numbers cover the SDK's own work (coalescing, parsing, caching, serialization)
+ * without network time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class GetWeatherBenchmark {
+    private static final int HOT_CITIES = 100;
+    private static final int COLD_CITIES = 100_000;
+
+    private WeatherSDK hitSdk;
+    private WeatherSDK missSdk;
+    private String[] hotCities;
+    private String[] coldCities;
+
+    /**
+     * API client answering every request with the canned response
+     */
+    static class CannedApiClient extends ApiClient {
+        private final byte[] body = Fixtures.weather();
+
+        CannedApiClient() {
+            super("benchmark");
+        }
+
+        @Override
+        public WeatherData fetchWeatherData(String cityName) throws WeatherSDKException {
+            WeatherData data = parseWeatherData(body);
+            data.setCityName(cityName);
+            data.setCityId(0);
+            return data;
+        }
+
+        @Override
+        public CompletableFuture<WeatherData> fetchWeatherDataAsync(String cityName) {
+            try {
+                return CompletableFuture.completedFuture(fetchWeatherData(cityName));
+            } catch (WeatherSDKException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() throws WeatherSDKException {
+        hotCities = Fixtures.cityNames(HOT_CITIES);
+        coldCities = Fixtures.cityNames(COLD_CITIES);
+        hitSdk = new WeatherSDK("benchmark", WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withCacheSize(HOT_CITIES), new CannedApiClient());
+        for (String city : hotCities) {
+            hitSdk.getWeather(city);
+        }
+        missSdk = new WeatherSDK("benchmark", WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withCacheSize(16), new CannedApiClient());
+    }
+
+    @TearDown
+    public void tearDown() {
+        hitSdk.shutdown();
+        missSdk.shutdown();
+    }
+
+    @Benchmark
+    public String hit() throws WeatherSDKException {
+        return hitSdk.getWeather(hotCities[ThreadLocalRandom.current().nextInt(HOT_CITIES)]);
+    }
+
+    @Benchmark
+    public String miss() throws WeatherSDKException {
+        return missSdk.getWeather(coldCities[ThreadLocalRandom.current().nextInt(COLD_CITIES)]);
+    }
+}
@@ -0,0 +1,307 @@
+package com.levelxcode;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load and soak test of WeatherSDK against a local {@link StubWeatherServer}.
+ * <p>
+ * Worker threads look up cities drawn from a Zipf distribution, so a few cities are hot
+ * and a long tail is rarely asked for, in ON_DEMAND mode, POLLING mode or both one after
+ * the other. Every interval and at the end of each run it reports throughput, lookup
+ * latency percentiles, failures by status, upstream calls made and heap in use. Failures
+ * without an HTTP status, such as malformed bodies and network errors, are listed as -1.
+ * <p>
+ * Run with {@code java -cp target/benchmarks.jar com.levelxcode.LoadHarness [--option=value ...]}:
+ * <pre>
+ * --mode=BOTH             ON_DEMAND, POLLING or BOTH
+ * --threads=16            worker threads
+ * --duration=60s          measured time per mode; use hours for a soak test
+ * --warmup=5s             unmeasured time before each run
+ * --interval=10s          time between progress reports
+ * --cities=1000           distinct cities
+ * --zipf=1.0              Zipf exponent of the city mix, 0 for uniform
+ * --cache=500             cache size of the SDK
+ * --ttl=60s               TTL of cached data; refresh-ahead is a quarter of it
+ * --latency=lognormal:20ms:0.5   stub latency: fixed:D, uniform:MIN:MAX or lognormal:MEDIAN:SIGMA
+ * --rate429=0             share of stub responses that are 429 with Retry-After
+ * --rate5xx=0             share of stub responses that are 500, 502 or 503
+ * --malformed=0           share of stub responses with truncated JSON
+ * </pre>
+ */
+public final class LoadHarness {
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final Map<String, String> options;
+    private final String[] cities;
+    private final double[] zipfCdf;
+
+    private LoadHarness(Map<String, String> options) {
+        this.options = options;
+        this.cities = Fixtures.cityNames(intOption("cities", 1000));
+        this.zipfCdf = zipfCdf(cities.length, Double.parseDouble(option("zipf", "1.0")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --option=value, got " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        LoadHarness harness = new LoadHarness(options);
+        String mode = harness.option("mode", "BOTH");
+        if (mode.equals("BOTH")) {
+            harness.run(WeatherSDK.Mode.ON_DEMAND);
+            harness.run(WeatherSDK.Mode.POLLING);
+        } else {
+            harness.run(WeatherSDK.Mode.valueOf(mode));
+        }
+    }
+
+    /**
+     * Run one mode against a fresh stub server and SDK
+     * @param mode SDK operation mode
+     */
+    private void run(WeatherSDK.Mode mode) throws Exception {
+        StubWeatherServer.Faults faults = new StubWeatherServer.Faults(
+                StubWeatherServer.LatencyModel.parse(option("latency", "lognormal:20ms:0.5")),
+                Double.parseDouble(option("rate429", "0")),
+                Double.parseDouble(option("rate5xx", "0")),
+                Double.parseDouble(option("malformed", "0")));
+        Duration ttl = parseDuration(option("ttl", "60s"));
+        Duration duration = parseDuration(option("duration", "60s"));
+        Duration warmup = parseDuration(option("warmup", "5s"));
+        long intervalNanos = parseDuration(option("interval", "10s")).toNanos();
+        int threads = intOption("threads", 16);
+
+        try (StubWeatherServer stub = new StubWeatherServer(faults)) {
+            WeatherSDK sdk = new WeatherSDK("stub-key", mode, new WeatherSDKConfig()
+                    .withCacheSize(intOption("cache", 500))
+                    .withTtl(ttl)
+                    .withRefreshAhead(ttl.dividedBy(4))
+                    .withApiClient(new ApiClientConfig().withBaseUrl(stub.baseUrl())));
+            long peakHeap = 0;
+            try {
+                System.out.printf("%s: %d threads, %d cities (zipf %s), cache %d, ttl %s, stub latency %s%n",
+                        mode, threads, cities.length, option("zipf", "1.0"), intOption("cache", 500), ttl,
+                        option("latency", "lognormal:20ms:0.5"));
+
+                Recorder recorder = new Recorder();
+                long warmupEnd = System.nanoTime() + warmup.toNanos();
+                long end = warmupEnd + duration.toNanos();
+                List<Thread> workers = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    Thread worker = new Thread(() -> work(sdk, recorder, warmupEnd, end), "load-" + i);
+                    worker.start();
+                    workers.add(worker);
+                }
+
+                // Upstream calls made during the warmup are left out of the reported counts
+                long warmupCalls = -1;
+                long lastCalls = 0;
+                long nextReport = warmupEnd + intervalNanos;
+                while (System.nanoTime() < end) {
+                    long wakeUp = warmupCalls < 0 ? warmupEnd : Math.min(nextReport, end);
+                    Thread.sleep(Math.max(1, wakeUp - System.nanoTime()) / 1_000_000 + 1);
+                    peakHeap = Math.max(peakHeap, usedHeap());
+                    if (warmupCalls < 0 && System.nanoTime() >= warmupEnd) {
+                        warmupCalls = stub.getCalls();
+                        lastCalls = warmupCalls;
+                    }
+                    if (System.nanoTime() >= nextReport && System.nanoTime() < end) {
+                        Snapshot interval = recorder.swapInterval();
+                        long calls = stub.getCalls();
+                        System.out.printf("  +%-6s %s, upstream %,d, heap %,d MB%n",
+                                Duration.ofNanos(System.nanoTime() - warmupEnd).toSeconds() + "s",
+                                interval.format(intervalNanos), calls - lastCalls, usedHeap() >> 20);
+                        lastCalls = calls;
+                        nextReport += intervalNanos;
+                    }
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+
+                long calls = stub.getCalls() - Math.max(0, warmupCalls);
+                Snapshot total = recorder.total();
+                WeatherSDKMetrics metrics = sdk.getMetrics();
+                System.out.printf("  total   %s%n", total.format(duration.toNanos()));
+                System.out.printf("  upstream calls %,d (%.1f per 1000 lookups), injected failures %s%n",
+                        calls, 1000.0 * calls / Math.max(1, total.count() + total.errorCount()),
+                        new TreeMap<>(stub.getInjectedFailures()));
+                System.out.printf("  cache hits %,d, misses %,d, coalesced %,d, evictions %,d%n",
+                        metrics.getCacheHits(), metrics.getCacheMisses(), sdk.getCoalescedRequestCount(),
+                        metrics.getEvictions());
+            } finally {
+                sdk.shutdown();
+            }
+            System.out.printf("  heap peak %,d MB, after run %,d MB%n%n", peakHeap >> 20, usedHeapAfterGc() >> 20);
+        }
+    }
+
+    /**
+     * Look up cities until the end of the run, recording only lookups after the warmup
+     */
+    private void work(WeatherSDK sdk, Recorder recorder, long warmupEnd, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            String city = cities[sample(random)];
+            int status = 0;
+            try {
+                sdk.getWeather(city);
+            } catch (WeatherSDKException e) {
+                status = e.getStatusCode();
+            }
+            long latency = System.nanoTime() - now;
+            if (now >= warmupEnd) {
+                recorder.record(latency, status);
+            }
+        }
+    }
+
+    /**
+     * Draw a city index from the Zipf distribution
+     */
+    private int sample(ThreadLocalRandom random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = zipfCdf.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (zipfCdf[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get cumulative probabilities of ranks 1 to n, where rank k has weight 1 / k^exponent
+     */
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    /**
+     * Lookup latencies and failures, in total and since the last progress report
+     */
+    private static final class Recorder {
+        private final Counts total = new Counts();
+        private final AtomicReference<Counts> interval = new AtomicReference<>(new Counts());
+
+        void record(long latencyNanos, int status) {
+            total.record(latencyNanos, status);
+            interval.get().record(latencyNanos, status);
+        }
+
+        Snapshot swapInterval() {
+            return interval.getAndSet(new Counts()).snapshot();
+        }
+
+        Snapshot total() {
+            return total.snapshot();
+        }
+    }
+
+    private static final class Counts {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final ConcurrentHashMap<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, int status) {
+            if (status == 0) {
+                latency.record(latencyNanos);
+            } else {
+                errors.computeIfAbsent(status, key -> new LongAdder()).increment();
+            }
+        }
+
+        Snapshot snapshot() {
+            long[] percentiles = new long[PERCENTILES.length];
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                percentiles[i] = latency.getPercentileNanos(PERCENTILES[i]);
+            }
+            Map<Integer, Long> errorCounts = new TreeMap<>();
+            errors.forEach((status, count) -> errorCounts.put(status, count.sum()));
+            return new Snapshot(latency.getCount(), percentiles, errorCounts);
+        }
+    }
+
+    /**
+     * Successful lookups with latency percentiles, and failed lookups by status
+     */
+    private record Snapshot(long count, long[] percentiles, Map<Integer, Long> errors) {
+        long errorCount() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        String format(long elapsedNanos) {
+            return String.format("%,10.0f ops/s, p50 %s, p99 %s, p999 %s, errors %s",
+                    count * 1e9 / elapsedNanos, micros(percentiles[0]), micros(percentiles[1]),
+                    micros(percentiles[2]), errors.isEmpty() ? "none" : errors);
+        }
+
+        private static String micros(long nanos) {
+            return nanos < 1_000_000 ? nanos / 1000 + " us" : String.format("%.1f ms", nanos / 1e6);
+        }
+    }
+
+    /**
+     * Parse a duration such as "250ms", "30s", "5m" or "2h"
+     */
+    static Duration parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Unknown duration unit: " + value);
+        };
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        Thread.sleep(100);
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
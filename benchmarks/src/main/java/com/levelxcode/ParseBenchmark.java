@@ -0,0 +1,47 @@
+package com.levelxcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of canned API responses by ApiClient
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    private ApiClient apiClient;
+    private byte[] weather;
+    private byte[] group;
+
+    @Setup
+    public void setUp() {
+        apiClient = new ApiClient("benchmark");
+        weather = Fixtures.weather();
+        group = Fixtures.group();
+    }
+
+    @Benchmark
+    public WeatherData parseWeather() throws WeatherSDKException {
+        return apiClient.parseWeatherData(weather);
+    }
+
+    @Benchmark
+    public List<WeatherData> parseGroup() throws WeatherSDKException {
+        return apiClient.parseGroupWeatherData(group);
+    }
+}
@@ -0,0 +1,52 @@
+package com.levelxcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of WeatherData, both uncached and through the memoized accessors
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializeBenchmark {
+    private WeatherData data;
+
+    @Setup
+    public void setUp() throws WeatherSDKException {
+        data = new ApiClient("benchmark").parseWeatherData(Fixtures.weather());
+    }
+
+    @Benchmark
+    public byte[] writePretty() throws WeatherSDKException {
+        return WeatherJsonWriter.write(data, true);
+    }
+
+    @Benchmark
+    public byte[] writeCompact() throws WeatherSDKException {
+        return WeatherJsonWriter.write(data, false);
+    }
+
+    @Benchmark
+    public String toJsonMemoized() throws WeatherSDKException {
+        return data.toJson();
+    }
+
+    @Benchmark
+    public WeatherSnapshot toSnapshotMemoized() {
+        return data.toSnapshot();
+    }
+}
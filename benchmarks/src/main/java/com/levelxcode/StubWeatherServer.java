@@ -0,0 +1,233 @@
+package com.levelxcode;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the OpenWeatherMap API serving the weather and group endpoints.
+ * <p>
+ * Responses are built from the fixture response, with the requested city's name, a stable
+ * ID per name, the current measurement time and a slightly varying temperature. Every
+ * request first waits for a latency drawn from the configured model, then may be answered
+ * with a 429 with Retry-After, a 5xx, or a truncated JSON body at the configured rates.
+ * Requests run on virtual threads, so simulated latency does not limit throughput.
+ */
+final class StubWeatherServer implements AutoCloseable {
+    private static final String PATH = "/data/2.5/";
+    private static final int[] SERVER_ERRORS = {500, 502, 503};
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Faults faults;
+    private final String template;
+    private final ConcurrentHashMap<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, String> namesById = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1_000_000);
+    private final LongAdder calls = new LongAdder();
+    private final ConcurrentHashMap<Integer, LongAdder> injected = new ConcurrentHashMap<>();
+
+    /**
+     * Failures and latency injected into responses
+     * @param latency Latency model of every response
+     * @param tooManyRequestsRate Share of requests answered with 429
+     * @param serverErrorRate Share of requests answered with 500, 502 or 503
+     * @param malformedRate Share of requests answered with a truncated JSON body
+     */
+    record Faults(LatencyModel latency, double tooManyRequestsRate, double serverErrorRate, double malformedRate) {
+    }
+
+    /**
+     * Distribution of simulated response latency
+     */
+    interface LatencyModel {
+        long sampleNanos(Random random);
+
+        /**
+         * Parse a latency model: "fixed:20ms", "uniform:5ms:50ms" or "lognormal:20ms:0.5",
+         * the last with the median and the standard deviation of the log
+         * @param spec Model specification
+         * @return Latency model
+         */
+        static LatencyModel parse(String spec) {
+            String[] parts = spec.split(":");
+            switch (parts[0]) {
+                case "fixed" -> {
+                    long nanos = LoadHarness.parseDuration(parts[1]).toNanos();
+                    return random -> nanos;
+                }
+                case "uniform" -> {
+                    long min = LoadHarness.parseDuration(parts[1]).toNanos();
+                    long max = LoadHarness.parseDuration(parts[2]).toNanos();
+                    return random -> min + (long) (random.nextDouble() * (max - min));
+                }
+                case "lognormal" -> {
+                    long median = LoadHarness.parseDuration(parts[1]).toNanos();
+                    double sigma = Double.parseDouble(parts[2]);
+                    return random -> (long) (median * Math.exp(sigma * random.nextGaussian()));
+                }
+                default -> throw new IllegalArgumentException("Unknown latency model: " + spec);
+            }
+        }
+    }
+
+    /**
+     * Start a server on a free local port
+     * @param faults Failures and latency to inject
+     * @throws IOException If the server cannot bind
+     */
+    StubWeatherServer(Faults faults) throws IOException {
+        this.faults = faults;
+        this.template = new String(Fixtures.weather(), StandardCharsets.UTF_8)
+                .replace("\"id\":2643743,\"name\":\"London\"", "\"id\":%d,\"name\":\"%s\"")
+                .replace("\"dt\":1675744800", "\"dt\":%d")
+                .replace("\"temp\":281.6", "\"temp\":%.2f");
+        if (!template.contains("%s") || !template.contains("%.2f")) {
+            throw new IllegalStateException("Unexpected fixture layout");
+        }
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    /**
+     * Get API root to pass to {@link ApiClientConfig#withBaseUrl}
+     */
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+    }
+
+    /**
+     * Get number of requests received
+     */
+    long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Get number of injected failures by status, 200 standing for malformed bodies
+     */
+    Map<Integer, Long> getInjectedFailures() {
+        Map<Integer, Long> counts = new HashMap<>();
+        injected.forEach((status, count) -> counts.put(status, count.sum()));
+        return counts;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        calls.increment();
+        try (exchange) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long latencyNanos = Math.max(0, faults.latency().sampleNanos(random));
+            if (latencyNanos > 0) {
+                Thread.sleep(Duration.ofNanos(latencyNanos));
+            }
+
+            double roll = random.nextDouble();
+            if (roll < faults.tooManyRequestsRate()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, "{\"cod\":429,\"message\":\"stub rate limit\"}", true);
+                return;
+            }
+            roll -= faults.tooManyRequestsRate();
+            if (roll < faults.serverErrorRate()) {
+                int status = SERVER_ERRORS[random.nextInt(SERVER_ERRORS.length)];
+                respond(exchange, status, "{\"cod\":" + status + ",\"message\":\"stub failure\"}", true);
+                return;
+            }
+            roll -= faults.serverErrorRate();
+            String body = body(exchange);
+            if (body == null) {
+                respond(exchange, 404, "{\"cod\":\"404\",\"message\":\"city not found\"}", false);
+            } else if (roll < faults.malformedRate()) {
+                respond(exchange, 200, body.substring(0, body.length() / 2), true);
+            } else {
+                respond(exchange, 200, body, false);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Build the response body of a weather or group request
+     * @return JSON body, or null for an unknown endpoint
+     */
+    private String body(HttpExchange exchange) {
+        String endpoint = exchange.getRequestURI().getPath().substring(PATH.length());
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        if (endpoint.equals("weather") && query.containsKey("q")) {
+            return weather(query.get("q"));
+        }
+        if (endpoint.equals("group") && query.containsKey("id")) {
+            StringBuilder list = new StringBuilder();
+            int count = 0;
+            for (String id : query.get("id").split(",")) {
+                String name = namesById.get(Long.parseLong(id));
+                if (name != null) {
+                    list.append(count++ == 0 ? "" : ",").append(weather(name));
+                }
+            }
+            return "{\"cnt\":" + count + ",\"list\":[" + list + "]}";
+        }
+        return null;
+    }
+
+    private String weather(String name) {
+        long id = idsByName.computeIfAbsent(name, key -> {
+            long newId = nextId.getAndIncrement();
+            namesById.put(newId, key);
+            return newId;
+        });
+        double temp = 280 + ThreadLocalRandom.current().nextDouble(-2, 2);
+        return String.format(Locale.ROOT, template, temp, System.currentTimeMillis() / 1000, id, name);
+    }
+
+    private void respond(HttpExchange exchange, int status, String body, boolean fault) throws IOException {
+        if (fault) {
+            injected.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
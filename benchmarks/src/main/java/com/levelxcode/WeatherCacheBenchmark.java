@@ -0,0 +1,69 @@
+package com.levelxcode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on WeatherCache from several threads.
+ * <p>
+ * The hit-heavy workload reads keys that are all cached. The miss-heavy workload
+ * draws keys from a space ten times the capacity and inserts every miss, so most
+ * operations evict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class WeatherCacheBenchmark {
+    @Param({"100", "10000"})
+    int cacheSize;
+
+    private WeatherCache cache;
+    private String[] cachedKeys;
+    private String[] missKeys;
+    private WeatherData data;
+
+    @Setup
+    public void setUp() {
+        cache = new WeatherCache(cacheSize);
+        data = new WeatherData();
+        data.setCityName("London");
+        data.setTimestamp(Long.MAX_VALUE / 2);
+        cachedKeys = Fixtures.cityNames(cacheSize);
+        for (String key : cachedKeys) {
+            cache.put(key, data);
+        }
+        missKeys = Fixtures.cityNames(cacheSize * 10);
+    }
+
+    @Benchmark
+    public WeatherData hitHeavy() {
+        return cache.get(cachedKeys[ThreadLocalRandom.current().nextInt(cachedKeys.length)]);
+    }
+
+    @Benchmark
+    public WeatherData missHeavy() {
+        String key = missKeys[ThreadLocalRandom.current().nextInt(missKeys.length)];
+        WeatherData cached = cache.get(key);
+        if (cached == null) {
+            cache.put(key, data);
+        }
+        return cached;
+    }
+}
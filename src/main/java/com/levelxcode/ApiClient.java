@@ -1,32 +1,106 @@
 package com.levelxcode;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Handles HTTP requests to the OpenWeatherMap API and response parsing.
  */
 public class ApiClient {
+    /**
+     * Maximum number of city IDs accepted by a single group request
+     */
+    public static final int MAX_GROUP_SIZE = 20;
+
+    /**
+     * Timeout of a request when the caller sets none
+     */
+    public static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(15);
+
+    private static final String HOST_AND_PATH = "api.openweathermap.org/data/2.5/";
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
     private final String apiKey;
+    private final String baseUrl;
+    private final boolean compression;
     private final HttpClient httpClient;
+    private final WeatherSDKMetrics metrics;
 
-
+    /**
+     * Parser of a successful response body
+     */
+    @FunctionalInterface
+    private interface ResponseParser<T> {
+        T parse(byte[] body) throws WeatherSDKException;
+    }
 
     /**
      * Initialize API client with API key
      * @param apiKey OpenWeatherMap API key
      */
     public ApiClient(String apiKey) {
+        this(apiKey, new ApiClientConfig());
+    }
+
+    /**
+     * Initialize API client with transport options
+     * @param apiKey OpenWeatherMap API key
+     * @param config Transport options
+     */
+    public ApiClient(String apiKey, ApiClientConfig config) {
+        this(apiKey, config, new WeatherSDKMetrics(WeatherSDKListener.NONE));
+    }
+
+    /**
+     * Initialize API client reporting parse times
+     * @param apiKey OpenWeatherMap API key
+     * @param config Transport options
+     * @param metrics Receiver of parse events
+     */
+    ApiClient(String apiKey, ApiClientConfig config, WeatherSDKMetrics metrics) {
         this.apiKey = apiKey;
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .build();
+        this.metrics = metrics;
+        this.baseUrl = config.getBaseUrl() != null ? config.getBaseUrl()
+                : (config.isHttps() ? "https://" : "http://") + HOST_AND_PATH;
+        this.compression = config.isCompression();
+        this.httpClient = config.getHttpClient() != null ? config.getHttpClient() : newHttpClient(config);
+    }
+
+    /**
+     * Build an HTTP client from transport options. HTTP/2 is only requested over HTTPS,
+     * where it is negotiated during the TLS handshake; over plain HTTP it would cost an
+     * upgrade attempt on every new connection.
+     * @param config Transport options
+     * @return New HTTP client
+     */
+    static HttpClient newHttpClient(ApiClientConfig config) {
+        boolean https = config.getBaseUrl() != null ? config.getBaseUrl().startsWith("https://") : config.isHttps();
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(https ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.getConnectTimeout());
+        if (config.getExecutor() != null) {
+            builder.executor(config.getExecutor());
+        }
+        return builder.build();
     }
 
     /**
@@ -36,28 +110,232 @@ public class ApiClient {
      * @throws WeatherSDKException If API request fails
      */
     public WeatherData fetchWeatherData(String cityName) throws WeatherSDKException {
+        return send(buildCityRequest(cityName, REQUEST_TIMEOUT), this::parseWeatherData);
+    }
+
+    /**
+     * Fetch weather data from API without blocking the calling thread
+     * @param cityName Name of the city to query
+     * @return Future completed with parsed WeatherData, or exceptionally with WeatherSDKException
+     */
+    public CompletableFuture<WeatherData> fetchWeatherDataAsync(String cityName) {
+        return fetchWeatherDataAsync(cityName, REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Fetch weather data from API without blocking the calling thread, within a time budget.
+     * Cancelling the returned future aborts the HTTP exchange.
+     * @param cityName Name of the city to query
+     * @param timeout Time allowed for the request
+     * @return Future completed with parsed WeatherData, or exceptionally with WeatherSDKException
+     */
+    public CompletableFuture<WeatherData> fetchWeatherDataAsync(String cityName, Duration timeout) {
+        return sendAsync(buildCityRequest(cityName, timeout), this::parseWeatherData);
+    }
+
+    /**
+     * Fetch weather data for the place nearest to a coordinate
+     * @param latitude Latitude in degrees, -90 to 90
+     * @param longitude Longitude in degrees, -180 to 180
+     * @return Parsed WeatherData
+     * @throws WeatherSDKException If API request fails
+     */
+    public WeatherData fetchWeatherData(double latitude, double longitude) throws WeatherSDKException {
+        return send(buildCoordinateRequest(latitude, longitude, REQUEST_TIMEOUT), this::parseWeatherData);
+    }
+
+    /**
+     * Fetch weather data for the place nearest to a coordinate without blocking the calling thread,
+     * within a time budget. Cancelling the returned future aborts the HTTP exchange.
+     * @param latitude Latitude in degrees, -90 to 90
+     * @param longitude Longitude in degrees, -180 to 180
+     * @param timeout Time allowed for the request
+     * @return Future completed with parsed WeatherData, or exceptionally with WeatherSDKException
+     */
+    public CompletableFuture<WeatherData> fetchWeatherDataAsync(double latitude, double longitude, Duration timeout) {
+        return sendAsync(buildCoordinateRequest(latitude, longitude, timeout), this::parseWeatherData);
+    }
+
+    /**
+     * Fetch weather data for several cities with one group request
+     * @param cityIds OpenWeatherMap city IDs, at most {@link #MAX_GROUP_SIZE}
+     * @return Parsed WeatherData for every city found
+     * @throws WeatherSDKException If API request fails
+     */
+    public List<WeatherData> fetchWeatherDataByIds(Collection<Long> cityIds) throws WeatherSDKException {
+        return send(buildGroupRequest(cityIds), this::parseGroupWeatherData);
+    }
+
+    /**
+     * Fetch weather data for several cities with one group request without blocking the calling thread
+     * @param cityIds OpenWeatherMap city IDs, at most {@link #MAX_GROUP_SIZE}
+     * @return Future completed with parsed WeatherData for every city found
+     */
+    public CompletableFuture<List<WeatherData>> fetchWeatherDataByIdsAsync(Collection<Long> cityIds) {
+        return sendAsync(buildGroupRequest(cityIds), this::parseGroupWeatherData);
+    }
+
+    /**
+     * Build the current weather request for a city
+     * @param cityName Name of the city to query
+     * @param timeout Time allowed for the request
+     * @return HTTP request
+     */
+    private HttpRequest buildCityRequest(String cityName, Duration timeout) {
         String encodedCity = cityName.replace(" ", "%20");
-        String url = String.format("http://api.openweathermap.org/data/2.5/weather?q=%s&appid=%s",
-                encodedCity, apiKey);
+        return buildRequest(String.format("weather?q=%s&appid=%s", encodedCity, apiKey), timeout);
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(15))
-                .build();
+    /**
+     * Build the current weather request for a coordinate
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param timeout Time allowed for the request
+     * @return HTTP request
+     */
+    private HttpRequest buildCoordinateRequest(double latitude, double longitude, Duration timeout) {
+        return buildRequest(String.format(Locale.ROOT, "weather?lat=%.6f&lon=%.6f&appid=%s",
+                latitude, longitude, apiKey), timeout);
+    }
+
+    /**
+     * Build the current weather request for a group of city IDs
+     * @param cityIds OpenWeatherMap city IDs
+     * @return HTTP request
+     */
+    private HttpRequest buildGroupRequest(Collection<Long> cityIds) {
+        if (cityIds.isEmpty() || cityIds.size() > MAX_GROUP_SIZE) {
+            throw new IllegalArgumentException("Group request needs 1 to " + MAX_GROUP_SIZE
+                    + " city IDs, got " + cityIds.size());
+        }
+        String ids = cityIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        return buildRequest(String.format("group?id=%s&appid=%s", ids, apiKey), REQUEST_TIMEOUT);
+    }
 
+    /**
+     * Build a request to an API endpoint
+     * @param pathAndQuery Endpoint path relative to the API root, with query string
+     * @param timeout Time allowed for the request
+     * @return HTTP request
+     */
+    private HttpRequest buildRequest(String pathAndQuery, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(baseUrl + pathAndQuery))
+                .timeout(timeout);
+        if (compression) {
+            builder.header("Accept-Encoding", ACCEPT_ENCODING);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Send a request and parse its response
+     * @param request HTTP request
+     * @param parser Parser of the response body
+     * @return Parsed response
+     * @throws WeatherSDKException On network error, error status or malformed body
+     */
+    private <T> T send(HttpRequest request, ResponseParser<T> parser) throws WeatherSDKException {
         try {
-            HttpResponse<String> response = httpClient.send(
-                    request, HttpResponse.BodyHandlers.ofString()
+            HttpResponse<byte[]> response = httpClient.send(
+                    request, HttpResponse.BodyHandlers.ofByteArray()
             );
+            return handleResponse(response, parser);
+        } catch (IOException | InterruptedException e) {
+            throw new WeatherSDKException("Network error: " + e.getMessage(), WeatherSDKException.NETWORK_ERROR);
+        }
+    }
 
-            if (response.statusCode() != 200) {
-                handleErrorResponse(response);
+    /**
+     * Send a request without blocking and parse its response
+     * @param request HTTP request
+     * @param parser Parser of the response body
+     * @return Future completed with parsed response, or exceptionally with WeatherSDKException;
+     *         cancelling it aborts the HTTP exchange
+     */
+    private <T> CompletableFuture<T> sendAsync(HttpRequest request, ResponseParser<T> parser) {
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        CompletableFuture<T> result = exchange.handle((response, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                throw new CompletionException(new WeatherSDKException("Network error: " + cause.getMessage(),
+                        WeatherSDKException.NETWORK_ERROR));
+            }
+            try {
+                return handleResponse(response, parser);
+            } catch (WeatherSDKException e) {
+                throw new CompletionException(e);
             }
+        });
+        result.whenComplete((parsed, error) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
 
-            return parseWeatherData(response.body());
-        } catch (IOException | InterruptedException e) {
-            throw new WeatherSDKException("Network error: " + e.getMessage());
+    /**
+     * Check status and parse a completed HTTP response
+     * @param response HTTP response object
+     * @param parser Parser of the response body
+     * @return Parsed response
+     * @throws WeatherSDKException On error status or malformed body
+     */
+    private <T> T handleResponse(HttpResponse<byte[]> response, ResponseParser<T> parser) throws WeatherSDKException {
+        if (response.statusCode() != 200) {
+            handleErrorResponse(response);
         }
+
+        String encoding = response.headers().firstValue("Content-Encoding").orElse(null);
+        return parser.parse(decode(response.body(), encoding));
+    }
+
+    /**
+     * Undo the content encoding of a response body
+     * @param body Response body as received
+     * @param encoding Value of the Content-Encoding header, or null if absent
+     * @return Decoded body
+     * @throws WeatherSDKException If the encoding is unsupported or the body is corrupt
+     */
+    static byte[] decode(byte[] body, String encoding) throws WeatherSDKException {
+        String name = encoding == null ? "identity" : encoding.trim().toLowerCase(Locale.ROOT);
+        try {
+            return switch (name) {
+                case "identity", "" -> body;
+                case "gzip", "x-gzip" -> readAll(new GZIPInputStream(new ByteArrayInputStream(body)));
+                // Meant to be zlib-wrapped, but some servers send raw deflate data
+                case "deflate" -> inflate(body);
+                default -> throw new WeatherSDKException("Unsupported content encoding: " + encoding);
+            };
+        } catch (IOException e) {
+            throw new WeatherSDKException("Failed to decompress response: " + e.getMessage());
+        }
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+        Inflater inflater = new Inflater(!isZlibWrapped(body));
+        try {
+            return readAll(new InflaterInputStream(new ByteArrayInputStream(body), inflater));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Check for a zlib header: deflate method and a header checksum divisible by 31
+     */
+    private static boolean isZlibWrapped(byte[] body) {
+        return body.length >= 2 && (body[0] & 0x0F) == 8
+                && (((body[0] & 0xFF) << 8) | (body[1] & 0xFF)) % 31 == 0;
     }
 
     /**
@@ -65,7 +343,7 @@ public class ApiClient {
      * @param response HTTP response object
      * @throws WeatherSDKException Appropriate error message
      */
-    private void handleErrorResponse(HttpResponse<String> response) throws WeatherSDKException {
+    private void handleErrorResponse(HttpResponse<?> response) throws WeatherSDKException {
         int code = response.statusCode();
         String message = switch (code) {
             case 401 -> "Invalid API key";
@@ -74,7 +352,31 @@ public class ApiClient {
             case 500, 502, 503, 504 -> "Server error";
             default -> "Unexpected response code: " + code;
         };
-        throw new WeatherSDKException(message);
+        throw new WeatherSDKException(message, code, retryAfterMillis(response));
+    }
+
+    /**
+     * Read the Retry-After header, given either in seconds or as an HTTP date
+     * @param response HTTP response object
+     * @return Delay in milliseconds, or -1 if absent or malformed
+     */
+    private static long retryAfterMillis(HttpResponse<?> response) {
+        String value = response.headers().firstValue("Retry-After").orElse(null);
+        if (value == null) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not delta-seconds, try the date form
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(0, at - System.currentTimeMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
     }
 
     /**
@@ -83,36 +385,56 @@ public class ApiClient {
      * @return Parsed WeatherData
      * @throws WeatherSDKException If parsing fails
      */
-    private WeatherData parseWeatherData(String jsonResponse) throws WeatherSDKException {
-        try {
-            JSONObject root = new JSONObject(jsonResponse);
-            JSONArray weatherArray = root.getJSONArray("weather");
-            if (weatherArray.isEmpty()) {
-                throw new WeatherSDKException("No weather data found");
-            }
+    WeatherData parseWeatherData(String jsonResponse) throws WeatherSDKException {
+        return parseWeatherData(jsonResponse.getBytes(StandardCharsets.UTF_8));
+    }
 
-            JSONObject weather = weatherArray.getJSONObject(0);
-            JSONObject main = root.getJSONObject("main");
-            JSONObject wind = root.getJSONObject("wind");
-            JSONObject sys = root.getJSONObject("sys");
-
-            WeatherData data = new WeatherData();
-            data.setMainWeather(weather.getString("main"));
-            data.setDescription(weather.getString("description"));
-            data.setTemp(main.getDouble("temp"));
-            data.setFeelsLike(main.getDouble("feels_like"));
-            data.setVisibility(root.getInt("visibility"));
-            data.setWindSpeed(wind.getDouble("speed"));
-            data.setDatetime(root.getLong("dt"));
-            data.setSunrise(sys.getLong("sunrise"));
-            data.setSunset(sys.getLong("sunset"));
-            data.setTimezone(root.getInt("timezone"));
-            data.setCityName(root.getString("name"));
+    /**
+     * Parse API response body into WeatherData object without building a JSON tree
+     * @param body UTF-8 response body from API
+     * @return Parsed WeatherData
+     * @throws WeatherSDKException If parsing fails
+     */
+    WeatherData parseWeatherData(byte[] body) throws WeatherSDKException {
+        try {
+            long start = System.nanoTime();
+            WeatherData data = WeatherJsonParser.parseWeather(body);
+            metrics.recordParse(System.nanoTime() - start);
             data.setTimestamp(System.currentTimeMillis());
-
             return data;
         } catch (Exception e) {
             throw new WeatherSDKException("Failed to parse weather data: " + e.getMessage());
         }
     }
+
+    /**
+     * Parse group API response JSON into WeatherData objects
+     * @param jsonResponse Raw JSON response from the group endpoint
+     * @return Parsed WeatherData, one per returned city
+     * @throws WeatherSDKException If parsing fails
+     */
+    List<WeatherData> parseGroupWeatherData(String jsonResponse) throws WeatherSDKException {
+        return parseGroupWeatherData(jsonResponse.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse group API response body into WeatherData objects without building a JSON tree
+     * @param body UTF-8 response body from the group endpoint
+     * @return Parsed WeatherData, one per returned city
+     * @throws WeatherSDKException If parsing fails
+     */
+    List<WeatherData> parseGroupWeatherData(byte[] body) throws WeatherSDKException {
+        try {
+            long start = System.nanoTime();
+            List<WeatherData> result = WeatherJsonParser.parseGroup(body);
+            metrics.recordParse(System.nanoTime() - start);
+            long now = System.currentTimeMillis();
+            for (WeatherData data : result) {
+                data.setTimestamp(now);
+            }
+            return result;
+        } catch (Exception e) {
+            throw new WeatherSDKException("Failed to parse group weather data: " + e.getMessage());
+        }
+    }
 }
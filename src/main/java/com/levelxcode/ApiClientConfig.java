@@ -0,0 +1,99 @@
+package com.levelxcode;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Transport options of ApiClient. All options have defaults, so only the ones
+ * that differ need to be set.
+ * <p>
+ * By default requests go over plain HTTP/1.1 with compressed responses accepted.
+ * With HTTPS the client negotiates HTTP/2, so concurrent requests share one
+ * multiplexed connection instead of each holding its own.
+ */
+public class ApiClientConfig {
+    private boolean https;
+    private boolean compression = true;
+    private Duration connectTimeout = Duration.ofSeconds(10);
+    private Executor executor;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    /**
+     * Use HTTPS and negotiate HTTP/2 with the API
+     * @param https True for HTTPS with HTTP/2, false for plain HTTP/1.1
+     * @return This config
+     */
+    public ApiClientConfig withHttps(boolean https) {
+        this.https = https;
+        return this;
+    }
+
+    /**
+     * Ask the API for gzip or deflate compressed responses and decompress them
+     * @param compression True to accept compressed responses
+     * @return This config
+     */
+    public ApiClientConfig withCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * Set time allowed to open a connection; ignored when an HttpClient is given
+     * @param connectTimeout Connect timeout, must be positive
+     * @return This config
+     */
+    public ApiClientConfig withConnectTimeout(Duration connectTimeout) {
+        if (connectTimeout.isNegative() || connectTimeout.isZero()) {
+            throw new IllegalArgumentException("Connect timeout must be positive: " + connectTimeout);
+        }
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    /**
+     * Set executor running response handling; ignored when an HttpClient is given
+     * @param executor Executor of the HTTP client, null for the client's own pool
+     * @return This config
+     */
+    public ApiClientConfig withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Send requests with an existing client, for example one shared with the rest of the
+     * application so its connection pool is reused. The client's own version, executor and
+     * timeouts then apply.
+     * @param httpClient Client to use, null to build one from this config
+     * @return This config
+     */
+    public ApiClientConfig withHttpClient(HttpClient httpClient) {
+        this.httpClient = httpClient;
+        return this;
+    }
+
+    /**
+     * Send requests to another API root than api.openweathermap.org, for example a proxy or a
+     * local stub server in load tests. The URL's scheme takes precedence over {@link #withHttps}.
+     * @param baseUrl Absolute http or https URL of the API root, e.g. "http://localhost:8080/data/2.5/";
+     *                null for the public API
+     * @return This config
+     */
+    public ApiClientConfig withBaseUrl(String baseUrl) {
+        if (baseUrl != null && !baseUrl.startsWith("http://") && !baseUrl.startsWith("https://")) {
+            throw new IllegalArgumentException("Base URL must be an http or https URL: " + baseUrl);
+        }
+        this.baseUrl = baseUrl == null || baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+        return this;
+    }
+
+    public boolean isHttps() {return https;}
+    public boolean isCompression() {return compression;}
+    public Duration getConnectTimeout() {return connectTimeout;}
+    public Executor getExecutor() {return executor;}
+    public HttpClient getHttpClient() {return httpClient;}
+    public String getBaseUrl() {return baseUrl;}
+}
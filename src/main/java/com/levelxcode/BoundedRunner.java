@@ -0,0 +1,77 @@
+package com.levelxcode;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs asynchronous tasks with a bounded number in flight, without blocking a thread.
+ * <p>
+ * Tasks are started from a drain loop instead of from the completion of the previous task.
+ * A task that completes at once, such as a call rejected by an open circuit breaker, only
+ * hands its slot back to the loop, so the stack stays flat however many tasks there are.
+ */
+final class BoundedRunner {
+    private static final CompletableFuture<Void> NOTHING_TO_RUN = CompletableFuture.completedFuture(null);
+
+    private final Iterator<Supplier<CompletableFuture<?>>> queue;
+    private final AtomicInteger slots;
+    private final AtomicInteger remaining;
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private BoundedRunner(List<Supplier<CompletableFuture<?>>> tasks, int maxConcurrency) {
+        this.queue = tasks.iterator();
+        this.slots = new AtomicInteger(maxConcurrency);
+        this.remaining = new AtomicInteger(tasks.size());
+    }
+
+    /**
+     * Start tasks, keeping at most a number of them running
+     * @param tasks Tasks starting an asynchronous operation
+     * @param maxConcurrency Maximum number of operations running at the same time, must be positive
+     * @return Future completing when every operation finished, successfully or not
+     */
+    static CompletableFuture<Void> run(List<Supplier<CompletableFuture<?>>> tasks, int maxConcurrency) {
+        if (tasks.isEmpty()) {
+            return NOTHING_TO_RUN;
+        }
+        BoundedRunner runner = new BoundedRunner(tasks, maxConcurrency);
+        runner.drain();
+        return runner.done;
+    }
+
+    /**
+     * Start queued tasks while slots are free. Only one thread runs the loop at a time;
+     * a call arriving meanwhile makes that thread go round once more.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (slots.get() > 0 && queue.hasNext()) {
+                slots.decrementAndGet();
+                Supplier<CompletableFuture<?>> task = queue.next();
+                CompletableFuture<?> operation;
+                try {
+                    operation = task.get();
+                } catch (RuntimeException e) {
+                    operation = CompletableFuture.failedFuture(e);
+                }
+                operation.whenComplete((ignored, error) -> finished());
+            }
+        } while (drainRequests.decrementAndGet() != 0);
+    }
+
+    private void finished() {
+        slots.incrementAndGet();
+        if (remaining.decrementAndGet() == 0) {
+            done.complete(null);
+        } else {
+            drain();
+        }
+    }
+}
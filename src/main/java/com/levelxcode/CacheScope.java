@@ -0,0 +1,208 @@
+package com.levelxcode;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached data and the state that goes with it: the cache, its persistent copy, the shared
+ * second-level cache, remembered failures, city IDs, the spatial index, change publishers
+ * and the fetches in flight.
+ * <p>
+ * An SDK normally owns its scope. SDKs created from a {@link WeatherSDKRuntime} with shared
+ * data all use the runtime's scope, so a city is fetched, stored and refreshed once for
+ * every tenant; only one of the polling SDKs refreshes it at a time. A tenant waiting on
+ * another tenant's fetch only takes its data: failures may come from the other tenant's
+ * key, limits or deadline, so the waiting tenant then fetches with its own.
+ */
+final class CacheScope {
+    private static final long DISK_FLUSH_DELAY_MILLIS = 1000;
+    private static final long EXPIRY_INTERVAL_MILLIS = 1000;
+
+    final WeatherSDKConfig config;
+    final WeatherCache cache;
+    final WeatherDiskStore diskStore;
+    final NegativeCache negativeCache;
+    final GeoIndex geoIndex;
+    final ChangePublisher changes;
+    final SharedCacheClient sharedCache;
+    final ConcurrentHashMap<String, Fetch> inFlight = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<String, Long> cityIds = new ConcurrentHashMap<>();
+    private final Set<Object> pollers = new LinkedHashSet<>();
+    private ScheduledFuture<?> expiryTask;
+
+    /**
+     * A fetch in flight, tagged with the SDK whose key, rate limiter and circuit breaker it runs under
+     */
+    static final class Fetch extends CompletableFuture<WeatherData> {
+        final Object tenant;
+
+        Fetch(Object tenant) {
+            this.tenant = tenant;
+        }
+    }
+
+    /**
+     * Initialize a scope and fill it from the persistent cache, if one is configured
+     * @param config Cache options; TTL, stale retention, storage and persistence are taken from here
+     * @param metrics Receiver of cache events
+     */
+    CacheScope(WeatherSDKConfig config, WeatherSDKMetrics metrics) {
+        this.config = config;
+        this.negativeCache = new NegativeCache(config.getNegativeCacheSize(), config.getNegativeCacheTtl().toMillis());
+        this.geoIndex = new GeoIndex(config.getCoordinateRadiusKm());
+        this.changes = new ChangePublisher(config.getChangeExecutor(), config.getChangeBufferSize(), metrics);
+        this.sharedCache = new SharedCacheClient(config.getSharedCache(), config.getSharedCacheTimeout(), metrics);
+        long staleRetention = staleRetentionMillis(config);
+        this.cache = new WeatherCache(config.getCacheSize(), staleRetention, metrics, config.isCompactStorage());
+        this.diskStore = config.getPersistentCache() == null ? null : new WeatherDiskStore(
+                config.getPersistentCache(), cache, staleRetention, DISK_FLUSH_DELAY_MILLIS, metrics);
+        if (diskStore != null) {
+            loadPersistedEntries(metrics);
+        }
+    }
+
+    /**
+     * Get how long expired entries are kept for stale serving
+     * @param config Cache options
+     * @return Retention in milliseconds
+     */
+    private static long staleRetentionMillis(WeatherSDKConfig config) {
+        long serveStaleWhenOpen = config.getCircuitBreaker() == null
+                ? 0 : config.getCircuitBreaker().getServeStaleWhenOpen().toMillis();
+        return Math.max(config.getStaleWhileRevalidate().toMillis(),
+                Math.max(config.getStaleIfError().toMillis(), serveStaleWhenOpen));
+    }
+
+    /**
+     * Fill the cache from the persistent cache file; a missing or unreadable file leaves it empty
+     * @param metrics Receiver of a failed read
+     */
+    private void loadPersistedEntries(WeatherSDKMetrics metrics) {
+        try {
+            diskStore.load().forEach((city, data) -> {
+                cache.put(city, data);
+                if (data.getCityId() != 0) {
+                    cityIds.put(city, data.getCityId());
+                }
+                index(city, data);
+            });
+        } catch (WeatherSDKException e) {
+            metrics.recordPersistenceFailure(e);
+        }
+    }
+
+    /**
+     * Start removing expired entries in the background
+     * @param scheduler Scheduler running the expiry task
+     */
+    void start(ScheduledExecutorService scheduler) {
+        expiryTask = scheduler.scheduleWithFixedDelay(cache::expire, EXPIRY_INTERVAL_MILLIS,
+                EXPIRY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Put fetched data into the cache and remember the city ID for group requests
+     * @param normalizedCityName Cache key of the city
+     * @param data Fresh WeatherData with its TTL set
+     */
+    void store(String normalizedCityName, WeatherData data) {
+        WeatherData previous = changes.isWatched(normalizedCityName) ? cache.peek(normalizedCityName) : null;
+        cache.put(normalizedCityName, data);
+        if (previous != null) {
+            changes.publish(normalizedCityName, previous, data);
+        }
+        if (data.getCityId() != 0) {
+            cityIds.put(normalizedCityName, data.getCityId());
+        }
+        negativeCache.remove(normalizedCityName);
+        index(normalizedCityName, data);
+        if (diskStore != null) {
+            diskStore.markDirty();
+        }
+    }
+
+    /**
+     * Get how long fetched data stays valid under the configured TTL policy
+     * @param data Freshly fetched WeatherData
+     * @return TTL in milliseconds from the fetch time
+     */
+    long ttlFor(WeatherData data) {
+        long ttl = config.getTtl().toMillis();
+        if (!config.isTtlAlignedToMeasurement() || data.getDatetime() <= 0) {
+            return ttl;
+        }
+        // Upstream is expected to publish the next measurement one TTL after this one
+        long untilNextMeasurement = data.getDatetime() * 1000 + ttl - data.getTimestamp();
+        return Math.max(ttl / 4, Math.min(ttl, untilNextMeasurement));
+    }
+
+    /**
+     * Let later lookups near a fetched position find the place the API resolved it to,
+     * even when the position lies outside the radius around the place's own coordinates
+     * @param normalizedCityName Cache key the fetched data was stored under
+     * @param latitude Fetched latitude in degrees
+     * @param longitude Fetched longitude in degrees
+     */
+    void indexQueried(String normalizedCityName, double latitude, double longitude) {
+        geoIndex.putQueried(normalizedCityName, latitude, longitude);
+    }
+
+    /**
+     * Add an entry with known coordinates to the spatial index, pruning keys that left the cache
+     * @param normalizedCityName Cache key of the city
+     * @param data Cached WeatherData
+     */
+    private void index(String normalizedCityName, WeatherData data) {
+        if (!geoIndex.isEnabled() || !data.hasCoordinates()) {
+            return;
+        }
+        geoIndex.put(normalizedCityName, data.getLatitude(), data.getLongitude());
+        if (geoIndex.size() > 2 * cache.getMaxSize()) {
+            geoIndex.retain(cache::contains);
+        }
+    }
+
+    /**
+     * Register an SDK that refreshes this scope in the background
+     * @param poller Polling SDK
+     */
+    synchronized void addPoller(Object poller) {
+        pollers.add(poller);
+    }
+
+    /**
+     * Unregister a polling SDK; the next registered one takes over refreshing
+     * @param poller Polling SDK
+     */
+    synchronized void removePoller(Object poller) {
+        pollers.remove(poller);
+    }
+
+    /**
+     * Check if an SDK is the one refreshing this scope, so shared entries are refreshed once,
+     * with that SDK's key and against its rate limit
+     * @param poller Polling SDK
+     * @return True for the earliest registered poller
+     */
+    synchronized boolean isRefreshOwner(Object poller) {
+        return !pollers.isEmpty() && pollers.iterator().next() == poller;
+    }
+
+    /**
+     * Stop the expiry task, complete change subscribers and write pending persistent cache changes
+     */
+    void close() {
+        if (expiryTask != null) {
+            expiryTask.cancel(false);
+        }
+        changes.close();
+        if (diskStore != null) {
+            diskStore.close();
+        }
+    }
+}
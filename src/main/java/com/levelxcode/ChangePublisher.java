@@ -0,0 +1,195 @@
+package com.levelxcode;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes {@link WeatherChange} events to subscribers of one city or of all cities.
+ * <p>
+ * Each subscriber gets its own bounded buffer and receives events on the delivery
+ * executor as it requests them. Events are offered without waiting: when a subscriber's
+ * buffer is full, the event is dropped for that subscriber and counted, so a slow
+ * subscriber never holds up the thread that stored the refreshed data.
+ * <p>
+ * A city's publisher exists only while the city has subscribers, so looking up
+ * publishers for many names does not grow the publisher map.
+ */
+class ChangePublisher {
+    private final Executor executor;
+    private final int bufferSize;
+    private final WeatherSDKMetrics metrics;
+    private final SubmissionPublisher<WeatherChange> allCities;
+    private final ConcurrentHashMap<String, SubmissionPublisher<WeatherChange>> byCity = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * Initialize a publisher without subscribers
+     * @param executor Executor delivering events to subscribers
+     * @param bufferSize Events buffered per subscriber before new ones are dropped
+     * @param metrics Receiver of dropped events
+     */
+    ChangePublisher(Executor executor, int bufferSize, WeatherSDKMetrics metrics) {
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.metrics = metrics;
+        this.allCities = new SubmissionPublisher<>(executor, bufferSize);
+    }
+
+    /**
+     * Get a publisher of the changes of one city
+     * @param city Cache key of the city
+     * @return Publisher; subscribers are completed when the SDK shuts down
+     */
+    Flow.Publisher<WeatherChange> forCity(String city) {
+        return subscriber -> {
+            // Under a lock rather than in a map update, since the subscriber may be called back right away
+            synchronized (byCity) {
+                SubmissionPublisher<WeatherChange> publisher =
+                        byCity.computeIfAbsent(city, key -> new SubmissionPublisher<>(executor, bufferSize));
+                if (closed) {
+                    publisher.close();
+                }
+                publisher.subscribe(new CitySubscriber(city, subscriber));
+            }
+        };
+    }
+
+    /**
+     * Get a publisher of the changes of every city
+     * @return Publisher; subscribers are completed when the SDK shuts down
+     */
+    Flow.Publisher<WeatherChange> forAllCities() {
+        return allCities::subscribe;
+    }
+
+    /**
+     * Check if anyone listens to changes of a city, so unwatched refreshes skip the comparison
+     * @param city Cache key of the city
+     * @return True if there is a subscriber for the city or for all cities
+     */
+    boolean isWatched(String city) {
+        if (allCities.hasSubscribers()) {
+            return true;
+        }
+        SubmissionPublisher<WeatherChange> publisher = byCity.get(city);
+        return publisher != null && publisher.hasSubscribers();
+    }
+
+    /**
+     * Get number of cities with a publisher, i.e. with subscribers
+     */
+    int getCityCount() {
+        return byCity.size();
+    }
+
+    /**
+     * Publish the change between two versions of a city's data, if there is one
+     * @param city Cache key of the city
+     * @param previous Data before the refresh
+     * @param current Data after the refresh
+     */
+    void publish(String city, WeatherData previous, WeatherData current) {
+        List<String> changedFields = WeatherChange.diff(previous, current);
+        if (changedFields.isEmpty()) {
+            return;
+        }
+        WeatherChange change = new WeatherChange(city, previous.toSnapshot(), current.toSnapshot(), changedFields);
+        offer(allCities, change);
+        SubmissionPublisher<WeatherChange> publisher = byCity.get(city);
+        if (publisher != null) {
+            offer(publisher, change);
+        }
+    }
+
+    /**
+     * Complete all subscribers
+     */
+    void close() {
+        closed = true;
+        allCities.close();
+        byCity.values().forEach(SubmissionPublisher::close);
+    }
+
+    /**
+     * Drop a city's publisher once its last subscriber cancelled or completed
+     * @param city Cache key of the city
+     */
+    private void release(String city) {
+        synchronized (byCity) {
+            SubmissionPublisher<WeatherChange> publisher = byCity.get(city);
+            if (publisher != null && !publisher.hasSubscribers()) {
+                byCity.remove(city);
+            }
+        }
+    }
+
+    /**
+     * Passes events to a subscriber of one city and releases the city's publisher when it leaves
+     */
+    private final class CitySubscriber implements Flow.Subscriber<WeatherChange> {
+        private final String city;
+        private final Flow.Subscriber<? super WeatherChange> subscriber;
+
+        CitySubscriber(String city, Flow.Subscriber<? super WeatherChange> subscriber) {
+            this.city = city;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                    release(city);
+                }
+            });
+        }
+
+        @Override
+        public void onNext(WeatherChange change) {
+            subscriber.onNext(change);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            try {
+                subscriber.onError(error);
+            } finally {
+                release(city);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            try {
+                subscriber.onComplete();
+            } finally {
+                release(city);
+            }
+        }
+    }
+
+    private void offer(SubmissionPublisher<WeatherChange> publisher, WeatherChange change) {
+        if (!publisher.hasSubscribers()) {
+            return;
+        }
+        try {
+            publisher.offer(change, 0, TimeUnit.MILLISECONDS, (subscriber, dropped) -> {
+                metrics.recordChangeDropped();
+                return false;
+            });
+        } catch (IllegalStateException e) {
+            // Closed by shutdown
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.levelxcode;
+
+/**
+ * Circuit breaker failing upstream requests fast while OpenWeatherMap is degraded.
+ * <p>
+ * Outcomes are tracked in a window of the most recent requests. When the share of failures
+ * (network error, 429, 5xx) or of slow calls reaches its threshold, the breaker opens and
+ * rejects requests for the open duration. It then lets a few probe requests through; if all
+ * succeed in time it closes, otherwise it opens again.
+ * <p>
+ * Every state change starts a new generation, and a request only counts towards the generation
+ * it was let through in, so a slow request sent before the breaker opened cannot pass for a probe.
+ */
+class CircuitBreaker {
+    /**
+     * Returned by {@link #tryAcquire} when a request may not be sent
+     */
+    static final long REJECTED = -1;
+
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final CircuitBreakerConfig config;
+    private final WeatherSDKMetrics metrics;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final byte[] window;
+    private int windowNext;
+    private int windowCount;
+    private int failures;
+    private int slowCalls;
+    private int probesStarted;
+    private int probesSucceeded;
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private volatile long generation;
+    private volatile long openedAt;
+
+    /**
+     * Initialize circuit breaker
+     * @param config Thresholds, or null for a breaker that never opens
+     * @param metrics Receiver of state transitions
+     */
+    CircuitBreaker(CircuitBreakerConfig config, WeatherSDKMetrics metrics) {
+        this.config = config;
+        this.metrics = metrics;
+        this.slowCallNanos = config == null ? Long.MAX_VALUE : config.getSlowCallDuration().toNanos();
+        this.openNanos = config == null ? 0 : config.getOpenDuration().toNanos();
+        this.window = new byte[config == null ? 0 : config.getWindowSize()];
+    }
+
+    /**
+     * Get current state
+     */
+    CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * Check without reserving anything whether a request could currently pass,
+     * so callers can fail before waiting for other resources
+     * @return False while open and not yet due for probing
+     */
+    boolean isCallPermitted() {
+        return state != CircuitState.OPEN || System.nanoTime() - openedAt >= openNanos;
+    }
+
+    /**
+     * Reserve passage for a request that is about to be sent; must be followed by {@link #onResult}
+     * @return Generation the request was let through in, or {@link #REJECTED} if it may not be sent
+     */
+    long tryAcquire() {
+        // Read before the state, so a change in between leaves the request with an outdated generation
+        long current = generation;
+        if (state == CircuitState.CLOSED) {
+            return current;
+        }
+        synchronized (this) {
+            if (state == CircuitState.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return REJECTED;
+                }
+                probesStarted = 0;
+                probesSucceeded = 0;
+                transition(CircuitState.HALF_OPEN);
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                if (probesStarted >= config.getHalfOpenProbes()) {
+                    return REJECTED;
+                }
+                probesStarted++;
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Record the outcome of a request that passed {@link #tryAcquire}; results of requests let
+     * through before the last state change are ignored
+     * @param passage Generation returned by {@link #tryAcquire}
+     * @param latencyNanos Time the request took
+     * @param error Failure of the request, or null on success
+     */
+    void onResult(long passage, long latencyNanos, Throwable error) {
+        if (config == null || passage != generation) {
+            return;
+        }
+        boolean failed = error instanceof WeatherSDKException sdkException && sdkException.isUpstreamFailure();
+        boolean slow = latencyNanos >= slowCallNanos;
+        synchronized (this) {
+            if (passage != generation) {
+                return;
+            }
+            switch (state) {
+                case CLOSED -> {
+                    record((byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0)));
+                    if (windowCount >= config.getMinimumCalls()
+                            && (failures >= config.getFailureRateThreshold() * windowCount
+                            || slowCalls >= config.getSlowCallRateThreshold() * windowCount)) {
+                        open();
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (failed || slow) {
+                        open();
+                    } else if (++probesSucceeded >= config.getHalfOpenProbes()) {
+                        resetWindow();
+                        transition(CircuitState.CLOSED);
+                    }
+                }
+                case OPEN -> {
+                    // Requests are not let through while open
+                }
+            }
+        }
+    }
+
+    /**
+     * Release passage of a request that passed {@link #tryAcquire} but was cancelled without an outcome
+     * @param passage Generation returned by {@link #tryAcquire}
+     */
+    void onCancelled(long passage) {
+        if (state == CircuitState.HALF_OPEN && passage == generation) {
+            synchronized (this) {
+                if (state == CircuitState.HALF_OPEN && passage == generation && probesStarted > probesSucceeded) {
+                    probesStarted--;
+                }
+            }
+        }
+    }
+
+    private void record(byte outcome) {
+        if (windowCount == window.length) {
+            byte oldest = window[windowNext];
+            failures -= oldest & FAILED;
+            slowCalls -= (oldest & SLOW) >> 1;
+        } else {
+            windowCount++;
+        }
+        window[windowNext] = outcome;
+        windowNext = (windowNext + 1) % window.length;
+        failures += outcome & FAILED;
+        slowCalls += (outcome & SLOW) >> 1;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        resetWindow();
+        transition(CircuitState.OPEN);
+    }
+
+    private void resetWindow() {
+        windowNext = 0;
+        windowCount = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void transition(CircuitState to) {
+        CircuitState from = state;
+        if (from == to) {
+            return;
+        }
+        generation++;
+        state = to;
+        metrics.recordCircuitTransition(from, to);
+    }
+}
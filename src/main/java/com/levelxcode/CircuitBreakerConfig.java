@@ -0,0 +1,118 @@
+package com.levelxcode;
+
+import java.time.Duration;
+
+/**
+ * Thresholds of the circuit breaker guarding upstream requests. All options have defaults,
+ * so only the ones that differ need to be set.
+ * <p>
+ * The breaker opens when, over the last {@code windowSize} requests and at least
+ * {@code minimumCalls} of them, the share of failures (network error, 429, 5xx) or of calls
+ * slower than {@code slowCallDuration} reaches its threshold.
+ */
+public class CircuitBreakerConfig {
+    private double failureRateThreshold = 0.5;
+    private double slowCallRateThreshold = 1.0;
+    private Duration slowCallDuration = Duration.ofSeconds(5);
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private Duration openDuration = Duration.ofSeconds(30);
+    private int halfOpenProbes = 3;
+    private Duration serveStaleWhenOpen = Duration.ZERO;
+
+    /**
+     * Set share of failed requests that opens the breaker
+     * @param threshold Share between 0 (exclusive) and 1
+     * @return This config
+     */
+    public CircuitBreakerConfig withFailureRateThreshold(double threshold) {
+        this.failureRateThreshold = requireRate(threshold, "Failure rate threshold");
+        return this;
+    }
+
+    /**
+     * Set share of slow requests that opens the breaker
+     * @param threshold Share between 0 (exclusive) and 1
+     * @param slowCallDuration Requests taking at least this long count as slow
+     * @return This config
+     */
+    public CircuitBreakerConfig withSlowCallRateThreshold(double threshold, Duration slowCallDuration) {
+        if (slowCallDuration.isNegative() || slowCallDuration.isZero()) {
+            throw new IllegalArgumentException("Slow call duration must be positive: " + slowCallDuration);
+        }
+        this.slowCallRateThreshold = requireRate(threshold, "Slow call rate threshold");
+        this.slowCallDuration = slowCallDuration;
+        return this;
+    }
+
+    /**
+     * Set number of recent requests the rates are computed over
+     * @param windowSize Requests in the window, must be positive
+     * @param minimumCalls Requests needed before the breaker may open, between 1 and the window size
+     * @return This config
+     */
+    public CircuitBreakerConfig withWindow(int windowSize, int minimumCalls) {
+        if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+            throw new IllegalArgumentException("Window size must be positive and minimum calls between 1 and it: "
+                    + windowSize + ", " + minimumCalls);
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    /**
+     * Set how long the breaker stays open before letting probe requests through
+     * @param openDuration Open time, must be positive
+     * @return This config
+     */
+    public CircuitBreakerConfig withOpenDuration(Duration openDuration) {
+        if (openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("Open duration must be positive: " + openDuration);
+        }
+        this.openDuration = openDuration;
+        return this;
+    }
+
+    /**
+     * Set number of probe requests let through half-open; all must succeed to close the breaker
+     * @param halfOpenProbes Probe requests, must be positive
+     * @return This config
+     */
+    public CircuitBreakerConfig withHalfOpenProbes(int halfOpenProbes) {
+        if (halfOpenProbes <= 0) {
+            throw new IllegalArgumentException("Half-open probes must be positive: " + halfOpenProbes);
+        }
+        this.halfOpenProbes = halfOpenProbes;
+        return this;
+    }
+
+    /**
+     * Serve expired entries to lookups rejected by the open breaker instead of failing them
+     * @param maxStale How long past the TTL an entry may be served, zero disables
+     * @return This config
+     */
+    public CircuitBreakerConfig withServeStaleWhenOpen(Duration maxStale) {
+        if (maxStale.isNegative()) {
+            throw new IllegalArgumentException("Serve-stale-when-open duration must not be negative: " + maxStale);
+        }
+        this.serveStaleWhenOpen = maxStale;
+        return this;
+    }
+
+    private static double requireRate(double rate, String name) {
+        if (!(rate > 0 && rate <= 1)) {
+            throw new IllegalArgumentException(name + " must be above 0 and at most 1: " + rate);
+        }
+        return rate;
+    }
+
+    public double getFailureRateThreshold() {return failureRateThreshold;}
+    public double getSlowCallRateThreshold() {return slowCallRateThreshold;}
+    public Duration getSlowCallDuration() {return slowCallDuration;}
+    public int getWindowSize() {return windowSize;}
+    public int getMinimumCalls() {return minimumCalls;}
+    public Duration getOpenDuration() {return openDuration;}
+    public int getHalfOpenProbes() {return halfOpenProbes;}
+    public Duration getServeStaleWhenOpen() {return serveStaleWhenOpen;}
+}
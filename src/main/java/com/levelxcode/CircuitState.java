@@ -0,0 +1,11 @@
+package com.levelxcode;
+
+/**
+ * States of the circuit breaker guarding upstream requests:
+ * - CLOSED: requests pass and their outcomes are tracked
+ * - OPEN: requests fail at once until the open duration has passed
+ * - HALF_OPEN: a few probe requests decide whether to close or open again
+ */
+public enum CircuitState {
+    CLOSED, OPEN, HALF_OPEN
+}
@@ -0,0 +1,55 @@
+package com.levelxcode;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a lookup must finish, carried down to the HTTP request timeout
+ */
+final class Deadline {
+    /**
+     * No deadline, requests use the client's default timeout
+     */
+    static final Deadline NONE = new Deadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean set;
+
+    private Deadline(long deadlineNanos, boolean set) {
+        this.deadlineNanos = deadlineNanos;
+        this.set = set;
+    }
+
+    /**
+     * Create a deadline a timeout from now
+     * @param timeout Time budget, must be positive
+     * @return Deadline
+     */
+    static Deadline after(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+        }
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    boolean isSet() {
+        return set;
+    }
+
+    /**
+     * Get time left, never negative
+     * @return Remaining nanoseconds, Long.MAX_VALUE if no deadline is set
+     */
+    long remainingNanos() {
+        return set ? Math.max(0, deadlineNanos - System.nanoTime()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Get the timeout for a request sent now
+     * @param max Timeout used without a deadline, and the upper bound with one
+     * @return Time left capped at max, at least one millisecond
+     */
+    Duration requestTimeout(Duration max) {
+        long remaining = remainingNanos();
+        return remaining >= max.toNanos() ? max : Duration.ofNanos(Math.max(remaining, 1_000_000));
+    }
+}
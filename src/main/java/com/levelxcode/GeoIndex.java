@@ -0,0 +1,220 @@
+package com.levelxcode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Grid index over the coordinates of cached entries, answering "which cached place is
+ * nearest to this point, within the radius".
+ * <p>
+ * The globe is split into cells one radius high and wide in degrees, so a query only
+ * scans the cells around its own: one row above and below, and as many columns as the
+ * radius spans at that latitude. Keys whose entry left the cache are dropped lazily
+ * when a query runs into them, or in bulk by {@link #retain}.
+ * <p>
+ * Besides the position of its place, a key keeps a few positions it was fetched for, so a
+ * repeated query far from the place's centroid matches it too.
+ */
+class GeoIndex {
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final int MAX_QUERIED_POINTS = 8;
+
+    private final double radiusKm;
+    private final double cellDegrees;
+    private final int rows;
+    private final int columns;
+    private final ConcurrentHashMap<Long, Set<Point>> cells = new ConcurrentHashMap<>();
+    // Per key: the position of its place, then positions it was fetched for, oldest first
+    private final ConcurrentHashMap<String, List<Point>> points = new ConcurrentHashMap<>();
+
+    /**
+     * Indexed position of a key
+     */
+    private record Point(String key, double latitude, double longitude, long cell) {
+    }
+
+    /**
+     * Initialize an index matching points within a radius
+     * @param radiusKm Match radius in kilometers, zero disables the index
+     */
+    GeoIndex(double radiusKm) {
+        this.radiusKm = radiusKm;
+        this.cellDegrees = radiusKm == 0 ? 180 : Math.min(180, radiusKm / KM_PER_DEGREE);
+        this.rows = (int) Math.ceil(180 / cellDegrees) + 1;
+        this.columns = (int) Math.ceil(360 / cellDegrees);
+    }
+
+    /**
+     * Check if queries can match anything
+     */
+    boolean isEnabled() {
+        return radiusKm > 0;
+    }
+
+    /**
+     * Index or move a key to the position of its place, keeping the positions it was fetched for
+     * @param key Cache key
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     */
+    void put(String key, double latitude, double longitude) {
+        if (!isEnabled()) {
+            return;
+        }
+        Point place = point(key, latitude, longitude);
+        points.compute(key, (k, current) -> {
+            List<Point> updated = new ArrayList<>();
+            updated.add(place);
+            if (current != null) {
+                removeFromCell(current.get(0));
+                updated.addAll(current.subList(1, current.size()));
+            }
+            addToCell(place);
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Also match an indexed key near a position it was fetched for; the oldest such
+     * position is dropped once a key has {@value #MAX_QUERIED_POINTS}
+     * @param key Cache key, ignored unless already indexed
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     */
+    void putQueried(String key, double latitude, double longitude) {
+        if (!isEnabled()) {
+            return;
+        }
+        Point queried = point(key, latitude, longitude);
+        points.computeIfPresent(key, (k, current) -> {
+            List<Point> updated = new ArrayList<>(current);
+            if (updated.size() > MAX_QUERIED_POINTS) {
+                removeFromCell(updated.remove(1));
+            }
+            updated.add(queried);
+            addToCell(queried);
+            return List.copyOf(updated);
+        });
+    }
+
+    /**
+     * Drop a key from the index
+     * @param key Cache key
+     */
+    void remove(String key) {
+        List<Point> previous = points.remove(key);
+        if (previous != null) {
+            previous.forEach(this::removeFromCell);
+        }
+    }
+
+    /**
+     * Drop every key not matching a condition, e.g. keys no longer cached
+     * @param present Condition a key must meet to stay indexed
+     */
+    void retain(Predicate<String> present) {
+        for (String key : points.keySet()) {
+            if (!present.test(key)) {
+                remove(key);
+            }
+        }
+    }
+
+    /**
+     * Get number of indexed keys
+     */
+    int size() {
+        return points.size();
+    }
+
+    /**
+     * Find the nearest indexed key within the radius of a point
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param present Condition a key must meet to be returned; keys failing it are dropped
+     * @return Nearest matching key, or null if none lies within the radius
+     */
+    String nearest(double latitude, double longitude, Predicate<String> present) {
+        if (!isEnabled() || points.isEmpty()) {
+            return null;
+        }
+        int row = row(latitude);
+        // Columns narrow toward the poles, so the radius spans more of them there
+        double maxLatitude = Math.min(90, Math.abs(latitude) + cellDegrees);
+        double spanDegrees = radiusKm / (KM_PER_DEGREE * Math.cos(Math.toRadians(maxLatitude)));
+        int span = Double.isFinite(spanDegrees) ? (int) Math.ceil(spanDegrees / cellDegrees) : columns;
+        int firstColumn = column(longitude) - span;
+        int columnCount = Math.min(columns, 2 * span + 1);
+
+        String best = null;
+        double bestDistance = radiusKm;
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int i = 0; i < columnCount; i++) {
+                Set<Point> cell = cells.get(cellOf(r, Math.floorMod(firstColumn + i, columns)));
+                if (cell == null) {
+                    continue;
+                }
+                for (Point point : cell) {
+                    String key = point.key();
+                    double distance = distanceKm(latitude, longitude, point.latitude(), point.longitude());
+                    if (distance <= bestDistance) {
+                        if (present.test(key)) {
+                            best = key;
+                            bestDistance = distance;
+                        } else {
+                            remove(key);
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the great-circle distance between two points with the haversine formula
+     * @return Distance in kilometers
+     */
+    static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLatitude = Math.toRadians(latitude2 - latitude1);
+        double dLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.pow(Math.sin(dLatitude / 2), 2) + Math.cos(Math.toRadians(latitude1))
+                * Math.cos(Math.toRadians(latitude2)) * Math.pow(Math.sin(dLongitude / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), columns);
+    }
+
+    private long cellOf(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private Point point(String key, double latitude, double longitude) {
+        return new Point(key, latitude, longitude, cellOf(row(latitude), column(longitude)));
+    }
+
+    private void addToCell(Point point) {
+        cells.compute(point.cell(), (c, cell) -> {
+            Set<Point> result = cell != null ? cell : ConcurrentHashMap.newKeySet();
+            result.add(point);
+            return result;
+        });
+    }
+
+    private void removeFromCell(Point point) {
+        cells.computeIfPresent(point.cell(), (c, cell) -> {
+            cell.remove(point);
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+}
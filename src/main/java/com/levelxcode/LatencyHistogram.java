@@ -0,0 +1,130 @@
+package com.levelxcode;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent latency histogram with log-linear microsecond buckets.
+ * <p>
+ * Every power of two is split into eight equal buckets. Recording is a few contention-free
+ * additions. Percentiles are reported as the upper bound of the bucket they fall in, so they
+ * are at most 12.5% above the true value.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Up to 2^40 µs, about twelve days
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Record one measurement
+     * @param nanos Measured latency
+     */
+    void record(long nanos) {
+        counts[bucketOf(nanos)].increment();
+        totalNanos.add(nanos);
+    }
+
+    /**
+     * Get number of recorded measurements
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Get sum of all recorded latencies in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Get the latency below which the given share of measurements fall
+     * @param percentile Share between 0 and 1, e.g. 0.99
+     * @return Upper bound of the matching bucket in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        addCountsTo(snapshot);
+        return percentileNanos(snapshot, percentile);
+    }
+
+    /**
+     * Add this histogram's bucket counts to a snapshot, e.g. to merge several histograms
+     * @param snapshot Counts indexed like this histogram's buckets
+     */
+    void addCountsTo(long[] snapshot) {
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] += counts[i].sum();
+        }
+    }
+
+    /**
+     * Get a percentile from bucket counts
+     * @param snapshot Counts indexed like a histogram's buckets
+     * @param percentile Share between 0 and 1
+     * @return Upper bound of the matching bucket in nanoseconds, 0 if the counts are all zero
+     */
+    static long percentileNanos(long[] snapshot, double percentile) {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1: " + percentile);
+        }
+        long count = 0;
+        for (long bucket : snapshot) {
+            count += bucket;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return upperBoundNanos(i);
+            }
+        }
+        return upperBoundNanos(BUCKETS - 1);
+    }
+
+    /**
+     * Buckets 0 to 7 hold single microseconds, then each power of two 2^e µs is split into
+     * eight buckets 2^(e-3) µs wide
+     */
+    private static int bucketOf(long nanos) {
+        long micros = Math.max(0, nanos) / 1000;
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundNanos(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return (bucket + 1) * 1000L;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << shift) * 1000;
+    }
+}
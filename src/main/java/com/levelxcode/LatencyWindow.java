@@ -0,0 +1,75 @@
+package com.levelxcode;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latencies of the recent past, kept as a ring of per-interval {@link LatencyHistogram}s.
+ * <p>
+ * Each interval's histogram is replaced when the ring comes back round to it, so percentiles
+ * cover at most the configured window and follow changes in upstream latency within one window.
+ * A measurement racing with the replacement of its interval may be lost.
+ */
+final class LatencyWindow {
+    private final long intervalNanos;
+    private final AtomicReferenceArray<LatencyHistogram> histograms;
+    private final AtomicLongArray epochs;
+
+    /**
+     * Initialize an empty window
+     * @param window Span of the most recent measurements to keep
+     * @param intervals Number of histograms the window is split into
+     */
+    LatencyWindow(Duration window, int intervals) {
+        this.intervalNanos = window.toNanos() / intervals;
+        this.histograms = new AtomicReferenceArray<>(intervals);
+        this.epochs = new AtomicLongArray(intervals);
+        for (int i = 0; i < intervals; i++) {
+            histograms.set(i, new LatencyHistogram());
+            epochs.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * Record one measurement
+     * @param nanos Measured latency
+     * @param nowNanos Current {@link System#nanoTime()}
+     */
+    void record(long nanos, long nowNanos) {
+        long epoch = Math.floorDiv(nowNanos, intervalNanos);
+        int slot = (int) Math.floorMod(epoch, (long) histograms.length());
+        long slotEpoch = epochs.get(slot);
+        if (slotEpoch < epoch && epochs.compareAndSet(slot, slotEpoch, epoch)) {
+            histograms.set(slot, new LatencyHistogram());
+        }
+        histograms.get(slot).record(nanos);
+    }
+
+    /**
+     * Get the latency below which the given share of measurements within the window fall
+     * @param percentile Share between 0 and 1, e.g. 0.95
+     * @param minCount Fewest measurements within the window to report a percentile from
+     * @param nowNanos Current {@link System#nanoTime()}
+     * @return Upper bound of the matching bucket in nanoseconds, -1 if fewer measurements were recorded
+     */
+    long getPercentileNanos(double percentile, long minCount, long nowNanos) {
+        long[] counts = snapshot(nowNanos);
+        long count = 0;
+        for (long bucket : counts) {
+            count += bucket;
+        }
+        return count < minCount ? -1 : LatencyHistogram.percentileNanos(counts, percentile);
+    }
+
+    private long[] snapshot(long nowNanos) {
+        long oldest = Math.floorDiv(nowNanos, intervalNanos) - histograms.length() + 1;
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (int i = 0; i < histograms.length(); i++) {
+            if (epochs.get(i) >= oldest) {
+                histograms.get(i).addCountsTo(counts);
+            }
+        }
+        return counts;
+    }
+}
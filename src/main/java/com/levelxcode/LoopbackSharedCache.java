@@ -0,0 +1,98 @@
+package com.levelxcode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * In-process reference implementation of {@link SharedCache}.
+ * <p>
+ * Several SDK instances in one JVM can share it, which covers tests and single-process
+ * deployments with several SDKs without an external service. A simulated round-trip
+ * latency and an availability switch make it possible to check how the SDK behaves
+ * against a slow or failing shared cache.
+ */
+public class LoopbackSharedCache implements SharedCache {
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private volatile boolean available = true;
+
+    private record Entry(byte[] value, long expiresAt) {
+    }
+
+    /**
+     * Initialize a cache answering immediately
+     */
+    public LoopbackSharedCache() {
+        this(Duration.ZERO);
+    }
+
+    /**
+     * Initialize a cache answering after a simulated round trip
+     * @param latency Delay of every read and write, zero to answer immediately
+     */
+    public LoopbackSharedCache(Duration latency) {
+        if (latency.isNegative()) {
+            throw new IllegalArgumentException("Latency must not be negative: " + latency);
+        }
+        this.executor = latency.isZero() ? Runnable::run
+                : CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, byte[]>> getAll(Collection<String> keys) {
+        return call(() -> {
+            long now = System.currentTimeMillis();
+            Map<String, byte[]> found = new HashMap<>();
+            for (String key : keys) {
+                Entry entry = entries.get(key);
+                if (entry != null && now < entry.expiresAt()) {
+                    found.put(key, entry.value().clone());
+                } else if (entry != null) {
+                    entries.remove(key, entry);
+                }
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> put(String key, byte[] value, Duration ttl) {
+        return call(() -> {
+            entries.put(key, new Entry(value.clone(), System.currentTimeMillis() + ttl.toMillis()));
+            return null;
+        });
+    }
+
+    /**
+     * Make all following calls fail, or succeed again
+     * @param available False to simulate an outage
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    /**
+     * Get number of stored values, including expired ones not read since
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private <T> CompletableFuture<T> call(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (!available) {
+                throw new UncheckedIOException(new IOException("Shared cache unavailable"));
+            }
+            return operation.get();
+        }, executor);
+    }
+}
@@ -0,0 +1,106 @@
+package com.levelxcode;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers cities the API reported as not found, so repeated lookups fail without a request.
+ * <p>
+ * Kept apart from {@link WeatherCache} so bad names never displace weather data. Every name is
+ * remembered for the same time, so insertion order is also expiry order: a queue beside the map
+ * drops expired names from its head and, when still full, the oldest ones.
+ */
+class NegativeCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // Guarded by itself; may hold entries since replaced or removed, which are skipped
+    private final ArrayDeque<Recorded> order = new ArrayDeque<>();
+
+    private record Entry(WeatherSDKException error, long expiresAt) {
+    }
+
+    private record Recorded(String cityName, Entry entry) {
+    }
+
+    /**
+     * Initialize negative cache
+     * @param maxSize Maximum number of names to remember, zero disables the cache
+     * @param ttlMillis How long a name is remembered
+     */
+    NegativeCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Check if names are remembered at all
+     */
+    boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Get the remembered failure for a city
+     * @param cityName Normalized city name
+     * @return New exception equal to the remembered one, or null if the name is not known to be bad
+     */
+    WeatherSDKException get(String cityName) {
+        Entry entry = entries.get(cityName);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt()) {
+            entries.remove(cityName, entry);
+            return null;
+        }
+        return new WeatherSDKException(entry.error().getMessage(), entry.error().getStatusCode());
+    }
+
+    /**
+     * Remember a failure if it says the city does not exist
+     * @param cityName Normalized city name
+     * @param error Failure of the upstream request
+     */
+    void record(String cityName, Throwable error) {
+        if (maxSize == 0 || !(error instanceof WeatherSDKException sdkException)
+                || sdkException.getStatusCode() != 404) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(sdkException, now + ttlMillis);
+        synchronized (order) {
+            entries.put(cityName, entry);
+            order.addLast(new Recorded(cityName, entry));
+            trim(now);
+        }
+    }
+
+    /**
+     * Forget a city, e.g. after it was fetched successfully
+     * @param cityName Normalized city name
+     */
+    void remove(String cityName) {
+        if (maxSize > 0) {
+            entries.remove(cityName);
+        }
+    }
+
+    private void trim(long now) {
+        Recorded oldest;
+        while ((oldest = order.peekFirst()) != null) {
+            Entry current = entries.get(oldest.cityName());
+            if (current == oldest.entry()) {
+                if (now < current.expiresAt() && entries.size() <= maxSize) {
+                    break;
+                }
+                entries.remove(oldest.cityName(), current);
+            }
+            order.pollFirst();
+        }
+        if (order.size() > 2 * maxSize) {
+            // Drop records of names removed out of order, e.g. after a successful fetch
+            order.removeIf(recorded -> entries.get(recorded.cityName()) != recorded.entry());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.levelxcode;
+
+/**
+ * Memory-compact form of a cached WeatherData, used when the cache is configured for
+ * compact storage.
+ * <p>
+ * Numeric fields are held as primitives in a single object, the low-cardinality
+ * condition strings as codes into a shared {@link StringDictionary}, and none of the
+ * serialized forms WeatherData memoizes are kept. The name and the numeric fields are
+ * kept at full width, so an entry is only about 10% smaller than the WeatherData it
+ * packs; most of the saving comes from dropping the memoized JSON. Reading an entry
+ * inflates a new WeatherData, so each hit costs an allocation and a serialization.
+ */
+final class PackedWeather {
+    private final long timestamp;
+    private final long ttlMillis;
+    private final long cityId;
+    private final long datetime;
+    private final long sunrise;
+    private final long sunset;
+    private final double temp;
+    private final double feelsLike;
+    private final double windSpeed;
+    private final double latitude;
+    private final double longitude;
+    private final int visibility;
+    private final int timezone;
+    private final int mainWeatherCode;
+    private final int descriptionCode;
+    private final String cityName;
+    // Only set for strings the full dictionary could not take
+    private final String mainWeather;
+    private final String description;
+
+    private PackedWeather(WeatherData data, StringDictionary dictionary) {
+        this.timestamp = data.getTimestamp();
+        this.ttlMillis = data.getTtlMillis();
+        this.cityId = data.getCityId();
+        this.datetime = data.getDatetime();
+        this.sunrise = data.getSunrise();
+        this.sunset = data.getSunset();
+        this.temp = data.getTemp();
+        this.feelsLike = data.getFeelsLike();
+        this.windSpeed = data.getWindSpeed();
+        this.latitude = data.getLatitude();
+        this.longitude = data.getLongitude();
+        this.visibility = data.getVisibility();
+        this.timezone = data.getTimezone();
+        this.cityName = data.getCityName();
+        this.mainWeatherCode = dictionary.encode(data.getMainWeather());
+        this.descriptionCode = dictionary.encode(data.getDescription());
+        this.mainWeather = mainWeatherCode == StringDictionary.FULL ? data.getMainWeather() : null;
+        this.description = descriptionCode == StringDictionary.FULL ? data.getDescription() : null;
+    }
+
+    /**
+     * Pack weather data
+     * @param data WeatherData to pack
+     * @param dictionary Dictionary for the condition strings
+     * @return Packed copy of the data
+     */
+    static PackedWeather pack(WeatherData data, StringDictionary dictionary) {
+        return new PackedWeather(data, dictionary);
+    }
+
+    /**
+     * Inflate a new WeatherData with the packed values
+     * @param dictionary Dictionary the data was packed with
+     * @return New WeatherData
+     */
+    WeatherData unpack(StringDictionary dictionary) {
+        WeatherData data = new WeatherData();
+        data.setCityId(cityId);
+        data.setDatetime(datetime);
+        data.setSunrise(sunrise);
+        data.setSunset(sunset);
+        data.setTemp(temp);
+        data.setFeelsLike(feelsLike);
+        data.setWindSpeed(windSpeed);
+        data.setLatitude(latitude);
+        data.setLongitude(longitude);
+        data.setVisibility(visibility);
+        data.setTimezone(timezone);
+        data.setCityName(cityName);
+        data.setMainWeather(mainWeatherCode == StringDictionary.FULL ? mainWeather : dictionary.decode(mainWeatherCode));
+        data.setDescription(descriptionCode == StringDictionary.FULL ? description : dictionary.decode(descriptionCode));
+        data.setTimestamp(timestamp);
+        data.setTtlMillis(ttlMillis);
+        return data;
+    }
+
+    long getExpiresAt() {return timestamp + ttlMillis;}
+}
@@ -0,0 +1,254 @@
+package com.levelxcode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting upstream calls, with a lane for lookups and one for background refreshes.
+ * <p>
+ * Permits are handed out as futures, so waiting never blocks a thread. Waiting lookups are
+ * always served before waiting refreshes, and refreshes only take a permit while a reserve of
+ * the bucket is left for lookups. After a 429 the bucket is emptied and paused for the
+ * Retry-After delay, or for an exponentially growing delay if upstream gave none.
+ */
+class RateLimiter {
+    /**
+     * Lanes in order of precedence
+     */
+    enum Priority {
+        ON_DEMAND, BACKGROUND
+    }
+
+    private static final CompletableFuture<Void> GRANTED = CompletableFuture.completedFuture(null);
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 60_000;
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final int backgroundReserve;
+    private final ArrayDeque<CompletableFuture<Void>> onDemand = new ArrayDeque<>();
+    private final ArrayDeque<CompletableFuture<Void>> background = new ArrayDeque<>();
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private double tokens;
+    private long refilledAt;
+    private long pausedUntil;
+    private volatile int backoffExponent;
+    private boolean drainScheduled;
+    private boolean shutdown;
+
+    /**
+     * Initialize a limiter allowing a number of calls per minute
+     * @param callsPerMinute Allowed calls per minute and burst size, zero for no limit
+     * @param scheduler Scheduler granting waiting permits, null for a thread of the limiter's own
+     */
+    RateLimiter(int callsPerMinute, ScheduledExecutorService scheduler) {
+        this(callsPerMinute, TimeUnit.MINUTES.toNanos(1), scheduler);
+    }
+
+    /**
+     * Initialize a limiter allowing a number of calls per period, with a thread of its own
+     * @param permits Allowed calls per period and burst size, zero for no limit
+     * @param periodNanos Period in which the bucket refills completely
+     */
+    RateLimiter(int permits, long periodNanos) {
+        this(permits, periodNanos, null);
+    }
+
+    /**
+     * Initialize a limiter allowing a number of calls per period
+     * @param permits Allowed calls per period and burst size, zero for no limit
+     * @param periodNanos Period in which the bucket refills completely
+     * @param scheduler Scheduler granting waiting permits, null for a thread of the limiter's own
+     */
+    RateLimiter(int permits, long periodNanos, ScheduledExecutorService scheduler) {
+        this.capacity = permits;
+        this.tokensPerNano = (double) permits / periodNanos;
+        this.backgroundReserve = permits / 5;
+        this.tokens = permits;
+        this.refilledAt = System.nanoTime();
+        this.pausedUntil = refilledAt;
+        this.ownsScheduler = permits != 0 && scheduler == null;
+        this.scheduler = !ownsScheduler ? scheduler : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-sdk-rate-limiter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get a permit for one upstream call
+     * @param priority Lane of the caller
+     * @return Future completed when the call may start, or exceptionally with a 429
+     *         WeatherSDKException when the lane already holds a full bucket of waiting calls
+     */
+    CompletableFuture<Void> acquire(Priority priority) {
+        if (capacity == 0) {
+            return GRANTED;
+        }
+        ArrayDeque<CompletableFuture<Void>> lane = priority == Priority.ON_DEMAND ? onDemand : background;
+        synchronized (this) {
+            long now = System.nanoTime();
+            refill(now);
+            dropAbandoned();
+            boolean aheadOfQueue = onDemand.isEmpty() && (priority == Priority.ON_DEMAND || background.isEmpty());
+            if (aheadOfQueue && now - pausedUntil >= 0 && tokens >= required(priority)) {
+                tokens -= 1;
+                return GRANTED;
+            }
+            if (shutdown) {
+                return CompletableFuture.failedFuture(new WeatherSDKException("SDK is shut down"));
+            }
+            if (lane.size() >= capacity) {
+                return CompletableFuture.failedFuture(new WeatherSDKException("Rate limit exceeded", 429));
+            }
+            CompletableFuture<Void> waiting = new CompletableFuture<>();
+            lane.add(waiting);
+            scheduleDrain(now);
+            return waiting;
+        }
+    }
+
+    /**
+     * Adapt to the outcome of an upstream call made with a permit
+     * @param error Failure of the call, or null on success
+     */
+    void onResponse(Throwable error) {
+        if (capacity == 0) {
+            return;
+        }
+        if (!(error instanceof WeatherSDKException sdkException) || sdkException.getStatusCode() != 429) {
+            if (error == null && backoffExponent != 0) {
+                synchronized (this) {
+                    backoffExponent = 0;
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            long delayMillis = sdkException.getRetryAfterMillis();
+            if (delayMillis < 0) {
+                delayMillis = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(backoffExponent, 16));
+                backoffExponent++;
+            }
+            long now = System.nanoTime();
+            long until = now + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            if (until - pausedUntil > 0) {
+                pausedUntil = until;
+            }
+            tokens = 0;
+            refilledAt = pausedUntil;
+        }
+    }
+
+    /**
+     * Stop granting permits; waiting calls fail
+     */
+    void shutdown() {
+        if (capacity == 0) {
+            return;
+        }
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        synchronized (this) {
+            shutdown = true;
+            waiting.addAll(onDemand);
+            waiting.addAll(background);
+            onDemand.clear();
+            background.clear();
+        }
+        WeatherSDKException error = new WeatherSDKException("SDK is shut down");
+        for (CompletableFuture<Void> call : waiting) {
+            call.completeExceptionally(error);
+        }
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private double required(Priority priority) {
+        return priority == Priority.ON_DEMAND ? 1 : 1 + backgroundReserve;
+    }
+
+    /**
+     * Add the tokens accrued since the last refill, never beyond the capacity; nothing accrues while paused
+     */
+    private void refill(long now) {
+        if (now - refilledAt > 0) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+
+    /**
+     * Remove waiting calls whose futures were already completed, e.g. cancelled or timed out by
+     * the caller, so they neither take a permit nor hold a place in their lane
+     */
+    private void dropAbandoned() {
+        onDemand.removeIf(CompletableFuture::isDone);
+        background.removeIf(CompletableFuture::isDone);
+    }
+
+    /**
+     * Grant permits to waiting calls, lookups first, and schedule the next run if calls remain
+     */
+    private void drain() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        synchronized (this) {
+            drainScheduled = false;
+            long now = System.nanoTime();
+            refill(now);
+            dropAbandoned();
+            if (now - pausedUntil >= 0) {
+                while (!onDemand.isEmpty() && tokens >= 1) {
+                    tokens -= 1;
+                    granted.add(onDemand.poll());
+                }
+                while (onDemand.isEmpty() && !background.isEmpty() && tokens >= required(Priority.BACKGROUND)) {
+                    tokens -= 1;
+                    granted.add(background.poll());
+                }
+            }
+            if (!onDemand.isEmpty() || !background.isEmpty()) {
+                scheduleDrain(now);
+            }
+        }
+        // Complete outside the lock, dependent stages start the upstream calls
+        int unused = 0;
+        for (CompletableFuture<Void> waiting : granted) {
+            if (!waiting.complete(null)) {
+                unused++;
+            }
+        }
+        if (unused > 0) {
+            // Abandoned since the lock was released, give their permits back
+            synchronized (this) {
+                tokens = Math.min(capacity, tokens + unused);
+                if (!onDemand.isEmpty() || !background.isEmpty()) {
+                    scheduleDrain(System.nanoTime());
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedule a drain for when the first waiting call can get a permit
+     */
+    private void scheduleDrain(long now) {
+        if (drainScheduled || shutdown) {
+            return;
+        }
+        double missing = (onDemand.isEmpty() ? required(Priority.BACKGROUND) : 1) - tokens;
+        long delay = Math.max(0, pausedUntil - now) + (missing > 0 ? (long) Math.ceil(missing / tokensPerNano) : 0);
+        try {
+            scheduler.schedule(this::drain, delay, TimeUnit.NANOSECONDS);
+            drainScheduled = true;
+        } catch (RuntimeException e) {
+            // Limiter is shut down
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.levelxcode;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Second-level cache shared by several SDK instances, typically the replicas of a service,
+ * so a city fetched by one of them is served to the others without another API call.
+ * <p>
+ * Implementations store opaque values, for example in Redis or Memcached; the SDK encodes
+ * weather data in a compact binary form and namespaces the keys. The SDK consults the
+ * shared cache when its own cache misses, before calling the API, and writes every
+ * fetched city to it. It waits for reads only up to the configured timeout and treats
+ * failed or late reads as misses, so a slow or unavailable shared cache costs latency
+ * but never fails a lookup.
+ */
+public interface SharedCache {
+
+    /**
+     * Read several keys with one round trip
+     * @param keys Keys to read
+     * @return Future with the values found; keys without a value are absent
+     */
+    CompletableFuture<Map<String, byte[]>> getAll(Collection<String> keys);
+
+    /**
+     * Store a value
+     * @param key Key to write
+     * @param value Encoded value
+     * @param ttl How long the value is worth keeping
+     * @return Future completing when the value is stored
+     */
+    CompletableFuture<Void> put(String key, byte[] value, Duration ttl);
+}
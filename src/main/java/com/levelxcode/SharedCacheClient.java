@@ -0,0 +1,147 @@
+package com.levelxcode;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SDK side of a {@link SharedCache}: encodes entries, bounds how long reads may take and
+ * stops using the shared cache for a while after it failed.
+ * <p>
+ * Values are a format version byte followed by the {@link WeatherDataCodec} record, so
+ * replicas running a different encoding read each other's entries as misses instead of
+ * misreading them. A failed or timed-out call is counted and makes the client skip the
+ * shared cache for a short backoff, so an outage does not add the read timeout to every
+ * cache miss.
+ */
+final class SharedCacheClient {
+    static final String KEY_PREFIX = "weather:";
+    private static final byte FORMAT_VERSION = 1;
+    private static final long BACKOFF_MILLIS = 5000;
+
+    private final SharedCache sharedCache;
+    private final long timeoutNanos;
+    private final WeatherSDKMetrics metrics;
+    private volatile long unavailableUntil;
+
+    /**
+     * Initialize a client
+     * @param sharedCache Shared cache, null to disable the client
+     * @param timeout Maximum time to wait for a read
+     * @param metrics Receiver of shared cache hits, misses and errors
+     */
+    SharedCacheClient(SharedCache sharedCache, Duration timeout, WeatherSDKMetrics metrics) {
+        this.sharedCache = sharedCache;
+        this.timeoutNanos = timeout.toNanos();
+        this.metrics = metrics;
+    }
+
+    /**
+     * Check if a shared cache is configured
+     */
+    boolean isEnabled() {
+        return sharedCache != null;
+    }
+
+    /**
+     * Read one city
+     * @param normalizedCityName Cache key of the city
+     * @return Future with the shared data, or null if missing, unreadable or the shared cache failed
+     */
+    CompletableFuture<WeatherData> get(String normalizedCityName) {
+        return getAll(List.of(normalizedCityName)).thenApply(found -> found.get(normalizedCityName));
+    }
+
+    /**
+     * Read several cities with one round trip
+     * @param normalizedCityNames Cache keys of the cities
+     * @return Future with the data found, never failing; empty if the shared cache failed or is backing off
+     */
+    CompletableFuture<Map<String, WeatherData>> getAll(Collection<String> normalizedCityNames) {
+        if (!isUsable() || normalizedCityNames.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        Map<String, String> cities = new HashMap<>();
+        for (String normalizedCityName : normalizedCityNames) {
+            cities.put(KEY_PREFIX + normalizedCityName, normalizedCityName);
+        }
+        CompletableFuture<Map<String, byte[]>> read;
+        try {
+            read = sharedCache.getAll(cities.keySet());
+        } catch (RuntimeException e) {
+            read = CompletableFuture.failedFuture(e);
+        }
+        return read.orTimeout(timeoutNanos, TimeUnit.NANOSECONDS).handle((values, error) -> {
+            if (error != null) {
+                failed();
+                return Map.of();
+            }
+            Map<String, WeatherData> found = new HashMap<>();
+            for (Map.Entry<String, String> city : cities.entrySet()) {
+                WeatherData data = decode(values.get(city.getKey()));
+                if (data != null) {
+                    found.put(city.getValue(), data);
+                }
+            }
+            metrics.recordSharedCacheLookups(found.size(), cities.size() - found.size());
+            return found;
+        });
+    }
+
+    /**
+     * Write a city in the background; failures are only counted
+     * @param normalizedCityName Cache key of the city
+     * @param data Freshly fetched WeatherData with its TTL set
+     */
+    void put(String normalizedCityName, WeatherData data) {
+        long ttlMillis = data.getExpiresAt() - System.currentTimeMillis();
+        if (!isUsable() || ttlMillis <= 0) {
+            return;
+        }
+        ByteBuffer value = ByteBuffer.allocate(1 + WeatherDataCodec.encodedSize(data));
+        value.put(FORMAT_VERSION);
+        WeatherDataCodec.encode(data, value);
+        try {
+            sharedCache.put(KEY_PREFIX + normalizedCityName, value.array(), Duration.ofMillis(ttlMillis))
+                    .orTimeout(timeoutNanos, TimeUnit.NANOSECONDS)
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            failed();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            failed();
+        }
+    }
+
+    private boolean isUsable() {
+        return sharedCache != null && System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    private void failed() {
+        metrics.recordSharedCacheError();
+        unavailableUntil = System.currentTimeMillis() + BACKOFF_MILLIS;
+    }
+
+    /**
+     * Decode a shared value
+     * @param value Value as stored, may be null
+     * @return Decoded data, or null if missing or in another format
+     */
+    private WeatherData decode(byte[] value) {
+        if (value == null || value.length == 0 || value[0] != FORMAT_VERSION) {
+            return null;
+        }
+        try {
+            return WeatherDataCodec.decode(ByteBuffer.wrap(value, 1, value.length - 1));
+        } catch (WeatherSDKException e) {
+            metrics.recordSharedCacheError();
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.levelxcode;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps strings from a small vocabulary, such as weather conditions, to dense int codes
+ * so each distinct string is held once however many entries use it.
+ * <p>
+ * Lookups by code are a plain array read. Codes are never reused; once the dictionary
+ * is full, new strings get {@link #FULL} and must be stored by the caller.
+ */
+final class StringDictionary {
+    /**
+     * Code of null
+     */
+    static final int NULL = -1;
+
+    /**
+     * Code returned for a new string when the dictionary is full
+     */
+    static final int FULL = -2;
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Initialize an empty dictionary
+     * @param capacity Maximum number of distinct strings
+     */
+    StringDictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the code of a string, adding it if new
+     * @param value String to encode, may be null
+     * @return Code of the string, {@link #NULL} for null or {@link #FULL} if it cannot be added
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == capacity) {
+                return FULL;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, Math.min(capacity, current.length * 2));
+                values = current;
+            }
+            current[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Get the string of a code returned by {@link #encode}
+     * @param code Code of a string or {@link #NULL}
+     * @return Encoded string, null for {@link #NULL}
+     */
+    String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Get number of distinct strings held
+     */
+    synchronized int size() {
+        return size;
+    }
+}
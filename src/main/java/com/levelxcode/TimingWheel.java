@@ -0,0 +1,93 @@
+package com.levelxcode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel firing items at their deadlines, with O(1) scheduling.
+ * <p>
+ * Time is cut into ticks, and a deadline lands in the bucket of its tick modulo the
+ * wheel size. Advancing the wheel visits only the buckets of the ticks that passed,
+ * at most one revolution however long it sat idle, and fires the items that are due;
+ * items for a later revolution stay in their bucket. Not thread-safe: callers serialize
+ * access.
+ */
+final class TimingWheel<T> {
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> buckets;
+    private long currentTick;
+    private int size;
+
+    /**
+     * Scheduled item
+     */
+    private record Timeout<T>(T item, long tick) {
+    }
+
+    /**
+     * Initialize an empty wheel
+     * @param tickMillis Resolution of deadlines
+     * @param wheelSize Number of buckets, a power of two
+     * @param nowMillis Current time
+     */
+    TimingWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Tick must be positive and wheel size a power of two: "
+                    + tickMillis + ", " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedule an item; deadlines already passed fire on the next advance
+     * @param item Item to fire
+     * @param deadlineMillis Time at which the item is due, rounded up to the next tick
+     */
+    void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(currentTick, Math.ceilDiv(deadlineMillis, tickMillis));
+        buckets.get((int) (tick & mask)).add(new Timeout<>(item, tick));
+        size++;
+    }
+
+    /**
+     * Fire every item whose deadline has passed
+     * @param nowMillis Current time
+     * @param expired Receiver of due items, which it may schedule again
+     */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        if (targetTick < currentTick) {
+            return;
+        }
+        long lastTick = Math.min(targetTick, currentTick + mask);
+        List<T> due = new ArrayList<>();
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            List<Timeout<T>> bucket = buckets.get((int) (tick & mask));
+            bucket.removeIf(timeout -> {
+                if (timeout.tick() <= targetTick) {
+                    due.add(timeout.item());
+                    return true;
+                }
+                return false;
+            });
+        }
+        size -= due.size();
+        currentTick = targetTick + 1;
+        due.forEach(expired);
+    }
+
+    /**
+     * Get number of scheduled items
+     */
+    int size() {
+        return size;
+    }
+}
@@ -1,29 +1,112 @@
 package com.levelxcode;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Manages caching of weather data with LRU (least recently used) eviction and TTL (time to live).
+ * Manages caching of weather data with approximate LRU eviction and TTL (time to live).
+ * <p>
+ * Reads are lock-free: a hit only marks its entry as recently used. Eviction follows the
+ * CLOCK (second chance) policy over insertion order, so recently read entries survive one
+ * more pass while unused ones are dropped first.
+ * <p>
+ * Entries are removed once they are past their expiry time plus the stale retention.
+ * A timing wheel tracks those deadlines, and it is advanced by {@link #expire()} and
+ * before every eviction, so dead entries give up their slots before live ones are evicted.
+ * <p>
+ * In compact mode entries are held as {@link PackedWeather}, sharing condition strings
+ * through a dictionary, and every read returns a new WeatherData.
  */
 public class WeatherCache {
+    private static final long EXPIRY_TICK_MILLIS = 1000;
+    private static final int EXPIRY_WHEEL_SIZE = 1024;
+
     private final int maxSize;
-    private final LinkedHashMap<String, WeatherData> cache;
+    private final long staleRetentionMillis;
+    private final ConcurrentHashMap<String, Node> cache;
+    private final ConcurrentLinkedQueue<Node> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger clockSize = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final WeatherSDKMetrics metrics;
+    private final StringDictionary dictionary;
+    private final TimingWheel<Expiry> expiryWheel;
+    private final ConcurrentLinkedQueue<Node> unscheduled = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock expiryLock = new ReentrantLock();
+
+    /**
+     * Cache slot holding the current data for a city, as WeatherData or PackedWeather
+     */
+    private static final class Node {
+        final String key;
+        volatile Object value;
+        volatile boolean referenced;
+        volatile boolean removed;
+        // Deadline of the live expiry timer, 0 if none; guarded by expiryLock
+        long scheduledDeadline;
+
+        Node(String key, Object value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Expiry timer of a node; timers superseded by an earlier deadline are ignored when they fire
+     */
+    private record Expiry(Node node, long deadline) {
+    }
 
     /**
      * Initialize cache with maximum size
      * @param maxSize Maximum number of cities to cache
      */
     public WeatherCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * Initialize cache with maximum size, keeping expired entries for a while so they can still be served stale
+     * @param maxSize Maximum number of cities to cache
+     * @param staleRetentionMillis How long past the TTL an expired entry is kept
+     */
+    public WeatherCache(int maxSize, long staleRetentionMillis) {
+        this(maxSize, staleRetentionMillis, new WeatherSDKMetrics(WeatherSDKListener.NONE));
+    }
+
+    /**
+     * Initialize cache reporting evictions and expirations
+     * @param maxSize Maximum number of cities to cache
+     * @param staleRetentionMillis How long past the TTL an expired entry is kept
+     * @param metrics Receiver of eviction and expiration events
+     */
+    WeatherCache(int maxSize, long staleRetentionMillis, WeatherSDKMetrics metrics) {
+        this(maxSize, staleRetentionMillis, metrics, false);
+    }
+
+    /**
+     * Initialize cache reporting evictions and expirations, optionally in compact mode
+     * @param maxSize Maximum number of cities to cache
+     * @param staleRetentionMillis How long past the TTL an expired entry is kept
+     * @param metrics Receiver of eviction and expiration events
+     * @param compact True to store entries packed, false to store the given WeatherData
+     */
+    WeatherCache(int maxSize, long staleRetentionMillis, WeatherSDKMetrics metrics, boolean compact) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        if (staleRetentionMillis < 0) {
+            throw new IllegalArgumentException("Stale retention must not be negative: " + staleRetentionMillis);
+        }
         this.maxSize = maxSize;
-        this.cache = new LinkedHashMap<String, WeatherData>(maxSize, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, WeatherData> eldest) {
-                return size() > maxSize;
-            }
-        };
+        this.staleRetentionMillis = staleRetentionMillis;
+        this.metrics = metrics;
+        this.dictionary = compact ? new StringDictionary(1 << 16) : null;
+        this.cache = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+        this.expiryWheel = new TimingWheel<>(EXPIRY_TICK_MILLIS, EXPIRY_WHEEL_SIZE, System.currentTimeMillis());
     }
 
     /**
@@ -31,13 +114,72 @@ public class WeatherCache {
      * @param cityName City to retrieve data for
      * @return WeatherData or null if invalid/expired
      */
-    public synchronized WeatherData get(String cityName) {
-        WeatherData data = cache.get(cityName);
-        if (data != null && !data.isValid()) {
-            cache.remove(cityName);
+    public WeatherData get(String cityName) {
+        long now = System.currentTimeMillis();
+        Object value = read(cityName, now);
+        return value != null && now < expiresAtOf(value) ? unpack(value) : null;
+    }
+
+    /**
+     * Get cached weather data even if expired, as long as it is within the stale retention
+     * @param cityName City to retrieve data for
+     * @return WeatherData or null if not cached or past retention
+     */
+    public WeatherData getStale(String cityName) {
+        Object value = read(cityName, System.currentTimeMillis());
+        return value == null ? null : unpack(value);
+    }
+
+    /**
+     * Get the value of an entry and mark it as used, dropping it if past retention
+     */
+    private Object read(String cityName, long now) {
+        Node node = cache.get(cityName);
+        if (node == null) {
+            return null;
+        }
+        Object value = node.value;
+        if (now >= expiresAtOf(value) + staleRetentionMillis) {
+            node.removed = true;
+            if (cache.remove(cityName, node)) {
+                metrics.recordExpiration(cityName);
+            }
             return null;
         }
-        return data;
+        // Avoid writing the shared flag on every hit
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        return value;
+    }
+
+    /**
+     * Get cached weather data without checking validity or marking it as used
+     * @param cityName City to retrieve data for
+     * @return WeatherData or null if not cached
+     */
+    public WeatherData peek(String cityName) {
+        Node node = cache.get(cityName);
+        return node == null ? null : unpack(node.value);
+    }
+
+    /**
+     * Check if a city is cached, valid or not, without reading its data
+     * @param cityName City to check
+     * @return True if an entry is held
+     */
+    boolean contains(String cityName) {
+        return cache.containsKey(cityName);
+    }
+
+    /**
+     * Get the expiry time of a cached entry without reading its data
+     * @param cityName City to check
+     * @return Expiry time in epoch milliseconds, or -1 if not cached
+     */
+    long getExpiresAt(String cityName) {
+        Node node = cache.get(cityName);
+        return node == null ? -1 : expiresAtOf(node.value);
     }
 
     /**
@@ -45,14 +187,170 @@ public class WeatherCache {
      * @param cityName City to store data for
      * @param data WeatherData to store
      */
-    public synchronized void put(String cityName, WeatherData data) {
-        cache.put(cityName, data);
+    public void put(String cityName, WeatherData data) {
+        Object value = dictionary == null ? data : PackedWeather.pack(data, dictionary);
+        Node created = new Node(cityName, value);
+        while (true) {
+            Node existing = cache.putIfAbsent(cityName, created);
+            if (existing == null) {
+                break;
+            }
+            existing.value = value;
+            if (!existing.removed) {
+                // The new data may expire before the running timer fires
+                unscheduled.offer(existing);
+                return;
+            }
+            // Raced with expiry or eviction of the old slot, install a fresh one
+            if (cache.replace(cityName, existing, created)) {
+                break;
+            }
+        }
+
+        clock.offer(created);
+        clockSize.incrementAndGet();
+        unscheduled.offer(created);
+        expire(System.currentTimeMillis());
+        if (cache.size() > maxSize || clockSize.get() > 2 * maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove entries past their expiry time plus the stale retention.
+     * Called periodically by the SDK; a call while another runs returns at once.
+     */
+    void expire() {
+        expire(System.currentTimeMillis());
+    }
+
+    private void expire(long now) {
+        if (!expiryLock.tryLock()) {
+            return;
+        }
+        try {
+            Node node;
+            while ((node = unscheduled.poll()) != null) {
+                long deadline = removalDeadline(node);
+                if (node.removed) {
+                    continue;
+                }
+                if (now >= deadline) {
+                    remove(node);
+                } else if (node.scheduledDeadline == 0 || deadline < node.scheduledDeadline) {
+                    schedule(node, deadline);
+                }
+            }
+            expiryWheel.advance(now, this::expireIfDue);
+        } finally {
+            expiryLock.unlock();
+        }
+    }
+
+    private void schedule(Node node, long deadline) {
+        node.scheduledDeadline = deadline;
+        expiryWheel.schedule(new Expiry(node, deadline), deadline);
+    }
+
+    /**
+     * Remove the node of a fired timer, or reschedule it if its data was refreshed since
+     */
+    private void expireIfDue(Expiry expiry) {
+        Node node = expiry.node();
+        if (node.removed || node.scheduledDeadline != expiry.deadline()) {
+            return;
+        }
+        long deadline = removalDeadline(node);
+        if (System.currentTimeMillis() < deadline) {
+            schedule(node, deadline);
+            return;
+        }
+        remove(node);
+    }
+
+    private void remove(Node node) {
+        node.removed = true;
+        if (cache.remove(node.key, node)) {
+            metrics.recordExpiration(node.key);
+        }
+    }
+
+    private long removalDeadline(Node node) {
+        return expiresAtOf(node.value) + staleRetentionMillis;
     }
 
     /**
      * Get list of currently cached cities
      */
-    public synchronized List<String> getCachedCities() {
+    public List<String> getCachedCities() {
         return new ArrayList<>(cache.keySet());
     }
+
+    /**
+     * Get maximum number of cities held by this cache
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Check if entries are stored packed
+     */
+    boolean isCompact() {
+        return dictionary != null;
+    }
+
+    private WeatherData unpack(Object value) {
+        return value instanceof PackedWeather packed ? packed.unpack(dictionary) : (WeatherData) value;
+    }
+
+    private static long expiresAtOf(Object value) {
+        return value instanceof PackedWeather packed ? packed.getExpiresAt() : ((WeatherData) value).getExpiresAt();
+    }
+
+    /**
+     * Drop entries until the cache fits its capacity, giving referenced entries a second chance
+     */
+    private void evict() {
+        evictionLock.lock();
+        try {
+            purgeRemoved();
+            while (cache.size() > maxSize) {
+                Node node = clock.poll();
+                if (node == null) {
+                    return;
+                }
+                if (node.removed) {
+                    clockSize.decrementAndGet();
+                } else if (node.referenced) {
+                    node.referenced = false;
+                    clock.offer(node);
+                } else {
+                    clockSize.decrementAndGet();
+                    node.removed = true;
+                    if (cache.remove(node.key, node)) {
+                        metrics.recordEviction(node.key);
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Unlink nodes already removed from the map (expired entries) from the clock queue
+     */
+    private void purgeRemoved() {
+        if (clockSize.get() <= 2 * maxSize) {
+            return;
+        }
+        clock.removeIf(node -> {
+            if (node.removed) {
+                clockSize.decrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
 }
@@ -0,0 +1,66 @@
+package com.levelxcode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Change of a cached city's weather, published when a refresh returns different data.
+ *
+ * @param city Cache key of the city (trimmed, lower case)
+ * @param previous Data before the refresh
+ * @param current Data after the refresh
+ * @param changedFields Names of the fields that differ, in declaration order of WeatherSnapshot
+ */
+public record WeatherChange(
+        String city,
+        WeatherSnapshot previous,
+        WeatherSnapshot current,
+        List<String> changedFields) {
+
+    /**
+     * Compare the observable fields of two versions of a city's data.
+     * Fetch time, TTL and city ID are bookkeeping and not compared.
+     * @param previous Data before the refresh
+     * @param current Data after the refresh
+     * @return Names of the differing fields, empty if the data is unchanged
+     */
+    static List<String> diff(WeatherData previous, WeatherData current) {
+        List<String> changed = new ArrayList<>(2);
+        if (!Objects.equals(previous.getMainWeather(), current.getMainWeather())) {
+            changed.add("mainWeather");
+        }
+        if (!Objects.equals(previous.getDescription(), current.getDescription())) {
+            changed.add("description");
+        }
+        if (Double.compare(previous.getTemp(), current.getTemp()) != 0) {
+            changed.add("temp");
+        }
+        if (Double.compare(previous.getFeelsLike(), current.getFeelsLike()) != 0) {
+            changed.add("feelsLike");
+        }
+        if (previous.getVisibility() != current.getVisibility()) {
+            changed.add("visibility");
+        }
+        if (Double.compare(previous.getWindSpeed(), current.getWindSpeed()) != 0) {
+            changed.add("windSpeed");
+        }
+        if (previous.getDatetime() != current.getDatetime()) {
+            changed.add("datetime");
+        }
+        if (previous.getSunrise() != current.getSunrise()) {
+            changed.add("sunrise");
+        }
+        if (previous.getSunset() != current.getSunset()) {
+            changed.add("sunset");
+        }
+        if (previous.getTimezone() != current.getTimezone()) {
+            changed.add("timezone");
+        }
+        if (!Objects.equals(previous.getCityName(), current.getCityName())) {
+            changed.add("cityName");
+        }
+        return changed.isEmpty() ? List.of() : Collections.unmodifiableList(changed);
+    }
+}
@@ -1,6 +1,9 @@
 package com.levelxcode;
 
-import org.json.JSONObject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -8,6 +11,11 @@ import java.util.concurrent.TimeUnit;
  */
 
 public class WeatherData {
+    /**
+     * Time after which fetched data is considered outdated, unless the entry has its own TTL
+     */
+    public static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
     private String mainWeather;
     private String description;
     private double temp;
@@ -19,65 +27,151 @@ public class WeatherData {
     private long sunset;
     private int timezone;
     private String cityName;
+    private long cityId;
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
     private long timestamp;
+    private long ttlMillis = TTL_MILLIS;
+
+    // Serialized forms, computed on first use; races only recompute the same value
+    private volatile byte[] prettyJson;
+    private volatile byte[] compactJson;
+    private volatile String prettyJsonString;
+    private volatile WeatherSnapshot snapshot;
 
     /**
-     * Check if data is still valid (not older than 10 minutes)
+     * Check if data is still valid (not older than its TTL, 10 minutes by default)
      */
     public boolean isValid() {
-        return (System.currentTimeMillis() - timestamp) < TimeUnit.MINUTES.toMillis(10);
+        return System.currentTimeMillis() < getExpiresAt();
+    }
+
+    /**
+     * Get the time this data becomes outdated
+     * @return Fetch time plus TTL, epoch milliseconds
+     */
+    public long getExpiresAt() {
+        return timestamp + ttlMillis;
+    }
+
+    /**
+     * Check if the API reported the coordinates of this data
+     */
+    public boolean hasCoordinates() {
+        return !Double.isNaN(latitude) && !Double.isNaN(longitude);
     }
 
     /**
-     * Convert weather data to formatted JSON string
+     * Convert weather data to formatted JSON string.
+     * The result is computed once and reused until a field changes.
      * @return Pretty-printed JSON
      * @throws WeatherSDKException If JSON conversion fails
      */
     public String toJson() throws WeatherSDKException {
-        try {
-            JSONObject json = new JSONObject();
-            JSONObject weather = new JSONObject();
-            weather.put("main", mainWeather);
-            weather.put("description", description);
-
-            JSONObject temperature = new JSONObject();
-            temperature.put("temp", temp);
-            temperature.put("feels_like", feelsLike);
-
-            JSONObject wind = new JSONObject();
-            wind.put("speed", windSpeed);
-
-            JSONObject sys = new JSONObject();
-            sys.put("sunrise", sunrise);
-            sys.put("sunset", sunset);
-
-            json.put("weather", weather);
-            json.put("temperature", temperature);
-            json.put("visibility", visibility);
-            json.put("wind", wind);
-            json.put("datetime", datetime);
-            json.put("sys", sys);
-            json.put("timezone", timezone);
-            json.put("name", cityName);
-
-            return json.toString(2);
-        } catch (Exception e) {
-            throw new WeatherSDKException("Failed to serialize weather data to JSON: " + e.getMessage());
+        String json = prettyJsonString;
+        if (json == null) {
+            json = new String(prettyJson(), StandardCharsets.UTF_8);
+            prettyJsonString = json;
+        }
+        return json;
+    }
+
+    /**
+     * Convert weather data to JSON without indentation
+     * @return Compact JSON
+     * @throws WeatherSDKException If JSON conversion fails
+     */
+    public String toCompactJson() throws WeatherSDKException {
+        return new String(compactJson(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the serialized form as UTF-8 bytes without creating a String
+     * @param pretty Indented if true, compact otherwise
+     * @return Read-only buffer over the cached bytes
+     * @throws WeatherSDKException If JSON conversion fails
+     */
+    public ByteBuffer toJsonBytes(boolean pretty) throws WeatherSDKException {
+        return ByteBuffer.wrap(pretty ? prettyJson() : compactJson()).asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the serialized form as UTF-8 bytes to a stream
+     * @param out Stream to write to
+     * @param pretty Indented if true, compact otherwise
+     * @throws IOException If writing to the stream fails
+     * @throws WeatherSDKException If JSON conversion fails
+     */
+    public void writeJson(OutputStream out, boolean pretty) throws IOException, WeatherSDKException {
+        out.write(pretty ? prettyJson() : compactJson());
+    }
+
+    /**
+     * Check if {@link #toJson()} would return a memoized string without serializing
+     */
+    boolean hasJson() {
+        return prettyJsonString != null;
+    }
+
+    private byte[] prettyJson() throws WeatherSDKException {
+        byte[] json = prettyJson;
+        if (json == null) {
+            json = WeatherJsonWriter.write(this, true);
+            prettyJson = json;
         }
+        return json;
+    }
+
+    private byte[] compactJson() throws WeatherSDKException {
+        byte[] json = compactJson;
+        if (json == null) {
+            json = WeatherJsonWriter.write(this, false);
+            compactJson = json;
+        }
+        return json;
+    }
+
+    /**
+     * Get an immutable copy of this data.
+     * The copy is created once and reused until a field changes.
+     * @return Snapshot of the current values
+     */
+    public WeatherSnapshot toSnapshot() {
+        WeatherSnapshot current = snapshot;
+        if (current == null) {
+            current = new WeatherSnapshot(mainWeather, description, temp, feelsLike, visibility, windSpeed,
+                    datetime, sunrise, sunset, timezone, cityName, cityId, timestamp, getExpiresAt());
+            snapshot = current;
+        }
+        return current;
+    }
+
+    /**
+     * Drop serialized forms and the snapshot after a field change
+     */
+    private void invalidateJson() {
+        prettyJson = null;
+        prettyJsonString = null;
+        compactJson = null;
+        snapshot = null;
     }
 
-    public void setMainWeather(String mainWeather) { this.mainWeather = mainWeather; }
-    public void setDescription(String description) { this.description = description; }
-    public void setTemp(double temp) { this.temp = temp; }
-    public void setFeelsLike(double feelsLike) { this.feelsLike = feelsLike; }
-    public void setVisibility(int visibility) { this.visibility = visibility; }
-    public void setWindSpeed(double windSpeed) { this.windSpeed = windSpeed; }
-    public void setDatetime(long datetime) { this.datetime = datetime; }
-    public void setSunrise(long sunrise) { this.sunrise = sunrise; }
-    public void setSunset(long sunset) { this.sunset = sunset; }
-    public void setTimezone(int timezone) { this.timezone = timezone; }
-    public void setCityName(String cityName) { this.cityName = cityName; }
-    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+    public void setMainWeather(String mainWeather) { this.mainWeather = mainWeather; invalidateJson(); }
+    public void setDescription(String description) { this.description = description; invalidateJson(); }
+    public void setTemp(double temp) { this.temp = temp; invalidateJson(); }
+    public void setFeelsLike(double feelsLike) { this.feelsLike = feelsLike; invalidateJson(); }
+    public void setVisibility(int visibility) { this.visibility = visibility; invalidateJson(); }
+    public void setWindSpeed(double windSpeed) { this.windSpeed = windSpeed; invalidateJson(); }
+    public void setDatetime(long datetime) { this.datetime = datetime; invalidateJson(); }
+    public void setSunrise(long sunrise) { this.sunrise = sunrise; invalidateJson(); }
+    public void setSunset(long sunset) { this.sunset = sunset; invalidateJson(); }
+    public void setTimezone(int timezone) { this.timezone = timezone; invalidateJson(); }
+    public void setCityName(String cityName) { this.cityName = cityName; invalidateJson(); }
+    public void setCityId(long cityId) { this.cityId = cityId; snapshot = null; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; snapshot = null; }
+    public void setTtlMillis(long ttlMillis) { this.ttlMillis = ttlMillis; snapshot = null; }
 
     public String getMainWeather() {return mainWeather;}
     public String getDescription() {return description;}
@@ -90,5 +184,9 @@ public class WeatherData {
     public long getSunset() {return sunset;}
     public int getTimezone() {return timezone;}
     public String getCityName() {return cityName;}
+    public long getCityId() {return cityId;}
+    public double getLatitude() {return latitude;}
+    public double getLongitude() {return longitude;}
     public long getTimestamp() {return timestamp;}
+    public long getTtlMillis() {return ttlMillis;}
 }
@@ -0,0 +1,174 @@
+package com.levelxcode;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary encoding of WeatherData.
+ * <p>
+ * Layout (big-endian): cityId, timestamp, ttlMillis, datetime, sunrise, sunset as longs;
+ * temp, feelsLike, windSpeed, latitude, longitude as doubles; visibility, timezone as ints; then
+ * mainWeather, description and cityName as length-prefixed UTF-8 strings, where
+ * a length of -1 marks null.
+ */
+final class WeatherDataCodec {
+    private static final int FIXED_SIZE = 6 * Long.BYTES + 5 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int MAX_STRING_BYTES = Short.MAX_VALUE;
+
+    private WeatherDataCodec() {
+    }
+
+    /**
+     * Get number of bytes needed to encode data
+     * @param data WeatherData to encode
+     * @return Encoded size in bytes
+     */
+    static int encodedSize(WeatherData data) {
+        return FIXED_SIZE + stringSize(data.getMainWeather()) + stringSize(data.getDescription())
+                + stringSize(data.getCityName());
+    }
+
+    /**
+     * Write data at the buffer's position
+     * @param data WeatherData to encode
+     * @param out Buffer with at least {@link #encodedSize} bytes remaining
+     */
+    static void encode(WeatherData data, ByteBuffer out) {
+        out.putLong(data.getCityId());
+        out.putLong(data.getTimestamp());
+        out.putLong(data.getTtlMillis());
+        out.putLong(data.getDatetime());
+        out.putLong(data.getSunrise());
+        out.putLong(data.getSunset());
+        out.putDouble(data.getTemp());
+        out.putDouble(data.getFeelsLike());
+        out.putDouble(data.getWindSpeed());
+        out.putDouble(data.getLatitude());
+        out.putDouble(data.getLongitude());
+        out.putInt(data.getVisibility());
+        out.putInt(data.getTimezone());
+        putString(out, data.getMainWeather());
+        putString(out, data.getDescription());
+        putString(out, data.getCityName());
+    }
+
+    /**
+     * Encode data into a new array
+     * @param data WeatherData to encode
+     * @return Encoded bytes
+     */
+    static byte[] encode(WeatherData data) {
+        ByteBuffer out = ByteBuffer.allocate(encodedSize(data));
+        encode(data, out);
+        return out.array();
+    }
+
+    /**
+     * Read data at the buffer's position
+     * @param in Buffer positioned at an encoded record
+     * @return Decoded WeatherData
+     * @throws WeatherSDKException If the record is truncated or malformed
+     */
+    static WeatherData decode(ByteBuffer in) throws WeatherSDKException {
+        try {
+            WeatherData data = new WeatherData();
+            data.setCityId(in.getLong());
+            long timestamp = in.getLong();
+            long ttlMillis = in.getLong();
+            data.setDatetime(in.getLong());
+            data.setSunrise(in.getLong());
+            data.setSunset(in.getLong());
+            data.setTemp(in.getDouble());
+            data.setFeelsLike(in.getDouble());
+            data.setWindSpeed(in.getDouble());
+            data.setLatitude(in.getDouble());
+            data.setLongitude(in.getDouble());
+            data.setVisibility(in.getInt());
+            data.setTimezone(in.getInt());
+            data.setMainWeather(getString(in));
+            data.setDescription(getString(in));
+            data.setCityName(getString(in));
+            data.setTimestamp(timestamp);
+            data.setTtlMillis(ttlMillis);
+            return data;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new WeatherSDKException("Malformed weather record: " + e);
+        }
+    }
+
+    /**
+     * Decode data from an array
+     * @param bytes Encoded bytes
+     * @return Decoded WeatherData
+     * @throws WeatherSDKException If the record is truncated or malformed
+     */
+    static WeatherData decode(byte[] bytes) throws WeatherSDKException {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Get number of bytes needed to encode a string
+     */
+    static int stringSize(String value) {
+        return Short.BYTES + (value == null ? 0 : utf8Length(value));
+    }
+
+    /**
+     * Write a length-prefixed UTF-8 string, -1 length for null
+     */
+    static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String too long to encode: " + bytes.length + " bytes");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    /**
+     * Read a string written by {@link #putString}
+     */
+    static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
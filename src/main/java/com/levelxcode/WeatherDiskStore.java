@@ -0,0 +1,203 @@
+package com.levelxcode;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persists cache contents to a memory-mapped file so a restarted SDK starts warm.
+ * <p>
+ * The file holds a header (magic, version, entry count) followed by one record per
+ * city: its cache key and the data encoded with {@link WeatherDataCodec}. Writes are
+ * coalesced and done on a background thread, each one replacing the whole file
+ * atomically, so callers never wait on disk.
+ */
+class WeatherDiskStore {
+    private static final int MAGIC = 0x57534443; // "WSDC"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private final Path file;
+    private final WeatherCache cache;
+    private final long staleRetentionMillis;
+    private final long flushDelayMillis;
+    private final WeatherSDKMetrics metrics;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Initialize a store backed by a file
+     * @param file File to load from and write to; created on first write
+     * @param cache Cache whose entries are written
+     * @param staleRetentionMillis Entries expired longer ago than this are neither written nor loaded
+     * @param flushDelayMillis Delay after a change before the file is rewritten
+     */
+    WeatherDiskStore(Path file, WeatherCache cache, long staleRetentionMillis, long flushDelayMillis) {
+        this(file, cache, staleRetentionMillis, flushDelayMillis, new WeatherSDKMetrics(WeatherSDKListener.NONE));
+    }
+
+    /**
+     * Initialize a store backed by a file, reporting failed background writes
+     * @param file File to load from and write to; created on first write
+     * @param cache Cache whose entries are written
+     * @param staleRetentionMillis Entries expired longer ago than this are neither written nor loaded
+     * @param flushDelayMillis Delay after a change before the file is rewritten
+     * @param metrics Receiver of write failures
+     */
+    WeatherDiskStore(Path file, WeatherCache cache, long staleRetentionMillis, long flushDelayMillis,
+                     WeatherSDKMetrics metrics) {
+        this.file = file;
+        this.cache = cache;
+        this.staleRetentionMillis = staleRetentionMillis;
+        this.flushDelayMillis = flushDelayMillis;
+        this.metrics = metrics;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-sdk-disk-store");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Read entries that are still young enough from the file
+     * @return Entries by cache key in file order, empty if the file is missing
+     * @throws WeatherSDKException If the file cannot be read or is corrupt
+     */
+    Map<String, WeatherData> load() throws WeatherSDKException {
+        Map<String, WeatherData> entries = new LinkedHashMap<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new WeatherSDKException("Not a weather cache file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new WeatherSDKException("Unsupported weather cache file version: " + version);
+            }
+            int count = buffer.getInt();
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                String key = WeatherDataCodec.getString(buffer);
+                WeatherData data = WeatherDataCodec.decode(buffer);
+                if (key != null && now < data.getExpiresAt() + staleRetentionMillis) {
+                    entries.put(key, data);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return entries;
+        } catch (IOException | BufferUnderflowException e) {
+            throw new WeatherSDKException("Failed to read weather cache file: " + e);
+        }
+        return entries;
+    }
+
+    /**
+     * Schedule a rewrite of the file; changes within the flush delay share one write
+     */
+    void markDirty() {
+        dirty.set(true);
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                writer.schedule(this::flushQuietly, flushDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // Store is closed
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Write the current cache contents, replacing the file atomically; one write at a time
+     * @throws IOException If the file cannot be written, the changes stay pending
+     */
+    synchronized void flush() throws IOException {
+        flushScheduled.set(false);
+        dirty.set(false);
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    private void write() throws IOException {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>();
+        List<WeatherData> values = new ArrayList<>();
+        int size = HEADER_SIZE;
+        for (String key : cache.getCachedCities()) {
+            WeatherData data = cache.peek(key);
+            if (data != null && now < data.getExpiresAt() + staleRetentionMillis) {
+                keys.add(key);
+                values.add(data);
+                size += WeatherDataCodec.stringSize(key) + WeatherDataCodec.encodedSize(data);
+            }
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            writeTo(buffer, keys, values);
+            buffer.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stop the background writer, letting a write in progress finish, and write pending changes
+     */
+    void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (dirty.get()) {
+            flushQuietly();
+        }
+    }
+
+    private static void writeTo(ByteBuffer buffer, List<String> keys, List<WeatherData> values) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            WeatherDataCodec.putString(buffer, keys.get(i));
+            WeatherDataCodec.encode(values.get(i), buffer);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException e) {
+            // The cache keeps working without the file, the next change retries
+            metrics.recordPersistenceFailure(
+                    new WeatherSDKException("Failed to write weather cache file " + file + ": " + e));
+        }
+    }
+}
@@ -0,0 +1,865 @@
+package com.levelxcode;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pull parser for OpenWeatherMap responses.
+ * <p>
+ * Reads the UTF-8 response body directly and extracts only the fields stored in
+ * WeatherData. Everything else is skipped without creating objects, and field
+ * values are decoded straight from the bytes.
+ * <p>
+ * Values of the fields read are converted like the org.json based parser this replaces
+ * did: numbers may be sent as strings or bare words such as NaN, and messages for
+ * missing fields, values of the wrong type and duplicate keys are the same. Syntax
+ * errors are reported with a byte offset only, and duplicate keys are only detected
+ * in objects whose fields are read.
+ */
+final class WeatherJsonParser {
+    private static final byte[] WEATHER = ascii("weather");
+    private static final byte[] MAIN = ascii("main");
+    private static final byte[] DESCRIPTION = ascii("description");
+    private static final byte[] TEMP = ascii("temp");
+    private static final byte[] FEELS_LIKE = ascii("feels_like");
+    private static final byte[] VISIBILITY = ascii("visibility");
+    private static final byte[] WIND = ascii("wind");
+    private static final byte[] SPEED = ascii("speed");
+    private static final byte[] DT = ascii("dt");
+    private static final byte[] SYS = ascii("sys");
+    private static final byte[] SUNRISE = ascii("sunrise");
+    private static final byte[] SUNSET = ascii("sunset");
+    private static final byte[] TIMEZONE = ascii("timezone");
+    private static final byte[] NAME = ascii("name");
+    private static final byte[] ID = ascii("id");
+    private static final byte[] LIST = ascii("list");
+    private static final byte[] COORD = ascii("coord");
+    private static final byte[] LAT = ascii("lat");
+    private static final byte[] LON = ascii("lon");
+
+    // Presence bits of the fields read from a city object, in validation order
+    private static final int HAS_WEATHER = 1;
+    private static final int HAS_WEATHER_ENTRY = 1 << 1;
+    private static final int HAS_MAIN = 1 << 2;
+    private static final int HAS_WIND = 1 << 3;
+    private static final int HAS_SYS = 1 << 4;
+    private static final int HAS_WEATHER_MAIN = 1 << 5;
+    private static final int HAS_DESCRIPTION = 1 << 6;
+    private static final int HAS_TEMP = 1 << 7;
+    private static final int HAS_FEELS_LIKE = 1 << 8;
+    private static final int HAS_VISIBILITY = 1 << 9;
+    private static final int HAS_SPEED = 1 << 10;
+    private static final int HAS_DT = 1 << 11;
+    private static final int HAS_SUNRISE = 1 << 12;
+    private static final int HAS_SUNSET = 1 << 13;
+    private static final int HAS_TIMEZONE = 1 << 14;
+    private static final int HAS_NAME = 1 << 15;
+    private static final int HAS_SYS_TIMEZONE = 1 << 16;
+
+    // Kinds of unquoted values, classified like org.json does
+    private static final int TEXT = 0;
+    private static final int NUMBER = 1;
+    private static final int BOOLEAN = 2;
+    private static final int NULL = 3;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final byte[] buf;
+    private final int end;
+    private int pos;
+    private int keyStart;
+    private int keyEnd;
+    // Start and end of every member name read in the objects currently open
+    private int[] keyRanges = new int[64];
+    private int keyCount;
+    private int numberEnd;
+    private boolean numberIsInteger;
+    private int sysTimezone;
+
+    private WeatherJsonParser(byte[] buf) {
+        this.buf = buf;
+        this.end = buf.length;
+    }
+
+    /**
+     * Parse a response of the current weather endpoint
+     * @param body UTF-8 response body
+     * @return Parsed WeatherData without fetch timestamp
+     * @throws WeatherSDKException If the body is malformed or lacks a required field
+     */
+    static WeatherData parseWeather(byte[] body) throws WeatherSDKException {
+        return new WeatherJsonParser(body).readCity();
+    }
+
+    /**
+     * Parse a response of the group endpoint
+     * @param body UTF-8 response body
+     * @return Parsed WeatherData for every listed city, without fetch timestamps
+     * @throws WeatherSDKException If the body is malformed or a city lacks a required field
+     */
+    static List<WeatherData> parseGroup(byte[] body) throws WeatherSDKException {
+        WeatherJsonParser parser = new WeatherJsonParser(body);
+        List<WeatherData> result = null;
+        if (parser.beginObject()) {
+            do {
+                parser.readKey(0);
+                if (parser.keyIs(LIST)) {
+                    result = parser.readCityList();
+                } else {
+                    parser.skipValue();
+                }
+            } while (parser.nextMember());
+        }
+        if (result == null) {
+            throw notFound("list");
+        }
+        return result;
+    }
+
+    private List<WeatherData> readCityList() throws WeatherSDKException {
+        if (peek() != '[') {
+            throw wrongType("list", "JSONArray");
+        }
+        List<WeatherData> result = new ArrayList<>();
+        if (beginArray()) {
+            do {
+                if (peek() != '{') {
+                    throw notA("JSONArray[" + result.size() + "]", "JSONObject", describeValue());
+                }
+                result.add(readCity());
+            } while (nextElement());
+        }
+        return result;
+    }
+
+    private WeatherData readCity() throws WeatherSDKException {
+        WeatherData data = new WeatherData();
+        int found = 0;
+        if (peek() != '{') {
+            throw new WeatherSDKException("A JSONObject text must begin with '{' at " + pos);
+        }
+        int firstKey = keyCount;
+        if (beginObject()) {
+            do {
+                readKey(firstKey);
+                if (keyIs(WEATHER)) {
+                    found |= readWeatherArray(data);
+                } else if (keyIs(MAIN)) {
+                    found |= readMain(data);
+                } else if (keyIs(WIND)) {
+                    found |= readWind(data);
+                } else if (keyIs(SYS)) {
+                    found |= readSys(data);
+                } else if (keyIs(VISIBILITY)) {
+                    data.setVisibility((int) readLong("visibility", "int"));
+                    found |= HAS_VISIBILITY;
+                } else if (keyIs(DT)) {
+                    data.setDatetime(readLong("dt", "long"));
+                    found |= HAS_DT;
+                } else if (keyIs(TIMEZONE)) {
+                    data.setTimezone((int) readLong("timezone", "int"));
+                    found |= HAS_TIMEZONE;
+                } else if (keyIs(NAME)) {
+                    data.setCityName(readString("name"));
+                    found |= HAS_NAME;
+                } else if (keyIs(ID)) {
+                    data.setCityId(readOptionalLong());
+                } else if (keyIs(COORD)) {
+                    readCoord(data);
+                } else {
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        keyCount = firstKey;
+        // Group responses carry the timezone inside "sys"; a top-level value takes precedence
+        if ((found & HAS_TIMEZONE) == 0 && (found & HAS_SYS_TIMEZONE) != 0) {
+            data.setTimezone(sysTimezone);
+            found |= HAS_TIMEZONE;
+        }
+        checkFound(found);
+        return data;
+    }
+
+    private int readWeatherArray(WeatherData data) throws WeatherSDKException {
+        if (peek() != '[') {
+            throw wrongType("weather", "JSONArray");
+        }
+        if (!beginArray()) {
+            return HAS_WEATHER;
+        }
+        if (peek() != '{') {
+            throw notA("JSONArray[0]", "JSONObject", describeValue());
+        }
+        int found = HAS_WEATHER | HAS_WEATHER_ENTRY;
+        int firstKey = keyCount;
+        if (beginObject()) {
+            do {
+                readKey(firstKey);
+                if (keyIs(MAIN)) {
+                    data.setMainWeather(readString("main"));
+                    found |= HAS_WEATHER_MAIN;
+                } else if (keyIs(DESCRIPTION)) {
+                    data.setDescription(readString("description"));
+                    found |= HAS_DESCRIPTION;
+                } else {
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        keyCount = firstKey;
+        // Only the first condition is used
+        while (nextElement()) {
+            skipValue();
+        }
+        return found;
+    }
+
+    private int readMain(WeatherData data) throws WeatherSDKException {
+        if (peek() != '{') {
+            throw wrongType("main", "JSONObject");
+        }
+        int found = HAS_MAIN;
+        int firstKey = keyCount;
+        if (beginObject()) {
+            do {
+                readKey(firstKey);
+                if (keyIs(TEMP)) {
+                    data.setTemp(readDouble("temp"));
+                    found |= HAS_TEMP;
+                } else if (keyIs(FEELS_LIKE)) {
+                    data.setFeelsLike(readDouble("feels_like"));
+                    found |= HAS_FEELS_LIKE;
+                } else {
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        keyCount = firstKey;
+        return found;
+    }
+
+    private int readWind(WeatherData data) throws WeatherSDKException {
+        if (peek() != '{') {
+            throw wrongType("wind", "JSONObject");
+        }
+        int found = HAS_WIND;
+        int firstKey = keyCount;
+        if (beginObject()) {
+            do {
+                readKey(firstKey);
+                if (keyIs(SPEED)) {
+                    data.setWindSpeed(readDouble("speed"));
+                    found |= HAS_SPEED;
+                } else {
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        keyCount = firstKey;
+        return found;
+    }
+
+    /**
+     * Read the optional coordinates; a malformed value leaves them unknown
+     */
+    private void readCoord(WeatherData data) throws WeatherSDKException {
+        if (peek() != '{') {
+            skipValue();
+            return;
+        }
+        int firstKey = keyCount;
+        if (beginObject()) {
+            do {
+                readKey(firstKey);
+                if (keyIs(LAT)) {
+                    data.setLatitude(readDouble("lat"));
+                } else if (keyIs(LON)) {
+                    data.setLongitude(readDouble("lon"));
+                } else {
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        keyCount = firstKey;
+    }
+
+    private int readSys(WeatherData data) throws WeatherSDKException {
+        if (peek() != '{') {
+            throw wrongType("sys", "JSONObject");
+        }
+        int found = HAS_SYS;
+        int firstKey = keyCount;
+        if (beginObject()) {
+            do {
+                readKey(firstKey);
+                if (keyIs(SUNRISE)) {
+                    data.setSunrise(readLong("sunrise", "long"));
+                    found |= HAS_SUNRISE;
+                } else if (keyIs(SUNSET)) {
+                    data.setSunset(readLong("sunset", "long"));
+                    found |= HAS_SUNSET;
+                } else if (keyIs(TIMEZONE)) {
+                    sysTimezone = (int) readLong("timezone", "int");
+                    found |= HAS_SYS_TIMEZONE;
+                } else {
+                    skipValue();
+                }
+            } while (nextMember());
+        }
+        keyCount = firstKey;
+        return found;
+    }
+
+    /**
+     * Report the first missing field in the order the org.json parser accessed them
+     */
+    private static void checkFound(int found) throws WeatherSDKException {
+        if ((found & HAS_WEATHER) == 0) throw notFound("weather");
+        if ((found & HAS_WEATHER_ENTRY) == 0) throw new WeatherSDKException("No weather data found");
+        if ((found & HAS_MAIN) == 0) throw notFound("main");
+        if ((found & HAS_WIND) == 0) throw notFound("wind");
+        if ((found & HAS_SYS) == 0) throw notFound("sys");
+        if ((found & HAS_WEATHER_MAIN) == 0) throw notFound("main");
+        if ((found & HAS_DESCRIPTION) == 0) throw notFound("description");
+        if ((found & HAS_TEMP) == 0) throw notFound("temp");
+        if ((found & HAS_FEELS_LIKE) == 0) throw notFound("feels_like");
+        if ((found & HAS_VISIBILITY) == 0) throw notFound("visibility");
+        if ((found & HAS_SPEED) == 0) throw notFound("speed");
+        if ((found & HAS_DT) == 0) throw notFound("dt");
+        if ((found & HAS_SUNRISE) == 0) throw notFound("sunrise");
+        if ((found & HAS_SUNSET) == 0) throw notFound("sunset");
+        if ((found & HAS_TIMEZONE) == 0) throw notFound("timezone");
+        if ((found & HAS_NAME) == 0) throw notFound("name");
+    }
+
+    private static WeatherSDKException notFound(String key) {
+        return new WeatherSDKException("JSONObject[\"" + key + "\"] not found.");
+    }
+
+    /**
+     * Report that the value at the current position is not of the expected type
+     */
+    private WeatherSDKException wrongType(String key, String type) {
+        return notA("JSONObject[\"" + key + "\"]", type, describeValue());
+    }
+
+    private static WeatherSDKException notA(String subject, String type, String value) {
+        return new WeatherSDKException(subject + " is not a " + type + (value.isEmpty() ? "" : " " + value) + ".");
+    }
+
+    /**
+     * Describe the value at the current position by the class org.json would have read it as
+     * @return Description such as "(class java.lang.String : abc)", or empty if the value is malformed
+     */
+    private String describeValue() {
+        try {
+            byte c = peek();
+            if (c == '{') {
+                return "(class org.json.JSONObject)";
+            }
+            if (c == '[') {
+                return "(class org.json.JSONArray)";
+            }
+            if (c == '"') {
+                pos++;
+                return "(class java.lang.String : " + readStringBody() + ")";
+            }
+            int start = pos;
+            int kind = scanToken();
+            String text = new String(buf, start, pos - start, StandardCharsets.UTF_8);
+            return switch (kind) {
+                case BOOLEAN -> "(class java.lang.Boolean : " + text + ")";
+                case NULL -> "(class org.json.JSONObject$Null : null)";
+                case NUMBER -> describeNumber(text);
+                default -> "(class java.lang.String : " + text + ")";
+            };
+        } catch (WeatherSDKException e) {
+            return "";
+        }
+    }
+
+    private static String describeNumber(String text) {
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            BigInteger value = new BigInteger(text);
+            if (value.signum() == 0 && text.startsWith("-")) {
+                return "(class java.lang.Double : -0.0)";
+            }
+            String type = value.bitLength() < 32 ? "java.lang.Integer"
+                    : value.bitLength() < 64 ? "java.lang.Long" : "java.math.BigInteger";
+            return "(class " + type + " : " + value + ")";
+        }
+        return "(class java.math.BigDecimal : " + new BigDecimal(text) + ")";
+    }
+
+    // ---- Structure ----
+
+    /**
+     * Consume '{' and report whether the object has members
+     */
+    private boolean beginObject() throws WeatherSDKException {
+        expect('{');
+        if (peek() == '}') {
+            pos++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Consume the separator after a member value and report whether another member follows
+     */
+    private boolean nextMember() throws WeatherSDKException {
+        byte c = next();
+        if (c == ',') {
+            return true;
+        }
+        if (c != '}') {
+            throw unexpected(c, "',' or '}'");
+        }
+        return false;
+    }
+
+    /**
+     * Consume '[' and report whether the array has elements
+     */
+    private boolean beginArray() throws WeatherSDKException {
+        expect('[');
+        if (peek() == ']') {
+            pos++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Consume the separator after an element and report whether another element follows
+     */
+    private boolean nextElement() throws WeatherSDKException {
+        byte c = next();
+        if (c == ',') {
+            return true;
+        }
+        if (c != ']') {
+            throw unexpected(c, "',' or ']'");
+        }
+        return false;
+    }
+
+    /**
+     * Read a member name and the following ':' without decoding the name
+     * @param firstKey Index in keyRanges of the first member name of the current object
+     * @throws WeatherSDKException If the object already has a member of that name
+     */
+    private void readKey(int firstKey) throws WeatherSDKException {
+        expect('"');
+        keyStart = pos;
+        skipStringBody();
+        keyEnd = pos - 1;
+        expect(':');
+        int length = keyEnd - keyStart;
+        for (int i = firstKey; i < keyCount; i++) {
+            int start = keyRanges[2 * i];
+            int stop = keyRanges[2 * i + 1];
+            if (stop - start == length && Arrays.equals(buf, start, stop, buf, keyStart, keyEnd)) {
+                throw new WeatherSDKException("Duplicate key \""
+                        + new String(buf, keyStart, length, StandardCharsets.UTF_8) + "\" at " + pos);
+            }
+        }
+        if (2 * keyCount + 2 > keyRanges.length) {
+            keyRanges = Arrays.copyOf(keyRanges, 2 * keyRanges.length);
+        }
+        keyRanges[2 * keyCount] = keyStart;
+        keyRanges[2 * keyCount + 1] = keyEnd;
+        keyCount++;
+    }
+
+    private boolean keyIs(byte[] key) {
+        return keyEnd - keyStart == key.length && Arrays.equals(buf, keyStart, keyEnd, key, 0, key.length);
+    }
+
+    private void skipValue() throws WeatherSDKException {
+        byte c = peek();
+        switch (c) {
+            case '"' -> {
+                pos++;
+                skipStringBody();
+            }
+            case '{', '[' -> skipContainer();
+            default -> scanToken();
+        }
+    }
+
+    private void skipContainer() throws WeatherSDKException {
+        int depth = 0;
+        do {
+            byte c = next();
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            } else if (c == '"') {
+                skipStringBody();
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Advance past the closing quote of a string whose opening quote was consumed
+     */
+    private void skipStringBody() throws WeatherSDKException {
+        while (pos < end) {
+            byte c = buf[pos++];
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                pos++;
+            }
+        }
+        throw endOfInput();
+    }
+
+    // ---- Values ----
+
+    private String readString(String key) throws WeatherSDKException {
+        byte c = peek();
+        if (c == '"') {
+            pos++;
+            return readStringBody();
+        }
+        int start = pos;
+        if (c != '{' && c != '[' && scanToken() == TEXT) {
+            return new String(buf, start, pos - start, StandardCharsets.UTF_8);
+        }
+        pos = start;
+        throw wrongType(key, "string");
+    }
+
+    /**
+     * Read the rest of a string whose opening quote was consumed
+     */
+    private String readStringBody() throws WeatherSDKException {
+        int start = pos;
+        boolean escaped = false;
+        while (true) {
+            if (pos >= end) {
+                throw endOfInput();
+            }
+            byte c = buf[pos++];
+            if (c == '"') {
+                break;
+            }
+            if (c == '\\') {
+                escaped = true;
+                pos++;
+            }
+        }
+        int stop = pos - 1;
+        return escaped ? unescape(start, stop) : new String(buf, start, stop - start, StandardCharsets.UTF_8);
+    }
+
+    private String unescape(int start, int stop) throws WeatherSDKException {
+        StringBuilder sb = new StringBuilder(stop - start);
+        int run = start;
+        int i = start;
+        while (i < stop) {
+            if (buf[i] != '\\') {
+                i++;
+                continue;
+            }
+            sb.append(new String(buf, run, i - run, StandardCharsets.UTF_8));
+            byte e = buf[i + 1];
+            switch (e) {
+                case '"', '\\', '/' -> sb.append((char) e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (i + 6 > stop) {
+                        throw new WeatherSDKException("Illegal escape at " + i);
+                    }
+                    sb.append((char) Integer.parseInt(new String(buf, i + 2, 4, StandardCharsets.ISO_8859_1), 16));
+                    i += 4;
+                }
+                default -> throw new WeatherSDKException("Illegal escape at " + i);
+            }
+            i += 2;
+            run = i;
+        }
+        sb.append(new String(buf, run, stop - run, StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    /**
+     * Read a number like JSONObject.getDouble: strings and bare words are parsed as well
+     */
+    private double readDouble(String key) throws WeatherSDKException {
+        byte c = peek();
+        if (c == '"') {
+            pos++;
+            return parseDouble(key, readStringBody());
+        }
+        int start = pos;
+        int kind = c == '{' || c == '[' ? -1 : scanToken();
+        if (kind == NUMBER) {
+            double value = fastDouble(start, numberEnd);
+            return Double.isNaN(value) ? parseDouble(key, token(start)) : value;
+        }
+        if (kind == TEXT) {
+            return parseDouble(key, token(start));
+        }
+        pos = start;
+        throw wrongType(key, "double");
+    }
+
+    /**
+     * Read a number like JSONObject.getLong or getInt: decimals are truncated,
+     * strings must hold an integer of the type
+     * @param type "long" or "int"
+     */
+    private long readLong(String key, String type) throws WeatherSDKException {
+        byte c = peek();
+        if (c == '"') {
+            pos++;
+            return parseInteger(key, type, readStringBody());
+        }
+        int start = pos;
+        int kind = c == '{' || c == '[' ? -1 : scanToken();
+        if (kind == NUMBER) {
+            int length = numberEnd - start;
+            if (numberIsInteger && length <= 18) {
+                boolean negative = buf[start] == '-';
+                long value = 0;
+                for (int i = negative ? start + 1 : start; i < numberEnd; i++) {
+                    value = value * 10 + (buf[i] - '0');
+                }
+                return negative ? -value : value;
+            }
+            // Wrap and truncate like Number.longValue() did
+            return numberIsInteger ? new BigInteger(token(start)).longValue() : new BigDecimal(token(start)).longValue();
+        }
+        if (kind == TEXT) {
+            return parseInteger(key, type, token(start));
+        }
+        pos = start;
+        throw wrongType(key, type);
+    }
+
+    /**
+     * Read the optional city ID like JSONObject.optLong: a value that is not a number reads as 0
+     */
+    private long readOptionalLong() throws WeatherSDKException {
+        int start = pos;
+        try {
+            return readLong("id", "long");
+        } catch (WeatherSDKException e) {
+            pos = start;
+            skipValue();
+            return 0;
+        }
+    }
+
+    private static double parseDouble(String key, String text) throws WeatherSDKException {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw notA("JSONObject[\"" + key + "\"]", "double", "(class java.lang.String : " + text + ")");
+        }
+    }
+
+    private static long parseInteger(String key, String type, String text) throws WeatherSDKException {
+        try {
+            return type.equals("int") ? Integer.parseInt(text) : Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw notA("JSONObject[\"" + key + "\"]", type, "(class java.lang.String : " + text + ")");
+        }
+    }
+
+    /**
+     * Find the extent of an unquoted value at the current position, ending where org.json ends one
+     * @return Kind of the value; for numbers, numberEnd and numberIsInteger are set
+     * @throws WeatherSDKException If there is no value
+     */
+    private int scanToken() throws WeatherSDKException {
+        byte first = peek();
+        int start = pos;
+        while (pos < end) {
+            int c = buf[pos] & 0xff;
+            if (c <= ' ' || c == ',' || c == ':' || c == ']' || c == '}' || c == '/' || c == '\\'
+                    || c == '"' || c == '[' || c == '{' || c == ';' || c == '=' || c == '#') {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw unexpected(first, "a value");
+        }
+        if (isNumber(start, pos)) {
+            numberEnd = pos;
+            return NUMBER;
+        }
+        String text = token(start);
+        return switch (text) {
+            case "true", "false" -> BOOLEAN;
+            case "null" -> NULL;
+            default -> TEXT;
+        };
+    }
+
+    /**
+     * Check a token against the JSON number grammar, noting whether it is an integer
+     */
+    private boolean isNumber(int start, int stop) {
+        int i = start;
+        if (i < stop && buf[i] == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < stop && buf[i] >= '0' && buf[i] <= '9') {
+            i++;
+        }
+        if (i == digits || buf[digits] == '0' && i - digits > 1) {
+            return false;
+        }
+        numberIsInteger = i == stop;
+        if (i < stop && buf[i] == '.') {
+            int fraction = ++i;
+            while (i < stop && buf[i] >= '0' && buf[i] <= '9') {
+                i++;
+            }
+            if (i == fraction) {
+                return false;
+            }
+        }
+        if (i < stop && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            if (i < stop && (buf[i] == '-' || buf[i] == '+')) {
+                i++;
+            }
+            int exponent = i;
+            while (i < stop && buf[i] >= '0' && buf[i] <= '9') {
+                i++;
+            }
+            if (i == exponent) {
+                return false;
+            }
+        }
+        return i == stop;
+    }
+
+    private String token(int start) {
+        return new String(buf, start, pos - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Convert a decimal number exactly when mantissa and exponent are small enough
+     * for a single correctly rounded multiplication or division
+     * @return The value, or NaN if the slow path is needed
+     */
+    private double fastDouble(int start, int stop) {
+        int i = start;
+        boolean negative = buf[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < stop; i++) {
+            byte c = buf[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa != 0 || c != '0') {
+                    if (++digits > 15) {
+                        return Double.NaN;
+                    }
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) {
+                    exponent--;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (i < stop) {
+            // Exponent part
+            i++;
+            boolean negativeExponent = false;
+            if (i < stop && (buf[i] == '-' || buf[i] == '+')) {
+                negativeExponent = buf[i] == '-';
+                i++;
+            }
+            int value = 0;
+            for (; i < stop; i++) {
+                if (buf[i] < '0' || buf[i] > '9' || value > 1000) {
+                    return Double.NaN;
+                }
+                value = value * 10 + (buf[i] - '0');
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return Double.NaN;
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    // ---- Tokens ----
+
+    private byte peek() throws WeatherSDKException {
+        skipWhitespace();
+        if (pos >= end) {
+            throw endOfInput();
+        }
+        return buf[pos];
+    }
+
+    private byte next() throws WeatherSDKException {
+        byte c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char expected) throws WeatherSDKException {
+        byte c = next();
+        if (c != expected) {
+            throw unexpected(c, "'" + expected + "'");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte c = buf[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private WeatherSDKException unexpected(byte c, String expected) {
+        return new WeatherSDKException("Expected " + expected + " at " + (pos - 1) + " but found '" + (char) c + "'");
+    }
+
+    private WeatherSDKException endOfInput() {
+        return new WeatherSDKException("Unexpected end of JSON at " + pos);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,177 @@
+package com.levelxcode;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serializes WeatherData to the SDK's JSON format.
+ * <p>
+ * Writes fields in a fixed order with the number and string formatting of
+ * org.json, either pretty-printed with two-space indentation or compact.
+ * Null strings are left out and single-member objects are kept on one line,
+ * as org.json did.
+ */
+final class WeatherJsonWriter {
+    private final StringBuilder sb = new StringBuilder(320);
+    private final boolean pretty;
+    private int depth;
+    private boolean first;
+    private boolean inline;
+
+    private WeatherJsonWriter(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    /**
+     * Serialize weather data
+     * @param data WeatherData to write
+     * @param pretty Indent with two spaces per level if true, compact otherwise
+     * @return UTF-8 encoded JSON
+     * @throws WeatherSDKException If a number is NaN or infinite
+     */
+    static byte[] write(WeatherData data, boolean pretty) throws WeatherSDKException {
+        WeatherJsonWriter writer = new WeatherJsonWriter(pretty);
+        writer.beginObject(data.getCityName() == null ? 7 : 8);
+
+        writer.key("weather");
+        writer.beginObject((data.getMainWeather() == null ? 0 : 1) + (data.getDescription() == null ? 0 : 1));
+        writer.stringField("main", data.getMainWeather());
+        writer.stringField("description", data.getDescription());
+        writer.endObject();
+
+        writer.key("temperature");
+        writer.beginObject(2);
+        writer.doubleField("temp", data.getTemp());
+        writer.doubleField("feels_like", data.getFeelsLike());
+        writer.endObject();
+
+        writer.longField("visibility", data.getVisibility());
+
+        writer.key("wind");
+        writer.beginObject(1);
+        writer.doubleField("speed", data.getWindSpeed());
+        writer.endObject();
+
+        writer.longField("datetime", data.getDatetime());
+
+        writer.key("sys");
+        writer.beginObject(2);
+        writer.longField("sunrise", data.getSunrise());
+        writer.longField("sunset", data.getSunset());
+        writer.endObject();
+
+        writer.longField("timezone", data.getTimezone());
+        writer.stringField("name", data.getCityName());
+
+        writer.endObject();
+        return writer.sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open an object; members are only written on separate lines when there is more than one
+     * @param members Number of members that will be written
+     */
+    private void beginObject(int members) {
+        sb.append('{');
+        depth++;
+        first = true;
+        inline = members == 1;
+    }
+
+    private void endObject() {
+        depth--;
+        if (!first && !inline) {
+            newline();
+        }
+        sb.append('}');
+        first = false;
+        inline = false;
+    }
+
+    private void key(String name) {
+        if (!first) {
+            sb.append(',');
+        }
+        first = false;
+        if (!inline) {
+            newline();
+        }
+        quote(name);
+        sb.append(pretty ? ": " : ":");
+    }
+
+    private void stringField(String name, String value) {
+        if (value != null) {
+            key(name);
+            quote(value);
+        }
+    }
+
+    private void longField(String name, long value) {
+        key(name);
+        sb.append(value);
+    }
+
+    private void doubleField(String name, double value) throws WeatherSDKException {
+        if (!Double.isFinite(value)) {
+            throw new WeatherSDKException("JSON does not allow non-finite numbers.");
+        }
+        key(name);
+        // Same as org.json: shortest representation, trailing zeros and dot removed
+        String number = Double.toString(value);
+        if (number.indexOf('.') > 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+            int end = number.length();
+            while (number.charAt(end - 1) == '0') {
+                end--;
+            }
+            if (number.charAt(end - 1) == '.') {
+                end--;
+            }
+            sb.append(number, 0, end);
+        } else {
+            sb.append(number);
+        }
+    }
+
+    private void newline() {
+        if (pretty) {
+            sb.append('\n');
+            for (int i = 0; i < depth; i++) {
+                sb.append("  ");
+            }
+        }
+    }
+
+    /**
+     * Append a string literal with the escaping rules of org.json
+     */
+    private void quote(String value) {
+        sb.append('"');
+        char previous = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\', '"' -> sb.append('\\').append(c);
+                case '/' -> {
+                    if (previous == '<') {
+                        sb.append('\\');
+                    }
+                    sb.append(c);
+                }
+                case '\b' -> sb.append("\\b");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\f' -> sb.append("\\f");
+                case '\r' -> sb.append("\\r");
+                default -> {
+                    if (c < 0x20 || (c >= 0x80 && c < 0xa0) || (c >= 0x2000 && c < 0x2100)) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+            previous = c;
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,53 @@
+package com.levelxcode;
+
+/**
+ * Outcome of a single city lookup in a batch: either weather JSON or the error that prevented it.
+ */
+public class WeatherResult {
+    private final String json;
+    private final WeatherSDKException error;
+
+    private WeatherResult(String json, WeatherSDKException error) {
+        this.json = json;
+        this.error = error;
+    }
+
+    /**
+     * Create a successful result
+     * @param json JSON string with weather data
+     */
+    public static WeatherResult success(String json) {
+        return new WeatherResult(json, null);
+    }
+
+    /**
+     * Create a failed result
+     * @param error Error raised for this city
+     */
+    public static WeatherResult failure(WeatherSDKException error) {
+        return new WeatherResult(null, error);
+    }
+
+    /**
+     * Check if the lookup succeeded
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * Get weather data of a successful lookup
+     * @return JSON string or null if the lookup failed
+     */
+    public String getJson() {
+        return json;
+    }
+
+    /**
+     * Get error of a failed lookup
+     * @return WeatherSDKException or null if the lookup succeeded
+     */
+    public WeatherSDKException getError() {
+        return error;
+    }
+}
@@ -1,20 +1,75 @@
 package com.levelxcode;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * The main SDK class for accessing weather data from OpenWeatherMap API
  */
 public class WeatherSDK {
+    /**
+     * Number of cities cached when no size is given
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10;
+
+    /**
+     * Number of parallel upstream requests per batch when no limit is given
+     */
+    public static final int DEFAULT_BATCH_CONCURRENCY = 16;
+
+    private static final long MIN_HEDGE_SAMPLES = 20;
+    // Hedge budget in millionths of a hedge; unused budget is kept for at most HEDGE_BURST hedges
+    private static final long HEDGE_TOKEN = 1_000_000;
+    private static final long HEDGE_BURST = 10;
+    private static final long BATCH_STALL_TIMEOUT_MILLIS = 2 * ApiClient.REQUEST_TIMEOUT.toMillis() + 60_000;
+
     private final String apiKey;
     private final Mode mode;
+    private final WeatherSDKConfig config;
     public final WeatherCache cache;
     private final ApiClient apiClient;
-    private ScheduledExecutorService scheduler;
+    private final WeatherDiskStore diskStore;
+    private final WeatherSDKMetrics metrics;
+    private final RateLimiter rateLimiter;
+    private final NegativeCache negativeCache;
+    private final CircuitBreaker circuitBreaker;
+    private final GeoIndex geoIndex;
+    private final ChangePublisher changes;
+    private final SharedCacheClient sharedCache;
+    private final AtomicLong hedgeBudget = new AtomicLong();
+    private final CacheScope scope;
+    private final WeatherSDKRuntime runtime;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentHashMap<String, CacheScope.Fetch> inFlight;
+    private final LongAdder coalescedRequests = new LongAdder();
+    private final ConcurrentHashMap<String, Long> cityIds;
+    private ScheduledFuture<?> pollingTask;
+    private volatile CompletableFuture<Void> refreshCycle = CompletableFuture.completedFuture(null);
+    private volatile long refreshCycleStartNanos;
 
     /**
      * Operation modes for the SDK:
@@ -31,41 +86,197 @@ public class WeatherSDK {
      * @param mode Operation mode (ON_DEMAND/POLLING)
      */
     public WeatherSDK(String apiKey, Mode mode) {
+        this(apiKey, mode, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Initialize the SDK with API key, operation mode and cache capacity
+     * @param apiKey OpenWeatherMap API key
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param cacheSize Maximum number of cities to cache
+     */
+    public WeatherSDK(String apiKey, Mode mode, int cacheSize) {
+        this(apiKey, mode, new WeatherSDKConfig().withCacheSize(cacheSize));
+    }
+
+    /**
+     * Initialize the SDK with API key, operation mode and tuning options
+     * @param apiKey OpenWeatherMap API key
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param config Tuning options
+     */
+    public WeatherSDK(String apiKey, Mode mode, WeatherSDKConfig config) {
+        this(apiKey, mode, config, new WeatherSDKMetrics(config.getListener()));
+    }
+
+    private WeatherSDK(String apiKey, Mode mode, WeatherSDKConfig config, WeatherSDKMetrics metrics) {
+        this(apiKey, mode, config, new ApiClient(apiKey, config.getApiClient(), metrics), metrics);
+    }
+
+    /**
+     * Initialize the SDK with a preconfigured API client
+     * @param apiKey OpenWeatherMap API key
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param apiClient Client used for upstream requests
+     */
+    WeatherSDK(String apiKey, Mode mode, ApiClient apiClient) {
+        this(apiKey, mode, new WeatherSDKConfig(), apiClient);
+    }
+
+    /**
+     * Initialize the SDK with tuning options and a preconfigured API client
+     * @param apiKey OpenWeatherMap API key
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param config Tuning options
+     * @param apiClient Client used for upstream requests
+     */
+    WeatherSDK(String apiKey, Mode mode, WeatherSDKConfig config, ApiClient apiClient) {
+        this(apiKey, mode, config, apiClient, new WeatherSDKMetrics(config.getListener()));
+    }
+
+    private WeatherSDK(String apiKey, Mode mode, WeatherSDKConfig config, ApiClient apiClient,
+                       WeatherSDKMetrics metrics) {
+        this(apiKey, mode, config, apiClient, metrics, null);
+    }
+
+    /**
+     * Initialize the SDK on a runtime shared with other SDKs
+     * @param apiKey OpenWeatherMap API key
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param config Tuning options; cache options are the runtime's if it shares data
+     * @param apiClient Client used for upstream requests
+     * @param metrics Counters of this SDK
+     * @param runtime Runtime providing the scheduler and possibly the cache, null for own ones
+     */
+    WeatherSDK(String apiKey, Mode mode, WeatherSDKConfig config, ApiClient apiClient,
+               WeatherSDKMetrics metrics, WeatherSDKRuntime runtime) {
+        CacheScope sharedScope = runtime == null ? null : runtime.getSharedScope();
+        WeatherSDKConfig cacheConfig = sharedScope == null ? config : sharedScope.config;
+        if (config.getRefreshAhead().toMillis() * 2 >= cacheConfig.getTtl().toMillis()) {
+            throw new IllegalArgumentException("Refresh-ahead margin must be below half the TTL: "
+                    + config.getRefreshAhead() + ", " + cacheConfig.getTtl());
+        }
         this.apiKey = apiKey;
         this.mode = mode;
-        this.cache = new WeatherCache(10);
-        this.apiClient = new ApiClient(apiKey);
+        this.config = config;
+        this.metrics = metrics;
+        this.rateLimiter = new RateLimiter(config.getRateLimit(), runtime == null ? null : runtime.getScheduler());
+        this.circuitBreaker = new CircuitBreaker(config.getCircuitBreaker(), metrics);
+        this.apiClient = apiClient;
+        this.runtime = runtime;
+        this.scope = sharedScope == null ? new CacheScope(config, metrics) : sharedScope;
+        this.cache = scope.cache;
+        this.diskStore = scope.diskStore;
+        this.negativeCache = scope.negativeCache;
+        this.geoIndex = scope.geoIndex;
+        this.changes = scope.changes;
+        this.sharedCache = scope.sharedCache;
+        this.inFlight = scope.inFlight;
+        this.cityIds = scope.cityIds;
 
+        this.scheduler = runtime != null ? runtime.getScheduler() : Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-sdk-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sharedScope == null) {
+            scope.start(scheduler);
+        }
         if (mode == Mode.POLLING) {
             startPolling();
         }
     }
 
     /**
-     * Start background polling thread for automatic updates
+     * Start background polling for automatic updates.
+     * The maintenance thread checks the cache several times per refresh-ahead margin and
+     * starts refreshing the entries that are about to expire, without waiting for the fetches.
+     * A new cycle starts once the previous one finished, or was given one refresh-ahead margin;
+     * cities still in flight from an abandoned cycle are not fetched twice.
      */
     private void startPolling() {
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        // Schedule updates every 10 minutes
-        scheduler.scheduleAtFixedRate(this::refreshAllCachedCities, 0, 10, TimeUnit.MINUTES);
+        long tickMillis = Math.max(1000, config.getRefreshAhead().toMillis() / 4);
+        long maxCycleNanos = config.getRefreshAhead().toNanos();
+        scope.addPoller(this);
+        pollingTask = scheduler.scheduleWithFixedDelay(() -> {
+            if (!scope.isRefreshOwner(this)
+                    || !refreshCycle.isDone() && System.nanoTime() - refreshCycleStartNanos < maxCycleNanos) {
+                return;
+            }
+            try {
+                refreshCycleStartNanos = System.nanoTime();
+                refreshCycle = refreshDueCities();
+            } catch (RuntimeException e) {
+                // Keep the schedule alive, the next tick retries
+                metrics.recordRefreshCycleFailure(
+                        new WeatherSDKException("Failed to refresh cached cities: " + e.getMessage()));
+            }
+        }, 0, tickMillis, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Refresh weather data for all cached cities
+     * Refresh cached cities whose refresh point has passed.
+     * An entry is due between two and one refresh-ahead margins before expiry, at a point
+     * derived from its city and fetch time, so entries fetched together are spread out.
+     * Due cities are fetched with group requests where their ID is known, with at most
+     * the configured number of requests in flight.
+     * @return Future completing when every due city was refreshed or failed
      */
-    private void refreshAllCachedCities() {
-        List<String> cities;
-        synchronized (cache) {
-            cities = new ArrayList<>(cache.getCachedCities());
-        }
-        for (String city : cities) {
-            try {
-                WeatherData data = apiClient.fetchWeatherData(city);
-                cache.put(city, data);
-            } catch (WeatherSDKException e) {
-                System.err.println("Failed to refresh city " + city + ": " + e.getMessage());
+    CompletableFuture<Void> refreshDueCities() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        long margin = config.getRefreshAhead().toMillis();
+        Map<String, String> due = new LinkedHashMap<>();
+        for (String city : cache.getCachedCities()) {
+            long expiresAt = cache.getExpiresAt(city);
+            if (expiresAt < 0 || inFlight.containsKey(city)) {
+                continue;
             }
+            long jitter = Math.floorMod(31L * city.hashCode() + expiresAt, margin);
+            long refreshAt = expiresAt - margin - jitter;
+            if (now >= refreshAt) {
+                due.put(city, city);
+            }
+        }
+        if (due.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        Map<String, WeatherResult> results = new ConcurrentHashMap<>();
+        return fetchAll(due, results, RateLimiter.Priority.BACKGROUND, config.getRefreshParallelism()).thenRun(() -> {
+            results.forEach((city, result) -> {
+                if (!result.isSuccess()) {
+                    metrics.recordRefreshFailure(city, result.getError());
+                }
+            });
+            metrics.recordRefreshCycle(due.size(), System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * Put fetched data into the cache and remember the city ID for group requests
+     * @param normalizedCityName Cache key of the city
+     * @param data Fresh WeatherData
+     */
+    private void store(String normalizedCityName, WeatherData data) {
+        data.setTtlMillis(scope.ttlFor(data));
+        scope.store(normalizedCityName, data);
+        sharedCache.put(normalizedCityName, data);
+    }
+
+    /**
+     * Take data read from the shared cache into the local cache if it is newer than the local entry
+     * @param normalizedCityName Cache key of the city
+     * @param sharedData Data read from the shared cache, may be null
+     * @return The data if it was taken, otherwise null
+     */
+    private WeatherData adoptShared(String normalizedCityName, WeatherData sharedData) {
+        if (sharedData == null || !sharedData.isValid()
+                || sharedData.getExpiresAt() <= cache.getExpiresAt(normalizedCityName)) {
+            return null;
+        }
+        scope.store(normalizedCityName, sharedData);
+        return sharedData;
     }
 
     /**
@@ -75,30 +286,1186 @@ public class WeatherSDK {
      * @throws WeatherSDKException If any error occurs during data retrieval
      */
     public String getWeather(String cityName) throws WeatherSDKException {
-        if (cityName == null || cityName.trim().isEmpty()) {
-            throw new WeatherSDKException("City name cannot be null or empty");
+        return serialize(lookup(cityName));
+    }
+
+    /**
+     * Get weather data for a specific city within a time budget.
+     * The remaining budget caps the HTTP request timeout; when it runs out the lookup fails
+     * as a network error, so stale-if-error applies.
+     * @param cityName Name of the city to query
+     * @param timeout Time allowed for the whole lookup
+     * @return JSON string with weather data
+     * @throws WeatherSDKException If any error occurs during data retrieval or the budget runs out
+     */
+    public String getWeather(String cityName, Duration timeout) throws WeatherSDKException {
+        return serialize(await(lookupAsync(cityName, Deadline.after(timeout))));
+    }
+
+    /**
+     * Get weather data for a specific city as typed values
+     * @param cityName Name of the city to query
+     * @return Immutable snapshot of the cached data
+     * @throws WeatherSDKException If any error occurs during data retrieval
+     */
+    public WeatherSnapshot getWeatherSnapshot(String cityName) throws WeatherSDKException {
+        return lookup(cityName).toSnapshot();
+    }
+
+    /**
+     * Get weather data for a specific city without blocking the calling thread.
+     * Cache hits complete immediately on the calling thread; misses are fetched
+     * with a non-blocking HTTP request.
+     * @param cityName Name of the city to query
+     * @return Future with JSON string, completed exceptionally with WeatherSDKException on failure
+     */
+    public CompletableFuture<String> getWeatherAsync(String cityName) {
+        return getWeatherAsync(lookupAsync(cityName, Deadline.NONE));
+    }
+
+    /**
+     * Get weather data for a specific city within a time budget without blocking the calling thread
+     * @param cityName Name of the city to query
+     * @param timeout Time allowed for the whole lookup, also capping the HTTP request timeout
+     * @return Future with JSON string, completed exceptionally with WeatherSDKException on failure
+     */
+    public CompletableFuture<String> getWeatherAsync(String cityName, Duration timeout) {
+        return getWeatherAsync(lookupAsync(cityName, Deadline.after(timeout)));
+    }
+
+    private CompletableFuture<String> getWeatherAsync(CompletableFuture<WeatherData> lookup) {
+        return lookup.thenApply(data -> {
+            try {
+                return serialize(data);
+            } catch (WeatherSDKException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Get weather data for a specific city as typed values without blocking the calling thread
+     * @param cityName Name of the city to query
+     * @return Future with immutable snapshot, completed exceptionally with WeatherSDKException on failure
+     */
+    public CompletableFuture<WeatherSnapshot> getWeatherSnapshotAsync(String cityName) {
+        return lookupAsync(cityName, Deadline.NONE).thenApply(WeatherData::toSnapshot);
+    }
+
+    /**
+     * Get weather data for a position. A cached place within the configured coordinate
+     * radius is served from memory; otherwise the API resolves the nearest place and the
+     * result is cached under that place's name, serving later lookups by name as well.
+     * @param latitude Latitude in degrees, -90 to 90
+     * @param longitude Longitude in degrees, -180 to 180
+     * @return JSON string with weather data
+     * @throws WeatherSDKException If the coordinates are out of range or data retrieval fails
+     */
+    public String getWeather(double latitude, double longitude) throws WeatherSDKException {
+        return serialize(await(lookupAsync(latitude, longitude)));
+    }
+
+    /**
+     * Get weather data for a position as typed values
+     * @param latitude Latitude in degrees, -90 to 90
+     * @param longitude Longitude in degrees, -180 to 180
+     * @return Immutable snapshot of the cached data
+     * @throws WeatherSDKException If the coordinates are out of range or data retrieval fails
+     */
+    public WeatherSnapshot getWeatherSnapshot(double latitude, double longitude) throws WeatherSDKException {
+        return await(lookupAsync(latitude, longitude)).toSnapshot();
+    }
+
+    /**
+     * Get weather data for a position without blocking the calling thread
+     * @param latitude Latitude in degrees, -90 to 90
+     * @param longitude Longitude in degrees, -180 to 180
+     * @return Future with JSON string, completed exceptionally with WeatherSDKException on failure
+     */
+    public CompletableFuture<String> getWeatherAsync(double latitude, double longitude) {
+        return getWeatherAsync(lookupAsync(latitude, longitude));
+    }
+
+    /**
+     * Resolve a position from the nearest cached place within the radius, or upstream
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @return Future with cached or freshly fetched WeatherData
+     */
+    private CompletableFuture<WeatherData> lookupAsync(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            return CompletableFuture.failedFuture(
+                    new WeatherSDKException("Coordinates out of range: " + latitude + ", " + longitude));
+        }
+        String nearest = geoIndex.nearest(latitude, longitude, cache::contains);
+        if (nearest != null) {
+            WeatherData cachedData = cache.get(nearest);
+            if (cachedData != null) {
+                metrics.recordHit(nearest);
+                return CompletableFuture.completedFuture(cachedData);
+            }
+            metrics.recordMiss(nearest);
+            WeatherData staleData = serveStaleWhileRevalidate(nearest, nearest);
+            if (staleData != null) {
+                return CompletableFuture.completedFuture(staleData);
+            }
+        } else {
+            metrics.recordMiss(coordinateKey(latitude, longitude));
+        }
+
+        return fetchCoordinatesAsync(latitude, longitude, RateLimiter.Priority.ON_DEMAND).handle((data, error) -> {
+            if (error == null) {
+                return data;
+            }
+            Throwable cause = unwrap(error);
+            WeatherData fallback = nearest != null && cause instanceof WeatherSDKException sdkException
+                    ? serveStaleOnError(nearest, sdkException) : null;
+            if (fallback == null) {
+                throw new CompletionException(cause);
+            }
+            return fallback;
+        });
+    }
+
+    /**
+     * Get the in-flight key of a position, rounded to about 10 meters
+     */
+    private static String coordinateKey(double latitude, double longitude) {
+        return String.format(Locale.ROOT, "@%.4f,%.4f", latitude, longitude);
+    }
+
+    /**
+     * Read the position back from a cache key made by {@link #coordinateKey}
+     * @param key Cache key
+     * @return Latitude and longitude, or null if the key names a city
+     */
+    private static double[] coordinatesOf(String key) {
+        int comma = key.indexOf(',');
+        if (!key.startsWith("@") || comma < 0) {
+            return null;
+        }
+        try {
+            return new double[]{Double.parseDouble(key.substring(1, comma)), Double.parseDouble(key.substring(comma + 1))};
+        } catch (NumberFormatException e) {
+            return null;
         }
+    }
 
-        String normalizedCityName = cityName.trim().toLowerCase();
+    /**
+     * Fetch a cached key again the way it was first fetched: by position or by city name
+     * @param normalizedCityName Cache key
+     * @param cityName City name as passed to the API
+     * @param priority Rate limiter lane of the request
+     * @param readShared True to look in the shared cache before calling the API by name
+     * @return Future with fresh WeatherData
+     */
+    private CompletableFuture<WeatherData> refetchAsync(String normalizedCityName, String cityName,
+                                                        RateLimiter.Priority priority, boolean readShared) {
+        double[] position = coordinatesOf(normalizedCityName);
+        if (position != null) {
+            return fetchCoordinatesAsync(position[0], position[1], priority);
+        }
+        return fetchCoalescedAsync(normalizedCityName, cityName, priority, Deadline.NONE, readShared);
+    }
+
+    /**
+     * Get a publisher of the changes of one city. An event is emitted whenever a refresh of the
+     * cached city returns data that differs from the cached version; refreshes returning the same
+     * data emit nothing. In POLLING mode cached cities are refreshed automatically, so look the
+     * city up once to have it cached and watched.
+     * <p>
+     * Subscribers receive events as they request them. Events a subscriber has not requested are
+     * buffered up to the configured size and then dropped for that subscriber, see
+     * {@link WeatherSDKMetrics#getDroppedChanges()}; refreshes never wait for subscribers.
+     * @param cityName Name of the city to watch
+     * @return Publisher of the city's changes, completing its subscribers on shutdown
+     * @throws WeatherSDKException If the city name is null or blank
+     */
+    public Flow.Publisher<WeatherChange> getChangePublisher(String cityName) throws WeatherSDKException {
+        return changes.forCity(normalize(cityName));
+    }
+
+    /**
+     * Get a publisher of the changes of every cached city, see {@link #getChangePublisher(String)}
+     * @return Publisher of all changes, completing its subscribers on shutdown
+     */
+    public Flow.Publisher<WeatherChange> getChangePublisher() {
+        return changes.forAllCities();
+    }
+
+    /**
+     * Resolve a city from the cache or upstream
+     * @param cityName Name of the city to query
+     * @return Cached or freshly fetched WeatherData
+     * @throws WeatherSDKException If any error occurs during data retrieval
+     */
+    private WeatherData lookup(String cityName) throws WeatherSDKException {
+        if (config.getHedgePercentile() > 0) {
+            // Hedging needs non-blocking requests
+            return await(lookupAsync(cityName, Deadline.NONE));
+        }
+        String normalizedCityName = normalize(cityName);
         WeatherData cachedData = cache.get(normalizedCityName);
 
         // Return cached data if still valid
-        if (cachedData != null && cachedData.isValid()) {
-            return cachedData.toJson();
+        if (cachedData != null) {
+            metrics.recordHit(normalizedCityName);
+            return cachedData;
+        }
+        metrics.recordMiss(normalizedCityName);
+        WeatherSDKException knownMissing = knownMissing(normalizedCityName);
+        if (knownMissing != null) {
+            throw knownMissing;
+        }
+
+        WeatherData staleData = serveStaleWhileRevalidate(normalizedCityName, cityName);
+        if (staleData != null) {
+            return staleData;
+        }
+
+        // Fetch fresh data (shared with concurrent callers) and update cache
+        try {
+            return fetchCoalesced(normalizedCityName, cityName);
+        } catch (WeatherSDKException e) {
+            staleData = serveStaleOnError(normalizedCityName, e);
+            if (staleData == null) {
+                throw e;
+            }
+            return staleData;
+        }
+    }
+
+    /**
+     * Resolve a city from the cache or upstream without blocking; cache hits complete immediately
+     * @param cityName Name of the city to query
+     * @param deadline Time by which the lookup must finish
+     * @return Future with cached or freshly fetched WeatherData
+     */
+    private CompletableFuture<WeatherData> lookupAsync(String cityName, Deadline deadline) {
+        String normalizedCityName;
+        try {
+            normalizedCityName = normalize(cityName);
+        } catch (WeatherSDKException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        WeatherData cachedData = cache.get(normalizedCityName);
+        if (cachedData != null) {
+            metrics.recordHit(normalizedCityName);
+            return CompletableFuture.completedFuture(cachedData);
+        }
+        metrics.recordMiss(normalizedCityName);
+        WeatherSDKException knownMissing = knownMissing(normalizedCityName);
+        if (knownMissing != null) {
+            return CompletableFuture.failedFuture(knownMissing);
+        }
+        WeatherData staleData = serveStaleWhileRevalidate(normalizedCityName, cityName);
+        if (staleData != null) {
+            return CompletableFuture.completedFuture(staleData);
+        }
+
+        CompletableFuture<WeatherData> fetch =
+                fetchCoalescedAsync(normalizedCityName, cityName, RateLimiter.Priority.ON_DEMAND, deadline, true);
+        if (deadline.isSet()) {
+            fetch = fetch.orTimeout(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        }
+        return fetch.handle((data, error) -> {
+            if (error == null) {
+                return data;
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof TimeoutException) {
+                cause = new WeatherSDKException("Deadline exceeded", WeatherSDKException.NETWORK_ERROR);
+            }
+            WeatherData fallback = cause instanceof WeatherSDKException sdkException
+                    ? serveStaleOnError(normalizedCityName, sdkException) : null;
+            if (fallback == null) {
+                throw new CompletionException(cause);
+            }
+            return fallback;
+        });
+    }
+
+    /**
+     * Look up a city in the negative cache
+     * @param normalizedCityName Cache key of the city
+     * @return Remembered "City not found" failure, or null if the city may be fetched
+     */
+    private WeatherSDKException knownMissing(String normalizedCityName) {
+        if (!negativeCache.isEnabled()) {
+            return null;
+        }
+        WeatherSDKException error = negativeCache.get(normalizedCityName);
+        if (error != null) {
+            metrics.recordNegativeHit(normalizedCityName);
+        } else {
+            metrics.recordNegativeMiss(normalizedCityName);
+        }
+        return error;
+    }
+
+    /**
+     * Serve an expired entry right away and refresh it in the background, if stale-while-revalidate is enabled
+     * @param normalizedCityName Cache key of the city
+     * @param cityName City name as passed to the API
+     * @return Stale WeatherData, or null if none may be served
+     */
+    private WeatherData serveStaleWhileRevalidate(String normalizedCityName, String cityName) {
+        WeatherData staleData = staleWithin(normalizedCityName, config.getStaleWhileRevalidate().toMillis());
+        if (staleData != null && !inFlight.containsKey(normalizedCityName)) {
+            // A failed revalidation leaves the stale entry in place for the next caller to retry
+            refetchAsync(normalizedCityName, cityName, RateLimiter.Priority.BACKGROUND, true);
+        }
+        return staleData;
+    }
+
+    /**
+     * Find an expired entry to serve instead of an upstream failure, if stale-if-error is enabled
+     * @param normalizedCityName Cache key of the city
+     * @param error Failure of the upstream fetch
+     * @return Stale WeatherData, or null if none may be served
+     */
+    private WeatherData serveStaleOnError(String normalizedCityName, WeatherSDKException error) {
+        if (!error.isUpstreamFailure()) {
+            return null;
+        }
+        long maxStaleMillis = config.getStaleIfError().toMillis();
+        if (error.getStatusCode() == WeatherSDKException.CIRCUIT_OPEN) {
+            maxStaleMillis = Math.max(maxStaleMillis, serveStaleWhenOpenMillis(config));
+        }
+        return staleWithin(normalizedCityName, maxStaleMillis);
+    }
+
+    /**
+     * Get how long past the TTL entries may be served while the circuit breaker is open
+     */
+    private static long serveStaleWhenOpenMillis(WeatherSDKConfig config) {
+        return config.getCircuitBreaker() == null ? 0 : config.getCircuitBreaker().getServeStaleWhenOpen().toMillis();
+    }
+
+    /**
+     * Get a cached entry no older than the TTL plus the given allowance
+     * @param normalizedCityName Cache key of the city
+     * @param maxStaleMillis Allowed age past the TTL, zero returns nothing
+     * @return Cached WeatherData or null
+     */
+    private WeatherData staleWithin(String normalizedCityName, long maxStaleMillis) {
+        if (maxStaleMillis == 0) {
+            return null;
+        }
+        WeatherData staleData = cache.getStale(normalizedCityName);
+        if (staleData != null
+                && System.currentTimeMillis() < staleData.getExpiresAt() + maxStaleMillis) {
+            return staleData;
+        }
+        return null;
+    }
+
+    /**
+     * Get weather data for a specific city by running the blocking lookup on the given executor.
+     * Passing {@code Executors.newVirtualThreadPerTaskExecutor()} runs each lookup on a virtual thread.
+     * @param cityName Name of the city to query
+     * @param executor Executor running the blocking lookup
+     * @return Future with JSON string, completed exceptionally with WeatherSDKException on failure
+     */
+    public CompletableFuture<String> getWeatherAsync(String cityName, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return getWeather(cityName);
+            } catch (WeatherSDKException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Get weather data for several cities at once
+     * @param cityNames Names of the cities to query
+     * @return Results keyed by normalized city name, see {@link #getWeatherBatch(Collection, int)}
+     * @throws WeatherSDKException If the calling thread is interrupted while waiting
+     */
+    public Map<String, WeatherResult> getWeatherBatch(Collection<String> cityNames) throws WeatherSDKException {
+        return getWeatherBatch(cityNames, DEFAULT_BATCH_CONCURRENCY);
+    }
+
+    /**
+     * Get weather data for several cities at once.
+     * Names are normalized and deduplicated, cached entries are served directly and
+     * the remaining cities are fetched in parallel. A failure for one city is reported
+     * in its result and does not affect the others. Cities still pending when no city
+     * completed for a while, such as when upstream stops answering, are reported as failures.
+     * @param cityNames Names of the cities to query
+     * @param maxConcurrency Maximum number of upstream requests running at the same time
+     * @return Results keyed by normalized city name (invalid names are keyed as given), in input order
+     * @throws WeatherSDKException If the calling thread is interrupted while waiting
+     */
+    public Map<String, WeatherResult> getWeatherBatch(Collection<String> cityNames, int maxConcurrency)
+            throws WeatherSDKException {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Batch concurrency must be positive: " + maxConcurrency);
+        }
+
+        Map<String, WeatherResult> results = new LinkedHashMap<>();
+        Map<String, String> misses = new LinkedHashMap<>();
+        for (String cityName : cityNames) {
+            String normalizedCityName;
+            try {
+                normalizedCityName = normalize(cityName);
+            } catch (WeatherSDKException e) {
+                results.put(cityName, WeatherResult.failure(e));
+                continue;
+            }
+            if (results.containsKey(normalizedCityName)) {
+                continue;
+            }
+
+            WeatherData cachedData = cache.get(normalizedCityName);
+            if (cachedData != null) {
+                metrics.recordHit(normalizedCityName);
+                results.put(normalizedCityName, toResult(cachedData, null));
+            } else {
+                metrics.recordMiss(normalizedCityName);
+                WeatherSDKException knownMissing = knownMissing(normalizedCityName);
+                if (knownMissing != null) {
+                    results.put(normalizedCityName, WeatherResult.failure(knownMissing));
+                    continue;
+                }
+                // Reserve the slot to keep input order
+                results.put(normalizedCityName, null);
+                misses.put(normalizedCityName, cityName);
+            }
+        }
+
+        if (misses.isEmpty()) {
+            return results;
+        }
+
+        Map<String, WeatherResult> fetched = new ConcurrentHashMap<>();
+        CompletableFuture<Void> done = fetchAll(misses, fetched, RateLimiter.Priority.ON_DEMAND, maxConcurrency);
+        awaitBatch(done, fetched);
+
+        results.putAll(fetched);
+        for (String normalizedCityName : misses.keySet()) {
+            results.computeIfAbsent(normalizedCityName, key -> WeatherResult.failure(
+                    new WeatherSDKException("Batch request stalled", WeatherSDKException.NETWORK_ERROR)));
+        }
+        return results;
+    }
+
+    /**
+     * Wait for a batch as long as its cities keep completing
+     * @param done Future completing when every city has a result
+     * @param fetched Results collected so far, whose growth counts as progress
+     * @throws WeatherSDKException If the calling thread is interrupted while waiting
+     */
+    private static void awaitBatch(CompletableFuture<Void> done, Map<String, WeatherResult> fetched)
+            throws WeatherSDKException {
+        int completed = -1;
+        while (completed < fetched.size()) {
+            completed = fetched.size();
+            try {
+                done.get(BATCH_STALL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                // Keep waiting if some city completed meanwhile
+            } catch (ExecutionException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new WeatherSDKException("Batch request interrupted");
+            }
+        }
+    }
+
+    /**
+     * Fetch a set of cities without blocking.
+     * Cities newer in the shared cache than locally are taken from there with one multi-get.
+     * Of the rest, cities with a known ID are packed into group requests, the others are fetched
+     * by name, with a limited number of requests in flight.
+     * @param cities Normalized city names mapped to the names passed to the API
+     * @param fetched Map receiving a result per city
+     * @param priority Rate limiter lane of the requests
+     * @param maxConcurrency Maximum number of requests running at the same time
+     * @return Future completing when every city has a result
+     */
+    private CompletableFuture<Void> fetchAll(Map<String, String> cities, Map<String, WeatherResult> fetched,
+                                             RateLimiter.Priority priority, int maxConcurrency) {
+        if (!sharedCache.isEnabled()) {
+            return BoundedRunner.run(fetchTasks(cities, fetched, priority), maxConcurrency);
+        }
+        // Bounded by the shared cache timeout, and never fails
+        return sharedCache.getAll(cities.keySet()).thenCompose(shared -> {
+            Map<String, String> remaining = new LinkedHashMap<>(cities);
+            for (Map.Entry<String, WeatherData> entry : shared.entrySet()) {
+                WeatherData sharedData = adoptShared(entry.getKey(), entry.getValue());
+                if (sharedData != null) {
+                    remaining.remove(entry.getKey());
+                    fetched.put(entry.getKey(), toResult(sharedData, null));
+                }
+            }
+            return BoundedRunner.run(fetchTasks(remaining, fetched, priority), maxConcurrency);
+        });
+    }
+
+    /**
+     * Create fetch tasks for a set of cities
+     * @param cities Normalized city names mapped to the names passed to the API
+     * @param fetched Map receiving a result per city
+     * @param priority Rate limiter lane of the requests
+     * @return Tasks starting the fetches
+     */
+    private List<Supplier<CompletableFuture<?>>> fetchTasks(Map<String, String> cities,
+                                                             Map<String, WeatherResult> fetched,
+                                                             RateLimiter.Priority priority) {
+        List<Supplier<CompletableFuture<?>>> tasks = new ArrayList<>();
+        Map<String, Long> group = new LinkedHashMap<>();
+        for (Map.Entry<String, String> city : cities.entrySet()) {
+            String normalizedCityName = city.getKey();
+            Long cityId = cityIds.get(normalizedCityName);
+            if (cityId == null || coordinatesOf(normalizedCityName) != null) {
+                tasks.add(() -> collect(normalizedCityName,
+                        refetchAsync(normalizedCityName, city.getValue(), priority, false), fetched));
+                continue;
+            }
+            group.put(normalizedCityName, cityId);
+            if (group.size() == ApiClient.MAX_GROUP_SIZE) {
+                tasks.add(groupTask(group, cities, fetched, priority));
+                group = new LinkedHashMap<>();
+            }
         }
+        if (!group.isEmpty()) {
+            tasks.add(groupTask(group, cities, fetched, priority));
+        }
+        return tasks;
+    }
 
-        // Fetch fresh data and update cache
-        WeatherData freshData = apiClient.fetchWeatherData(cityName);
-        cache.put(normalizedCityName, freshData);
-        return freshData.toJson();
+    /**
+     * Create a batch task fetching a group of cities with one request
+     * @param group Normalized city names and their IDs
+     * @param names Normalized city names mapped to the names passed to the API
+     * @param fetched Collected results
+     * @param priority Rate limiter lane of the request
+     * @return Task completing when every city of the group has a result
+     */
+    private Supplier<CompletableFuture<?>> groupTask(Map<String, Long> group, Map<String, String> names,
+                                                     Map<String, WeatherResult> fetched,
+                                                     RateLimiter.Priority priority) {
+        return () -> {
+            Map<String, CompletableFuture<WeatherData>> futures = fetchGroupAsync(group, names, priority);
+            return CompletableFuture.allOf(futures.entrySet().stream()
+                    .map(entry -> collect(entry.getKey(), entry.getValue(), fetched))
+                    .toArray(CompletableFuture[]::new));
+        };
     }
 
     /**
-     * Shutdown the SDK
+     * Record the outcome of a fetch as a batch result
+     * @param normalizedCityName Cache key of the city
+     * @param future Pending fetch
+     * @param fetched Collected results
+     * @return Future completing after the result is recorded
+     */
+    private CompletableFuture<Void> collect(String normalizedCityName, CompletableFuture<WeatherData> future,
+                                                   Map<String, WeatherResult> fetched) {
+        return future.handle((data, error) -> {
+            fetched.put(normalizedCityName, toResult(data, error));
+            return null;
+        });
+    }
+
+    /**
+     * Convert a lookup outcome into a batch result
+     * @param data Fetched data, or null on failure
+     * @param error Failure, or null on success
+     * @return Result with JSON or error
+     */
+    private WeatherResult toResult(WeatherData data, Throwable error) {
+        error = unwrap(error);
+        if (error instanceof WeatherSDKException sdkException) {
+            return WeatherResult.failure(sdkException);
+        }
+        if (error != null) {
+            return WeatherResult.failure(new WeatherSDKException("Unexpected error: " + error));
+        }
+        try {
+            return WeatherResult.success(serialize(data));
+        } catch (WeatherSDKException e) {
+            return WeatherResult.failure(e);
+        }
+    }
+
+    /**
+     * Get the JSON of weather data, timing the serialization unless it is already memoized
+     * @param data WeatherData to serialize
+     * @return JSON string
+     * @throws WeatherSDKException If the data cannot be serialized
+     */
+    private String serialize(WeatherData data) throws WeatherSDKException {
+        if (data.hasJson()) {
+            return data.toJson();
+        }
+        long start = System.nanoTime();
+        String json = data.toJson();
+        metrics.recordSerialize(System.nanoTime() - start);
+        return json;
+    }
+
+    /**
+     * Validate a city name and convert it to its cache key
+     * @param cityName City name as given by the caller
+     * @return Trimmed lower-case city name
+     * @throws WeatherSDKException If the name is null or blank
+     */
+    private static String normalize(String cityName) throws WeatherSDKException {
+        if (cityName == null || cityName.trim().isEmpty()) {
+            throw new WeatherSDKException("City name cannot be null or empty");
+        }
+        return cityName.trim().toLowerCase();
+    }
+
+    /**
+     * Fetch data for a city, letting concurrent callers for the same key share one upstream request
+     * @param normalizedCityName Cache key of the city
+     * @param cityName City name as passed to the API
+     * @return Fresh WeatherData
+     * @throws WeatherSDKException If the shared fetch fails
+     */
+    private WeatherData fetchCoalesced(String normalizedCityName, String cityName) throws WeatherSDKException {
+        CacheScope.Fetch pending = new CacheScope.Fetch(this);
+        CacheScope.Fetch existing = inFlight.putIfAbsent(normalizedCityName, pending);
+
+        if (existing != null) {
+            coalescedRequests.increment();
+            try {
+                return await(existing);
+            } catch (WeatherSDKException e) {
+                if (existing.tenant == this) {
+                    throw e;
+                }
+                return fetchOwn(normalizedCityName, cityName, false);
+            }
+        }
+
+        try {
+            WeatherData freshData = fetchOwn(normalizedCityName, cityName, sharedCache.isEnabled());
+            pending.complete(freshData);
+            return freshData;
+        } catch (WeatherSDKException | RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(normalizedCityName, pending);
+        }
+    }
+
+    /**
+     * Fetch data for a city with this SDK's key and limits, without sharing the request
+     * @param normalizedCityName Cache key of the city
+     * @param cityName City name as passed to the API
+     * @param readShared True to look in the shared cache before calling the API
+     * @return Fresh WeatherData
+     * @throws WeatherSDKException If the fetch fails
+     */
+    private WeatherData fetchOwn(String normalizedCityName, String cityName, boolean readShared)
+            throws WeatherSDKException {
+        try {
+            WeatherData sharedData = readShared
+                    ? adoptShared(normalizedCityName, sharedCache.get(normalizedCityName).join()) : null;
+            if (sharedData != null) {
+                return sharedData;
+            }
+            if (!circuitBreaker.isCallPermitted()) {
+                throw circuitOpen();
+            }
+            awaitPermit(RateLimiter.Priority.ON_DEMAND);
+            long passage = circuitBreaker.tryAcquire();
+            if (passage == CircuitBreaker.REJECTED) {
+                throw circuitOpen();
+            }
+            WeatherData freshData;
+            long start = metrics.upstreamStarted();
+            try {
+                freshData = apiClient.fetchWeatherData(cityName);
+            } catch (WeatherSDKException | RuntimeException e) {
+                upstreamFinished(passage, start, e);
+                throw e;
+            }
+            upstreamFinished(passage, start, null);
+            store(normalizedCityName, freshData);
+            return freshData;
+        } catch (WeatherSDKException | RuntimeException e) {
+            negativeCache.record(normalizedCityName, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchCoalesced}, sharing the same in-flight requests
+     * @param normalizedCityName Cache key of the city
+     * @param cityName City name as passed to the API
+     * @param priority Rate limiter lane of the request
+     * @param deadline Time by which the request must finish, if it is the one sent
+     * @param readShared True to look in the shared cache before calling the API
+     * @return Future with fresh WeatherData
+     */
+    private CompletableFuture<WeatherData> fetchCoalescedAsync(String normalizedCityName, String cityName,
+                                                               RateLimiter.Priority priority, Deadline deadline,
+                                                               boolean readShared) {
+        CacheScope.Fetch pending = new CacheScope.Fetch(this);
+        CacheScope.Fetch existing = inFlight.putIfAbsent(normalizedCityName, pending);
+
+        if (existing != null) {
+            return joinFetch(existing, () -> fetchOwnAsync(normalizedCityName, cityName, priority, deadline, false));
+        }
+
+        fetchOwnAsync(normalizedCityName, cityName, priority, deadline, readShared)
+                .whenComplete((data, error) -> settle(normalizedCityName, pending, data, error));
+        return pending.thenApply(data -> data);
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchOwn}
+     * @param normalizedCityName Cache key of the city
+     * @param cityName City name as passed to the API
+     * @param priority Rate limiter lane of the request
+     * @param deadline Time by which the request must finish
+     * @param readShared True to look in the shared cache before calling the API
+     * @return Future with fresh WeatherData
+     */
+    private CompletableFuture<WeatherData> fetchOwnAsync(String normalizedCityName, String cityName,
+                                                         RateLimiter.Priority priority, Deadline deadline,
+                                                         boolean readShared) {
+        Supplier<CompletableFuture<WeatherData>> request = deadline.isSet()
+                ? () -> apiClient.fetchWeatherDataAsync(cityName, deadline.requestTimeout(ApiClient.REQUEST_TIMEOUT))
+                : () -> apiClient.fetchWeatherDataAsync(cityName);
+        CompletableFuture<WeatherData> sharedRead = readShared && sharedCache.isEnabled()
+                ? sharedCache.get(normalizedCityName) : CompletableFuture.completedFuture(null);
+        return sharedRead.exceptionally(error -> null).thenCompose(sharedData -> {
+            WeatherData adopted = adoptShared(normalizedCityName, sharedData);
+            if (adopted != null) {
+                return CompletableFuture.completedFuture(adopted);
+            }
+            return callHedged(priority, request).whenComplete((freshData, error) -> {
+                if (error != null) {
+                    negativeCache.record(normalizedCityName, unwrap(error));
+                }
+            }).thenApply(freshData -> {
+                store(normalizedCityName, freshData);
+                return freshData;
+            });
+        });
+    }
+
+    /**
+     * Wait on a fetch already in flight. Data fetched by another SDK sharing the cache is taken
+     * as is, but its failures may come from that SDK's key, rate limit or deadline, so they are
+     * answered by fetching again with this SDK's own.
+     * @param existing Fetch in flight
+     * @param ownFetch Starts an unshared fetch by this SDK
+     * @return Future with fresh WeatherData
+     */
+    private CompletableFuture<WeatherData> joinFetch(CacheScope.Fetch existing,
+                                                     Supplier<CompletableFuture<WeatherData>> ownFetch) {
+        coalescedRequests.increment();
+        if (existing.tenant == this) {
+            return existing.thenApply(data -> data);
+        }
+        return existing.handle((data, error) -> error == null ? existing : ownFetch.get())
+                .thenCompose(future -> future.thenApply(data -> data));
+    }
+
+    /**
+     * Fetch data for a position, sharing the request with concurrent callers for the same position.
+     * The result is cached under the position's key rather than the resolved place name, which
+     * may be blank or shared by other places, and refreshed by position.
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param priority Rate limiter lane of the request
+     * @return Future with fresh WeatherData
+     */
+    private CompletableFuture<WeatherData> fetchCoordinatesAsync(double latitude, double longitude,
+                                                                 RateLimiter.Priority priority) {
+        String key = coordinateKey(latitude, longitude);
+        CacheScope.Fetch pending = new CacheScope.Fetch(this);
+        CacheScope.Fetch existing = inFlight.putIfAbsent(key, pending);
+
+        if (existing != null) {
+            return joinFetch(existing, () -> fetchOwnCoordinatesAsync(key, latitude, longitude, priority));
+        }
+
+        fetchOwnCoordinatesAsync(key, latitude, longitude, priority)
+                .whenComplete((data, error) -> settle(key, pending, data, error));
+        return pending.thenApply(data -> data);
+    }
+
+    /**
+     * Fetch data for a position with this SDK's key and limits, without sharing the request
+     * @param key Cache key of the position
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @param priority Rate limiter lane of the request
+     * @return Future with fresh WeatherData
+     */
+    private CompletableFuture<WeatherData> fetchOwnCoordinatesAsync(String key, double latitude, double longitude,
+                                                                    RateLimiter.Priority priority) {
+        return callHedged(priority,
+                () -> apiClient.fetchWeatherDataAsync(latitude, longitude, ApiClient.REQUEST_TIMEOUT))
+                .thenApply(freshData -> {
+                    if (!freshData.hasCoordinates()) {
+                        freshData.setLatitude(latitude);
+                        freshData.setLongitude(longitude);
+                    }
+                    store(key, freshData);
+                    scope.indexQueried(key, latitude, longitude);
+                    return freshData;
+                });
+    }
+
+    /**
+     * Fetch a group of cities by ID with one request, sharing in-flight requests with other callers
+     * @param group Normalized city names and their IDs, at most {@link ApiClient#MAX_GROUP_SIZE}
+     * @param names Normalized city names mapped to the names passed to the API, for cities missing
+     *              from the response
+     * @param priority Rate limiter lane of the request
+     * @return Pending fetch per city
+     */
+    private Map<String, CompletableFuture<WeatherData>> fetchGroupAsync(Map<String, Long> group,
+                                                                        Map<String, String> names,
+                                                                        RateLimiter.Priority priority) {
+        Map<String, CompletableFuture<WeatherData>> futures = new LinkedHashMap<>();
+        Map<String, CompletableFuture<WeatherData>> owned = new LinkedHashMap<>();
+        for (String normalizedCityName : group.keySet()) {
+            CacheScope.Fetch pending = new CacheScope.Fetch(this);
+            CacheScope.Fetch existing = inFlight.putIfAbsent(normalizedCityName, pending);
+            if (existing != null) {
+                futures.put(normalizedCityName, joinFetch(existing, () -> fetchOwnAsync(normalizedCityName,
+                        names.getOrDefault(normalizedCityName, normalizedCityName), priority, Deadline.NONE, false)));
+            } else {
+                owned.put(normalizedCityName, pending);
+                futures.put(normalizedCityName, pending.thenApply(data -> data));
+            }
+        }
+        if (owned.isEmpty()) {
+            return futures;
+        }
+
+        List<Long> ids = owned.keySet().stream().map(group::get).distinct().toList();
+        callUpstream(priority, () -> apiClient.fetchWeatherDataByIdsAsync(ids)).whenComplete((list, error) -> {
+            Map<Long, WeatherData> byId = new HashMap<>();
+            Throwable failure = error;
+            if (failure == null) {
+                try {
+                    for (WeatherData data : list) {
+                        byId.put(data.getCityId(), data);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            for (Map.Entry<String, CompletableFuture<WeatherData>> entry : owned.entrySet()) {
+                String normalizedCityName = entry.getKey();
+                CompletableFuture<WeatherData> pending = entry.getValue();
+                WeatherData freshData = byId.get(group.get(normalizedCityName));
+                try {
+                    if (failure != null) {
+                        settle(normalizedCityName, pending, null, failure);
+                    } else if (freshData == null) {
+                        // Not a 404 of the city itself, so ask for it by name instead of remembering it as unknown
+                        inFlight.remove(normalizedCityName, pending);
+                        fetchCoalescedAsync(normalizedCityName, names.getOrDefault(normalizedCityName, normalizedCityName),
+                                priority, Deadline.NONE, false).whenComplete((data, fallbackError) -> {
+                                    if (fallbackError == null) {
+                                        pending.complete(data);
+                                    } else {
+                                        pending.completeExceptionally(unwrap(fallbackError));
+                                    }
+                                });
+                    } else {
+                        store(normalizedCityName, freshData);
+                        settle(normalizedCityName, pending, freshData, null);
+                    }
+                } catch (RuntimeException e) {
+                    settle(normalizedCityName, pending, null, e);
+                }
+            }
+        });
+        return futures;
+    }
+
+    /**
+     * Complete a fetch shared with concurrent callers and release its in-flight key
+     * @param key In-flight key of the fetch
+     * @param pending Future the callers wait on
+     * @param data Fetched data, if the fetch succeeded
+     * @param error Failure of the fetch or of storing its result, or null
+     */
+    private void settle(String key, CompletableFuture<WeatherData> pending, WeatherData data, Throwable error) {
+        try {
+            if (error == null) {
+                pending.complete(data);
+            } else {
+                pending.completeExceptionally(unwrap(error));
+            }
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Start an upstream request once the rate limiter allows it, recording its outcome
+     * @param priority Rate limiter lane of the request
+     * @param request Starts the request
+     * @return Future with the response, or failed with a 429 WeatherSDKException if the limiter rejects it
+     */
+    private <T> CompletableFuture<T> callUpstream(RateLimiter.Priority priority,
+                                                  Supplier<CompletableFuture<T>> request) {
+        // Check before queueing for the rate limiter so an open breaker fails at once
+        if (!circuitBreaker.isCallPermitted()) {
+            return CompletableFuture.failedFuture(circuitOpen());
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        rateLimiter.acquire(priority).whenComplete((ignored, permitError) -> {
+            if (permitError != null) {
+                result.completeExceptionally(unwrap(permitError));
+                return;
+            }
+            if (result.isDone()) {
+                // Cancelled while waiting for the permit
+                return;
+            }
+            long passage = circuitBreaker.tryAcquire();
+            if (passage == CircuitBreaker.REJECTED) {
+                result.completeExceptionally(circuitOpen());
+                return;
+            }
+            long start = metrics.upstreamStarted();
+            CompletableFuture<T> upstream;
+            try {
+                upstream = request.get();
+            } catch (RuntimeException e) {
+                upstream = CompletableFuture.failedFuture(e);
+            }
+            CompletableFuture<T> sent = upstream;
+            sent.whenComplete((response, error) -> {
+                upstreamFinished(passage, start, unwrap(error));
+                if (error == null) {
+                    result.complete(response);
+                } else {
+                    result.completeExceptionally(unwrap(error));
+                }
+            });
+            // Cancelling the result aborts the request
+            result.whenComplete((response, error) -> {
+                if (result.isCancelled()) {
+                    sent.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Start an upstream request through {@link #callUpstream} and, if hedging is enabled, send an
+     * identical one when the first is slower than the configured latency percentile.
+     * The first successful response wins and cancels the other request.
+     * @param priority Rate limiter lane of the requests
+     * @param request Starts a request
+     * @return Future with the first successful response, or the failure once all sent requests failed
+     */
+    private <T> CompletableFuture<T> callHedged(RateLimiter.Priority priority,
+                                                Supplier<CompletableFuture<T>> request) {
+        long hedgeDelayNanos = hedgeDelayNanos();
+        CompletableFuture<T> primary = callUpstream(priority, request);
+        if (hedgeDelayNanos < 0) {
+            return primary;
+        }
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger running = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+        BiConsumer<T, Throwable> finish = (response, error) -> {
+            if (error == null) {
+                result.complete(response);
+            } else if (running.decrementAndGet() == 0) {
+                result.completeExceptionally(unwrap(error));
+            }
+        };
+        primary.whenComplete(finish);
+        CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS).execute(() -> {
+            // Only hedge while the first request is still running
+            if (result.isDone() || !reserveHedge()
+                    || running.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+                return;
+            }
+            metrics.recordHedge();
+            CompletableFuture<T> second = callUpstream(priority, request);
+            hedge.set(second);
+            second.whenComplete(finish);
+            if (result.isDone()) {
+                second.cancel(true);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            primary.cancel(true);
+            CompletableFuture<T> second = hedge.get();
+            if (second != null) {
+                second.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Get how long to wait before hedging a request
+     * @return Configured percentile of successful latency over the last minute, or -1 if hedging is off
+     *         or that minute has too few samples
+     */
+    private long hedgeDelayNanos() {
+        if (config.getHedgePercentile() == 0) {
+            return -1;
+        }
+        long credit = Math.round(config.getMaxHedgeShare() * HEDGE_TOKEN);
+        hedgeBudget.accumulateAndGet(credit, (budget, added) -> Math.min(budget + added, HEDGE_BURST * HEDGE_TOKEN));
+        return metrics.recentSuccessLatency()
+                .getPercentileNanos(config.getHedgePercentile(), MIN_HEDGE_SAMPLES, System.nanoTime());
+    }
+
+    /**
+     * Take one hedge from the budget, which every hedgeable request adds its share to
+     * @return Whether the hedge may be sent
+     */
+    private boolean reserveHedge() {
+        long budget;
+        do {
+            budget = hedgeBudget.get();
+            if (budget < HEDGE_TOKEN) {
+                return false;
+            }
+        } while (!hedgeBudget.compareAndSet(budget, budget - HEDGE_TOKEN));
+        return true;
+    }
+
+    /**
+     * Report the outcome of an upstream request to metrics, circuit breaker and rate limiter
+     * @param passage Value returned by {@link CircuitBreaker#tryAcquire}
+     * @param startNanos Value returned by {@link WeatherSDKMetrics#upstreamStarted}
+     * @param error Failure of the request, or null on success
+     */
+    private void upstreamFinished(long passage, long startNanos, Throwable error) {
+        if (error instanceof CancellationException) {
+            metrics.recordUpstreamCancelled();
+            circuitBreaker.onCancelled(passage);
+            return;
+        }
+        long latency = metrics.recordUpstreamResponse(startNanos, error);
+        circuitBreaker.onResult(passage, latency, error);
+        rateLimiter.onResponse(error);
+    }
+
+    /**
+     * Create the failure of a request rejected by the open circuit breaker
+     */
+    private WeatherSDKException circuitOpen() {
+        metrics.recordCircuitRejection();
+        return new WeatherSDKException("Circuit breaker is open", WeatherSDKException.CIRCUIT_OPEN);
+    }
+
+    /**
+     * Block until the rate limiter allows an upstream request
+     * @param priority Rate limiter lane of the request
+     * @throws WeatherSDKException If the limiter rejects the request or the thread is interrupted
+     */
+    private void awaitPermit(RateLimiter.Priority priority) throws WeatherSDKException {
+        CompletableFuture<Void> permit = rateLimiter.acquire(priority);
+        if (permit.isDone() && !permit.isCompletedExceptionally()) {
+            return;
+        }
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            permit.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new WeatherSDKException("Interrupted while waiting for rate limit");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof WeatherSDKException sdkException) {
+                throw sdkException;
+            }
+            throw new WeatherSDKException("Unexpected error: " + e.getCause());
+        }
+    }
+
+    /**
+     * Strip the CompletionException wrapper added by future stages
+     * @param error Failure of a future, may be null
+     * @return Original cause
+     */
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            return error.getCause();
+        }
+        return error;
+    }
+
+    /**
+     * Wait for a shared fetch and rethrow its failure as seen by the leader
+     */
+    private static WeatherData await(CompletableFuture<WeatherData> future) throws WeatherSDKException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof WeatherSDKException sdkException) {
+                throw sdkException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new WeatherSDKException("Unexpected error: " + cause);
+        }
+    }
+
+    /**
+     * Get cache, upstream and refresh counters of this SDK
+     * @return Live metrics, updated as requests run
+     */
+    public WeatherSDKMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Get state of the circuit breaker guarding upstream requests
+     * @return Current state, always CLOSED if no breaker is configured
+     */
+    public CircuitState getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Get number of requests served by joining an already running fetch
+     * @return Count of coalesced calls since creation
+     */
+    public long getCoalescedRequestCount() {
+        return coalescedRequests.sum();
+    }
+
+    /**
+     * Shutdown the SDK and write pending persistent cache changes.
+     * Resources shared through a runtime stay open until the runtime is closed.
      */
     public void shutdown() {
-        if (scheduler != null) {
+        if (pollingTask != null) {
+            pollingTask.cancel(false);
+            scope.removePoller(this);
+        }
+        rateLimiter.shutdown();
+        if (runtime == null) {
             scheduler.shutdown();
+            scope.close();
+        } else {
+            runtime.release(this);
+            if (scope != runtime.getSharedScope()) {
+                scope.close();
+            }
         }
     }
 }
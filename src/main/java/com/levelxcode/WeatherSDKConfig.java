@@ -0,0 +1,322 @@
+package com.levelxcode;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tuning options for WeatherSDK. All options have defaults, so only the ones
+ * that differ need to be set.
+ */
+public class WeatherSDKConfig {
+    private int cacheSize = WeatherSDK.DEFAULT_CACHE_SIZE;
+    private Duration ttl = Duration.ofMillis(WeatherData.TTL_MILLIS);
+    private boolean ttlAlignedToMeasurement;
+    private Duration refreshAhead = Duration.ofMinutes(1);
+    private int refreshParallelism = 4;
+    private Duration staleWhileRevalidate = Duration.ZERO;
+    private Duration staleIfError = Duration.ZERO;
+    private Path persistentCache;
+    private WeatherSDKListener listener = WeatherSDKListener.NONE;
+    private int rateLimit;
+    private int negativeCacheSize;
+    private Duration negativeCacheTtl = Duration.ZERO;
+    private CircuitBreakerConfig circuitBreaker;
+    private double hedgePercentile;
+    private double maxHedgeShare;
+    private ApiClientConfig apiClient = new ApiClientConfig();
+    private double coordinateRadiusKm = 1;
+    private boolean compactStorage;
+    private Executor changeExecutor = ForkJoinPool.commonPool();
+    private int changeBufferSize = Flow.defaultBufferSize();
+    private SharedCache sharedCache;
+    private Duration sharedCacheTimeout = Duration.ofMillis(50);
+
+    /**
+     * Set maximum number of cities to cache
+     * @param cacheSize Cache capacity, must be positive
+     * @return This config
+     */
+    public WeatherSDKConfig withCacheSize(int cacheSize) {
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * Set how long fetched data stays valid
+     * @param ttl Time to live, must be positive
+     * @return This config
+     */
+    public WeatherSDKConfig withTtl(Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttl);
+        }
+        this.ttl = ttl;
+        return this;
+    }
+
+    /**
+     * Expire entries when upstream is expected to publish its next measurement, one TTL after
+     * the measurement time ({@code dt}) of the cached data, instead of one TTL after fetching.
+     * Data fetched late in a measurement interval then expires with it rather than being served
+     * past the next update, and is kept at least a quarter TTL so a late upstream is not polled
+     * in a loop.
+     * @param aligned True to align expiry with upstream measurements
+     * @return This config
+     */
+    public WeatherSDKConfig withTtlAlignedToMeasurement(boolean aligned) {
+        this.ttlAlignedToMeasurement = aligned;
+        return this;
+    }
+
+    /**
+     * Set how long before expiry POLLING mode refreshes an entry.
+     * Each entry is refreshed at a point spread over one margin before that,
+     * so entries fetched together are not refreshed together.
+     * @param refreshAhead Margin before expiry, must be positive and below half the TTL
+     * @return This config
+     */
+    public WeatherSDKConfig withRefreshAhead(Duration refreshAhead) {
+        if (refreshAhead.isNegative() || refreshAhead.isZero()) {
+            throw new IllegalArgumentException("Refresh-ahead margin must be positive: " + refreshAhead);
+        }
+        this.refreshAhead = refreshAhead;
+        return this;
+    }
+
+    /**
+     * Set maximum number of upstream refresh requests running at the same time in POLLING mode
+     * @param refreshParallelism Parallel refresh requests, must be positive
+     * @return This config
+     */
+    public WeatherSDKConfig withRefreshParallelism(int refreshParallelism) {
+        if (refreshParallelism <= 0) {
+            throw new IllegalArgumentException("Refresh parallelism must be positive: " + refreshParallelism);
+        }
+        this.refreshParallelism = refreshParallelism;
+        return this;
+    }
+
+    /**
+     * Serve expired entries immediately while one background request refreshes them.
+     * Entries older than the TTL plus this duration are fetched as usual.
+     * @param maxStale How long past the TTL an entry may be served, zero disables
+     * @return This config
+     */
+    public WeatherSDKConfig withStaleWhileRevalidate(Duration maxStale) {
+        this.staleWhileRevalidate = requireNonNegative(maxStale, "Stale-while-revalidate");
+        return this;
+    }
+
+    /**
+     * Serve expired entries when upstream fails with a network error, 429 or 5xx.
+     * @param maxStale How long past the TTL an entry may be served, zero disables
+     * @return This config
+     */
+    public WeatherSDKConfig withStaleIfError(Duration maxStale) {
+        this.staleIfError = requireNonNegative(maxStale, "Stale-if-error");
+        return this;
+    }
+
+    /**
+     * Keep a copy of the cache in a file so a restarted SDK serves still-valid entries
+     * without calling the API. The file is written in the background shortly after changes.
+     * @param file Cache file, created if missing; null disables
+     * @return This config
+     */
+    public WeatherSDKConfig withPersistentCache(Path file) {
+        this.persistentCache = file;
+        return this;
+    }
+
+    /**
+     * Limit upstream calls to the API plan's calls per minute.
+     * Lookups waiting for budget go ahead of POLLING refreshes, which also leave a share of the
+     * budget unused for lookups. A 429 response pauses all calls for its Retry-After delay, or
+     * for an exponentially growing delay if none is given.
+     * @param callsPerMinute Allowed calls per minute, also the burst size; zero disables the limit
+     * @return This config
+     */
+    public WeatherSDKConfig withRateLimit(int callsPerMinute) {
+        if (callsPerMinute < 0) {
+            throw new IllegalArgumentException("Rate limit must not be negative: " + callsPerMinute);
+        }
+        this.rateLimit = callsPerMinute;
+        return this;
+    }
+
+    /**
+     * Remember cities the API reported as not found, so repeated lookups fail without a request.
+     * Bad names are kept apart from the weather cache and never evict its entries.
+     * @param maxSize Maximum number of names to remember, zero disables
+     * @param ttl How long a name is remembered, must be positive when enabled
+     * @return This config
+     */
+    public WeatherSDKConfig withNegativeCache(int maxSize, Duration ttl) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Negative cache size must not be negative: " + maxSize);
+        }
+        if (maxSize > 0 && (ttl.isNegative() || ttl.isZero())) {
+            throw new IllegalArgumentException("Negative cache TTL must be positive: " + ttl);
+        }
+        this.negativeCacheSize = maxSize;
+        this.negativeCacheTtl = ttl;
+        return this;
+    }
+
+    /**
+     * Fail upstream requests fast while OpenWeatherMap is degraded, see {@link CircuitBreakerConfig}.
+     * Rejected lookups fail with {@link WeatherSDKException#CIRCUIT_OPEN}, which counts as an
+     * upstream failure for stale-if-error.
+     * @param circuitBreaker Breaker thresholds, null disables
+     * @return This config
+     */
+    public WeatherSDKConfig withCircuitBreaker(CircuitBreakerConfig circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Send a second identical request when a lookup's request has not answered within a percentile
+     * of the successful latencies of the last minute; the first response wins and the other request
+     * is cancelled. Hedging pauses while that minute holds too few latencies and never exceeds a share
+     * of recent requests; budget left over from quiet periods covers a burst of at most ten hedges.
+     * @param latencyPercentile Percentile of last minute's latency after which to hedge, e.g. 0.95
+     * @param maxHedgeShare Maximum hedges as a share of hedgeable requests, e.g. 0.05
+     * @return This config
+     */
+    public WeatherSDKConfig withHedging(double latencyPercentile, double maxHedgeShare) {
+        if (!(latencyPercentile > 0 && latencyPercentile < 1)) {
+            throw new IllegalArgumentException("Hedge percentile must be between 0 and 1: " + latencyPercentile);
+        }
+        if (!(maxHedgeShare > 0 && maxHedgeShare <= 1)) {
+            throw new IllegalArgumentException("Hedge share must be above 0 and at most 1: " + maxHedgeShare);
+        }
+        this.hedgePercentile = latencyPercentile;
+        this.maxHedgeShare = maxHedgeShare;
+        return this;
+    }
+
+    /**
+     * Receive cache, upstream and refresh events, e.g. to export them to a metrics backend.
+     * Counters for the same events are always available from {@link WeatherSDK#getMetrics()}.
+     * @param listener Event receiver
+     * @return This config
+     */
+    public WeatherSDKConfig withListener(WeatherSDKListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener must not be null");
+        }
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Store cached entries in a packed layout with weather conditions dictionary-encoded.
+     * An entry takes about 10% less heap than a standard one as fetched (about 400 instead of
+     * 440 bytes in the footprint benchmark). Standard entries also keep their JSON once served,
+     * growing to about 1,170 bytes, which compact entries never do. In exchange every cache hit
+     * allocates a new WeatherData and serializes it to JSON again, so this only pays off for
+     * caches of many thousands of cities that are each read rarely.
+     * @param compactStorage True for compact storage
+     * @return This config
+     */
+    public WeatherSDKConfig withCompactStorage(boolean compactStorage) {
+        this.compactStorage = compactStorage;
+        return this;
+    }
+
+    /**
+     * Serve coordinate lookups from a cached place within a radius of the requested point,
+     * so nearby positions of a moving device share one entry
+     * @param radiusKm Match radius in kilometers, 0 or 0.01 to 1000; zero always fetches
+     * @return This config
+     */
+    public WeatherSDKConfig withCoordinateRadius(double radiusKm) {
+        if (!(radiusKm == 0 || radiusKm >= 0.01 && radiusKm <= 1000)) {
+            throw new IllegalArgumentException("Coordinate radius must be 0 or between 0.01 and 1000 km: " + radiusKm);
+        }
+        this.coordinateRadiusKm = radiusKm;
+        return this;
+    }
+
+    /**
+     * Set how change events reach subscribers of {@link WeatherSDK#getChangePublisher}
+     * @param executor Executor delivering events, the common pool by default
+     * @param bufferSize Events buffered per subscriber before new ones are dropped, must be positive
+     * @return This config
+     */
+    public WeatherSDKConfig withChangeDelivery(Executor executor, int bufferSize) {
+        if (executor == null || bufferSize <= 0) {
+            throw new IllegalArgumentException("Change delivery needs an executor and a positive buffer size: "
+                    + executor + ", " + bufferSize);
+        }
+        this.changeExecutor = executor;
+        this.changeBufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Set transport options of the API client: HTTPS with HTTP/2, compression, a shared HttpClient
+     * @param apiClient Transport options
+     * @return This config
+     */
+    public WeatherSDKConfig withApiClient(ApiClientConfig apiClient) {
+        if (apiClient == null) {
+            throw new IllegalArgumentException("API client config must not be null");
+        }
+        this.apiClient = apiClient;
+        return this;
+    }
+
+    /**
+     * Share fetched cities with other SDK instances, e.g. other replicas of a service, through a
+     * second-level cache consulted before each API call
+     * @param sharedCache Shared cache, null to disable
+     * @param timeout Maximum wait for a read, after which the lookup goes to the API; must be positive
+     * @return This config
+     */
+    public WeatherSDKConfig withSharedCache(SharedCache sharedCache, Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Shared cache timeout must be positive: " + timeout);
+        }
+        this.sharedCache = sharedCache;
+        this.sharedCacheTimeout = timeout;
+        return this;
+    }
+
+    private static Duration requireNonNegative(Duration duration, String name) {
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException(name + " duration must not be negative: " + duration);
+        }
+        return duration;
+    }
+
+    public int getCacheSize() {return cacheSize;}
+    public Duration getTtl() {return ttl;}
+    public boolean isTtlAlignedToMeasurement() {return ttlAlignedToMeasurement;}
+    public Duration getRefreshAhead() {return refreshAhead;}
+    public int getRefreshParallelism() {return refreshParallelism;}
+    public Duration getStaleWhileRevalidate() {return staleWhileRevalidate;}
+    public Duration getStaleIfError() {return staleIfError;}
+    public Path getPersistentCache() {return persistentCache;}
+    public WeatherSDKListener getListener() {return listener;}
+    public int getRateLimit() {return rateLimit;}
+    public int getNegativeCacheSize() {return negativeCacheSize;}
+    public Duration getNegativeCacheTtl() {return negativeCacheTtl;}
+    public CircuitBreakerConfig getCircuitBreaker() {return circuitBreaker;}
+    public double getHedgePercentile() {return hedgePercentile;}
+    public double getMaxHedgeShare() {return maxHedgeShare;}
+    public ApiClientConfig getApiClient() {return apiClient;}
+    public SharedCache getSharedCache() {return sharedCache;}
+    public Duration getSharedCacheTimeout() {return sharedCacheTimeout;}
+    public double getCoordinateRadiusKm() {return coordinateRadiusKm;}
+    public boolean isCompactStorage() {return compactStorage;}
+    public Executor getChangeExecutor() {return changeExecutor;}
+    public int getChangeBufferSize() {return changeBufferSize;}
+}
@@ -4,7 +4,59 @@ package com.levelxcode;
  * Custom exception for SDK-related errors.
  */
 public class WeatherSDKException extends Exception {
+    /**
+     * Status used when the request failed before an HTTP response was received
+     */
+    public static final int NETWORK_ERROR = 0;
+
+    /**
+     * Status used when the error is not related to an upstream response
+     */
+    public static final int NO_STATUS = -1;
+
+    /**
+     * Status used when the request was not sent because the circuit breaker is open
+     */
+    public static final int CIRCUIT_OPEN = -2;
+
+    private final int statusCode;
+    private final long retryAfterMillis;
+
     public WeatherSDKException(String message) {
+        this(message, NO_STATUS);
+    }
+
+    public WeatherSDKException(String message, int statusCode) {
+        this(message, statusCode, -1);
+    }
+
+    public WeatherSDKException(String message, int statusCode, long retryAfterMillis) {
         super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Get HTTP status of the failed upstream response
+     * @return HTTP status, {@link #NETWORK_ERROR}, {@link #CIRCUIT_OPEN} or {@link #NO_STATUS}
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Get how long upstream asked to wait before retrying, from the Retry-After header
+     * @return Delay in milliseconds, or -1 if not given
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * Check if the error was caused by upstream being unavailable (network error, 429, 5xx
+     * or open circuit breaker) rather than by the request itself
+     */
+    public boolean isUpstreamFailure() {
+        return statusCode == NETWORK_ERROR || statusCode == CIRCUIT_OPEN || statusCode == 429 || statusCode >= 500;
     }
 }
@@ -0,0 +1,139 @@
+package com.levelxcode;
+
+/**
+ * Receives SDK events, for example to bridge them to a metrics backend.
+ * <p>
+ * Every method has an empty default, so implementations only override the events
+ * they need. Methods are called on the thread that caused the event, including
+ * request threads and HTTP client threads, and must return quickly without throwing.
+ * Counters and histograms for all events are also kept by {@link WeatherSDKMetrics}.
+ */
+public interface WeatherSDKListener {
+    /**
+     * Listener ignoring all events
+     */
+    WeatherSDKListener NONE = new WeatherSDKListener() {
+    };
+
+    /**
+     * Listener printing background failures, which no caller sees otherwise, on standard error
+     */
+    WeatherSDKListener STANDARD_ERROR = new WeatherSDKListener() {
+        @Override
+        public void onRefreshFailure(String city, WeatherSDKException error) {
+            System.err.println("Failed to refresh city " + city + ": " + error.getMessage());
+        }
+
+        @Override
+        public void onRefreshCycleFailure(WeatherSDKException error) {
+            System.err.println(error.getMessage());
+        }
+
+        @Override
+        public void onPersistenceFailure(WeatherSDKException error) {
+            System.err.println(error.getMessage());
+        }
+    };
+
+    /**
+     * A lookup was answered from a valid cache entry
+     * @param city Normalized city name
+     */
+    default void onCacheHit(String city) {
+    }
+
+    /**
+     * A lookup found no valid cache entry
+     * @param city Normalized city name
+     */
+    default void onCacheMiss(String city) {
+    }
+
+    /**
+     * A lookup was rejected because the city is remembered as not found
+     * @param city Normalized city name
+     */
+    default void onNegativeCacheHit(String city) {
+    }
+
+    /**
+     * A lookup missed both the weather cache and the negative cache and goes upstream
+     * @param city Normalized city name
+     */
+    default void onNegativeCacheMiss(String city) {
+    }
+
+    /**
+     * An entry was dropped to keep the cache within its capacity
+     * @param city Normalized city name
+     */
+    default void onEviction(String city) {
+    }
+
+    /**
+     * An entry was dropped because it was too old to be served
+     * @param city Normalized city name
+     */
+    default void onExpiration(String city) {
+    }
+
+    /**
+     * An upstream request completed
+     * @param statusCode 200 on success, otherwise {@link WeatherSDKException#getStatusCode()} of the failure
+     * @param latencyNanos Time from sending the request to the parsed result
+     */
+    default void onUpstreamResponse(int statusCode, long latencyNanos) {
+    }
+
+    /**
+     * The circuit breaker guarding upstream requests changed state
+     * @param from Previous state
+     * @param to New state
+     */
+    default void onCircuitStateChange(CircuitState from, CircuitState to) {
+    }
+
+    /**
+     * A POLLING mode refresh pass finished
+     * @param cities Number of cities refreshed
+     * @param durationNanos Time taken by the pass
+     */
+    default void onRefreshCycle(int cities, long durationNanos) {
+    }
+
+    /**
+     * A city could not be refreshed in POLLING mode
+     * @param city Normalized city name
+     * @param error Failure of the refresh
+     */
+    default void onRefreshFailure(String city, WeatherSDKException error) {
+    }
+
+    /**
+     * A POLLING mode refresh pass could not be started; the next one retries
+     * @param error Failure of the pass
+     */
+    default void onRefreshCycleFailure(WeatherSDKException error) {
+    }
+
+    /**
+     * The persistent cache file could not be read or written; the cache keeps working in memory
+     * @param error Failure of the file access
+     */
+    default void onPersistenceFailure(WeatherSDKException error) {
+    }
+
+    /**
+     * An API response body was parsed
+     * @param nanos Time taken by parsing
+     */
+    default void onParse(long nanos) {
+    }
+
+    /**
+     * Weather data was serialized to JSON
+     * @param nanos Time taken by serialization
+     */
+    default void onSerialize(long nanos) {
+    }
+}
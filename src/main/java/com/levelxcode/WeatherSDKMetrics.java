@@ -0,0 +1,320 @@
+package com.levelxcode;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of one SDK instance.
+ * <p>
+ * Every event is counted with contention-free adders and then passed to the configured
+ * {@link WeatherSDKListener}. Values are read without locking, so a report taken while
+ * requests run may mix slightly different moments.
+ */
+public final class WeatherSDKMetrics {
+    private final WeatherSDKListener listener;
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder negativeMisses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder inFlightRequests = new LongAdder();
+    private final LongAdder circuitOpens = new LongAdder();
+    private final LongAdder circuitRejections = new LongAdder();
+    private final LongAdder hedgedRequests = new LongAdder();
+    private final LongAdder droppedChanges = new LongAdder();
+    private final LongAdder sharedCacheHits = new LongAdder();
+    private final LongAdder sharedCacheMisses = new LongAdder();
+    private final LongAdder sharedCacheErrors = new LongAdder();
+    private final LongAdder persistenceFailures = new LongAdder();
+    private final ConcurrentHashMap<Integer, LatencyHistogram> upstreamLatency = new ConcurrentHashMap<>();
+    private final LatencyWindow recentSuccessLatency = new LatencyWindow(Duration.ofMinutes(1), 6);
+    private final LatencyHistogram refreshCycles = new LatencyHistogram();
+    private final AtomicLong lastRefreshCycleNanos = new AtomicLong();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+    private final LatencyHistogram serializeTime = new LatencyHistogram();
+
+    /**
+     * Initialize metrics forwarding events to a listener
+     * @param listener Receiver of all events
+     */
+    WeatherSDKMetrics(WeatherSDKListener listener) {
+        this.listener = listener;
+    }
+
+    void recordHit(String city) {
+        cacheHits.increment();
+        listener.onCacheHit(city);
+    }
+
+    void recordMiss(String city) {
+        cacheMisses.increment();
+        listener.onCacheMiss(city);
+    }
+
+    void recordNegativeHit(String city) {
+        negativeHits.increment();
+        listener.onNegativeCacheHit(city);
+    }
+
+    void recordNegativeMiss(String city) {
+        negativeMisses.increment();
+        listener.onNegativeCacheMiss(city);
+    }
+
+    void recordEviction(String city) {
+        evictions.increment();
+        listener.onEviction(city);
+    }
+
+    void recordExpiration(String city) {
+        expirations.increment();
+        listener.onExpiration(city);
+    }
+
+    /**
+     * Mark an upstream request as started; must be followed by {@link #recordUpstreamResponse}
+     * @return Start time to pass to {@link #recordUpstreamResponse}
+     */
+    long upstreamStarted() {
+        inFlightRequests.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the end of an upstream request started with {@link #upstreamStarted}
+     * @param startNanos Value returned by {@link #upstreamStarted}
+     * @param error Failure of the request, or null on success
+     * @return Latency of the request in nanoseconds
+     */
+    long recordUpstreamResponse(long startNanos, Throwable error) {
+        long latency = System.nanoTime() - startNanos;
+        inFlightRequests.decrement();
+        int statusCode = error == null ? 200
+                : error instanceof WeatherSDKException sdkException ? sdkException.getStatusCode()
+                : WeatherSDKException.NO_STATUS;
+        upstreamLatency.computeIfAbsent(statusCode, code -> new LatencyHistogram()).record(latency);
+        if (error == null) {
+            recentSuccessLatency.record(latency, startNanos + latency);
+        }
+        listener.onUpstreamResponse(statusCode, latency);
+        return latency;
+    }
+
+    /**
+     * Record the end of an upstream request that was cancelled, e.g. the slower of a hedged pair
+     */
+    void recordUpstreamCancelled() {
+        inFlightRequests.decrement();
+    }
+
+    /**
+     * Get latencies of upstream successes within the last minute
+     */
+    LatencyWindow recentSuccessLatency() {
+        return recentSuccessLatency;
+    }
+
+    void recordHedge() {
+        hedgedRequests.increment();
+    }
+
+    void recordChangeDropped() {
+        droppedChanges.increment();
+    }
+
+    void recordSharedCacheLookups(int hits, int misses) {
+        sharedCacheHits.add(hits);
+        sharedCacheMisses.add(misses);
+    }
+
+    void recordSharedCacheError() {
+        sharedCacheErrors.increment();
+    }
+
+    void recordCircuitTransition(CircuitState from, CircuitState to) {
+        if (to == CircuitState.OPEN) {
+            circuitOpens.increment();
+        }
+        listener.onCircuitStateChange(from, to);
+    }
+
+    void recordCircuitRejection() {
+        circuitRejections.increment();
+    }
+
+    void recordRefreshCycle(int cities, long durationNanos) {
+        refreshCycles.record(durationNanos);
+        lastRefreshCycleNanos.set(durationNanos);
+        listener.onRefreshCycle(cities, durationNanos);
+    }
+
+    void recordRefreshFailure(String city, WeatherSDKException error) {
+        listener.onRefreshFailure(city, error);
+    }
+
+    void recordRefreshCycleFailure(WeatherSDKException error) {
+        listener.onRefreshCycleFailure(error);
+    }
+
+    void recordPersistenceFailure(WeatherSDKException error) {
+        persistenceFailures.increment();
+        listener.onPersistenceFailure(error);
+    }
+
+    void recordParse(long nanos) {
+        parseTime.record(nanos);
+        listener.onParse(nanos);
+    }
+
+    void recordSerialize(long nanos) {
+        serializeTime.record(nanos);
+        listener.onSerialize(nanos);
+    }
+
+    /**
+     * Get number of lookups answered from a valid cache entry
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Get number of lookups that found no valid cache entry
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Get number of lookups rejected because the city is remembered as not found
+     */
+    public long getNegativeCacheHits() {
+        return negativeHits.sum();
+    }
+
+    /**
+     * Get number of cache misses not found in the negative cache either, 0 if it is disabled
+     */
+    public long getNegativeCacheMisses() {
+        return negativeMisses.sum();
+    }
+
+    /**
+     * Get number of entries dropped to keep the cache within its capacity
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get number of entries dropped because they were too old to be served
+     */
+    public long getExpirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * Get number of upstream requests currently running
+     */
+    public long getInFlightRequests() {
+        return inFlightRequests.sum();
+    }
+
+    /**
+     * Get number of times the circuit breaker opened
+     */
+    public long getCircuitOpens() {
+        return circuitOpens.sum();
+    }
+
+    /**
+     * Get number of upstream requests not sent because the circuit breaker was open
+     */
+    public long getCircuitRejections() {
+        return circuitRejections.sum();
+    }
+
+    /**
+     * Get number of hedge requests sent because the first request was slow
+     */
+    public long getHedgedRequests() {
+        return hedgedRequests.sum();
+    }
+
+    /**
+     * Get number of change events not delivered because a subscriber's buffer was full
+     */
+    public long getDroppedChanges() {
+        return droppedChanges.sum();
+    }
+
+    /**
+     * Get number of cities read from the shared cache after a local miss
+     */
+    public long getSharedCacheHits() {
+        return sharedCacheHits.sum();
+    }
+
+    /**
+     * Get number of cities looked up in the shared cache and not found there
+     */
+    public long getSharedCacheMisses() {
+        return sharedCacheMisses.sum();
+    }
+
+    /**
+     * Get number of shared cache calls that failed, timed out or returned unreadable data
+     */
+    public long getSharedCacheErrors() {
+        return sharedCacheErrors.sum();
+    }
+
+    /**
+     * Get number of failed reads and writes of the persistent cache file
+     */
+    public long getPersistenceFailures() {
+        return persistenceFailures.sum();
+    }
+
+    /**
+     * Get upstream latency by outcome
+     * @return Histograms keyed by 200 for success, otherwise by {@link WeatherSDKException#getStatusCode()}
+     */
+    public Map<Integer, LatencyHistogram> getUpstreamLatency() {
+        return Collections.unmodifiableMap(new TreeMap<>(upstreamLatency));
+    }
+
+    /**
+     * Get durations of POLLING mode refresh passes that refreshed at least one city
+     */
+    public LatencyHistogram getRefreshCycles() {
+        return refreshCycles;
+    }
+
+    /**
+     * Get duration of the most recent refresh pass in nanoseconds, 0 if none ran yet
+     */
+    public long getLastRefreshCycleNanos() {
+        return lastRefreshCycleNanos.get();
+    }
+
+    /**
+     * Get time spent parsing API responses
+     */
+    public LatencyHistogram getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Get time spent serializing weather data to JSON
+     */
+    public LatencyHistogram getSerializeTime() {
+        return serializeTime;
+    }
+}
@@ -0,0 +1,177 @@
+package com.levelxcode;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resources shared by many WeatherSDK instances, typically one per tenant API key.
+ * <p>
+ * All SDKs created from a runtime send requests over one HttpClient and run expiry, polling
+ * and rate limiter timers on one small scheduler pool, instead of each holding its own
+ * connection pool and threads. Tasks on the pool never wait for upstream: refresh cycles
+ * run asynchronously, so slow tenants cannot hold up the others. API keys, rate limits,
+ * circuit breakers and metrics stay per SDK.
+ * <p>
+ * When the tenants' keys may see each other's data, for example keys of one account,
+ * the runtime can also share the data: all its SDKs then use one cache, keyed by city,
+ * and a city requested by several tenants is fetched once, with the key of whichever
+ * tenant asked first. Tenants that waited on that fetch get its data but never its
+ * failures; they fetch again with their own key instead. Background refreshes of the
+ * shared cache are all sent by one polling SDK, the earliest still registered, so that
+ * tenant's key, rate limit and request quota pay for every tenant's cities. Otherwise
+ * each SDK keeps its own cache and fetches with its own key.
+ */
+public final class WeatherSDKRuntime implements AutoCloseable {
+    private static final int SCHEDULER_THREADS = 2;
+
+    private final ApiClientConfig apiClientConfig;
+    private final HttpClient httpClient;
+    private final boolean ownsHttpClient;
+    private final ScheduledExecutorService scheduler;
+    private final WeatherSDKMetrics sharedMetrics;
+    private final CacheScope sharedScope;
+    private final Set<WeatherSDK> sdks = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * Initialize a runtime with default transport options, where every SDK keeps its own cache
+     */
+    public WeatherSDKRuntime() {
+        this(new ApiClientConfig(), null);
+    }
+
+    /**
+     * Initialize a runtime
+     * @param apiClient Transport options of the shared HTTP client
+     * @param sharedData Cache options of the cache shared by all SDKs, null for a cache per SDK
+     */
+    public WeatherSDKRuntime(ApiClientConfig apiClient, WeatherSDKConfig sharedData) {
+        this.ownsHttpClient = apiClient.getHttpClient() == null;
+        this.httpClient = ownsHttpClient ? ApiClient.newHttpClient(apiClient) : apiClient.getHttpClient();
+        this.apiClientConfig = new ApiClientConfig()
+                .withHttps(apiClient.isHttps())
+                .withCompression(apiClient.isCompression())
+                .withBaseUrl(apiClient.getBaseUrl())
+                .withHttpClient(httpClient);
+        AtomicInteger threads = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, r -> {
+            Thread thread = new Thread(r, "weather-sdk-runtime-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sharedData == null) {
+            this.sharedMetrics = null;
+            this.sharedScope = null;
+        } else {
+            this.sharedMetrics = new WeatherSDKMetrics(sharedData.getListener());
+            this.sharedScope = new CacheScope(sharedData, sharedMetrics);
+            sharedScope.start(scheduler);
+        }
+    }
+
+    /**
+     * Create an SDK for a tenant with default tuning options
+     * @param apiKey OpenWeatherMap API key of the tenant
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @return New SDK using this runtime's resources
+     */
+    public WeatherSDK newSDK(String apiKey, WeatherSDK.Mode mode) {
+        return newSDK(apiKey, mode, new WeatherSDKConfig());
+    }
+
+    /**
+     * Create an SDK for a tenant
+     * @param apiKey OpenWeatherMap API key of the tenant
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param config Tuning options; the transport options are the runtime's, and with shared
+     *               data so are the cache options (size, TTL, stale retention, storage,
+     *               persistence, negative cache, coordinate radius and change delivery)
+     * @return New SDK using this runtime's resources
+     * @throws IllegalStateException If the runtime is closed
+     */
+    public WeatherSDK newSDK(String apiKey, WeatherSDK.Mode mode, WeatherSDKConfig config) {
+        WeatherSDKMetrics metrics = new WeatherSDKMetrics(config.getListener());
+        return register(new WeatherSDK(apiKey, mode, config,
+                new ApiClient(apiKey, apiClientConfig, metrics), metrics, this));
+    }
+
+    /**
+     * Create an SDK for a tenant with a preconfigured API client
+     * @param apiKey OpenWeatherMap API key of the tenant
+     * @param mode Operation mode (ON_DEMAND/POLLING)
+     * @param config Tuning options
+     * @param apiClient Client used for upstream requests
+     * @return New SDK using this runtime's scheduler and cache
+     */
+    WeatherSDK newSDK(String apiKey, WeatherSDK.Mode mode, WeatherSDKConfig config, ApiClient apiClient) {
+        return register(new WeatherSDK(apiKey, mode, config, apiClient,
+                new WeatherSDKMetrics(config.getListener()), this));
+    }
+
+    private WeatherSDK register(WeatherSDK sdk) {
+        sdks.add(sdk);
+        if (closed) {
+            sdk.shutdown();
+            throw new IllegalStateException("Runtime is closed");
+        }
+        return sdk;
+    }
+
+    /**
+     * Check if the SDKs of this runtime share one cache
+     */
+    public boolean isDataShared() {
+        return sharedScope != null;
+    }
+
+    /**
+     * Get expiration, eviction and change delivery counters of the shared cache.
+     * Requests, hits and misses are counted by each SDK's own metrics.
+     * @return Live metrics, null if data is not shared
+     */
+    public WeatherSDKMetrics getSharedMetrics() {
+        return sharedMetrics;
+    }
+
+    /**
+     * Get number of SDKs created from this runtime and not shut down yet
+     */
+    public int getSDKCount() {
+        return sdks.size();
+    }
+
+    ScheduledExecutorService getScheduler() {return scheduler;}
+    CacheScope getSharedScope() {return sharedScope;}
+
+    /**
+     * Forget an SDK that was shut down
+     * @param sdk SDK created from this runtime
+     */
+    void release(WeatherSDK sdk) {
+        sdks.remove(sdk);
+    }
+
+    /**
+     * Shut down all SDKs of this runtime, then the shared cache, scheduler and HTTP client.
+     * An HTTP client passed in the transport options is left open.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (WeatherSDK sdk : new ArrayList<>(sdks)) {
+            sdk.shutdown();
+        }
+        if (sharedScope != null) {
+            sharedScope.close();
+        }
+        scheduler.shutdown();
+        if (ownsHttpClient) {
+            httpClient.close();
+        }
+    }
+}
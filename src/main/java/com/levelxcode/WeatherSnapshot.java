@@ -0,0 +1,56 @@
+package com.levelxcode;
+
+/**
+ * Immutable view of weather data for a city.
+ * <p>
+ * Returned by the typed lookups of WeatherSDK. A snapshot is created once per cached
+ * entry and shared by all callers, so reading it costs no parsing or allocation.
+ *
+ * @param mainWeather Weather condition group, e.g. "Clouds"
+ * @param description Condition description, e.g. "scattered clouds"
+ * @param temp Temperature in Kelvin
+ * @param feelsLike Perceived temperature in Kelvin
+ * @param visibility Visibility in meters
+ * @param windSpeed Wind speed in meters per second
+ * @param datetime Time of measurement, Unix seconds UTC
+ * @param sunrise Sunrise time, Unix seconds UTC
+ * @param sunset Sunset time, Unix seconds UTC
+ * @param timezone Shift from UTC in seconds
+ * @param cityName City name as returned by the API
+ * @param cityId OpenWeatherMap city ID, 0 if unknown
+ * @param timestamp Time the data was fetched, epoch milliseconds
+ * @param expiresAt Time the data becomes outdated, epoch milliseconds
+ */
+public record WeatherSnapshot(
+        String mainWeather,
+        String description,
+        double temp,
+        double feelsLike,
+        int visibility,
+        double windSpeed,
+        long datetime,
+        long sunrise,
+        long sunset,
+        int timezone,
+        String cityName,
+        long cityId,
+        long timestamp,
+        long expiresAt) {
+
+    /**
+     * Create a snapshot of data with the default TTL
+     */
+    public WeatherSnapshot(String mainWeather, String description, double temp, double feelsLike, int visibility,
+                           double windSpeed, long datetime, long sunrise, long sunset, int timezone, String cityName,
+                           long cityId, long timestamp) {
+        this(mainWeather, description, temp, feelsLike, visibility, windSpeed, datetime, sunrise, sunset, timezone,
+                cityName, cityId, timestamp, timestamp + WeatherData.TTL_MILLIS);
+    }
+
+    /**
+     * Check if data is still valid (not past its expiry time)
+     */
+    public boolean isValid() {
+        return System.currentTimeMillis() < expiresAt;
+    }
+}
@@ -0,0 +1,293 @@
+package com.levelxcode;
+
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ApiClient response parsing
+ */
+class ApiClientTest {
+    private static final String LONDON = """
+            {"coord":{"lon":-0.1257,"lat":51.5085},
+             "weather":[{"id":802,"main":"Clouds","description":"scattered clouds","icon":"03d"}],
+             "main":{"temp":281.6,"feels_like":278.9,"pressure":1012,"humidity":81},
+             "visibility":10000,"wind":{"speed":4.6,"deg":250},
+             "dt":1675744800,"sys":{"country":"GB","sunrise":1675751262,"sunset":1675787560},
+             "timezone":0,"id":2643743,"name":"London","cod":200}
+            """;
+
+    private static final String GROUP = """
+            {"cnt":2,"list":[
+             {"weather":[{"main":"Clear","description":"clear sky"}],
+              "main":{"temp":290.1,"feels_like":289.5},"visibility":10000,"wind":{"speed":1.5},
+              "dt":1675744800,"sys":{"country":"JP","timezone":32400,"sunrise":1675720000,"sunset":1675758000},
+              "id":1851632,"name":"Shuzenji"},
+             {"weather":[{"main":"Rain","description":"light rain"}],
+              "main":{"temp":275.3,"feels_like":272.0},"visibility":8000,"wind":{"speed":6.2},
+              "dt":1675744900,"sys":{"country":"GB","timezone":0,"sunrise":1675751262,"sunset":1675787560},
+              "id":2643743,"name":"London"}]}
+            """;
+
+    private final ApiClient apiClient = new ApiClient("test_key");
+
+    /**
+     * Tests single city response parsing
+     * - Verifies all used fields are read
+     * - Checks the city ID is captured
+     */
+    @Test
+    void shouldParseWeatherResponse() throws Exception {
+        WeatherData data = apiClient.parseWeatherData(LONDON);
+
+        assertEquals("Clouds", data.getMainWeather());
+        assertEquals("scattered clouds", data.getDescription());
+        assertEquals(281.6, data.getTemp());
+        assertEquals(278.9, data.getFeelsLike());
+        assertEquals(10000, data.getVisibility());
+        assertEquals(4.6, data.getWindSpeed());
+        assertEquals(1675744800L, data.getDatetime());
+        assertEquals(1675751262L, data.getSunrise());
+        assertEquals(1675787560L, data.getSunset());
+        assertEquals(0, data.getTimezone());
+        assertEquals("London", data.getCityName());
+        assertEquals(2643743L, data.getCityId());
+        assertEquals(51.5085, data.getLatitude());
+        assertEquals(-0.1257, data.getLongitude());
+        assertTrue(data.isValid(), "Freshly parsed data should be valid");
+    }
+
+    /**
+     * Tests group response parsing
+     * - Verifies every listed city is returned
+     * - Checks timezone is read from the "sys" object
+     */
+    @Test
+    void shouldParseGroupResponse() throws Exception {
+        List<WeatherData> data = apiClient.parseGroupWeatherData(GROUP);
+
+        assertEquals(2, data.size());
+        assertEquals(1851632L, data.get(0).getCityId());
+        assertEquals(32400, data.get(0).getTimezone());
+        assertEquals("light rain", data.get(1).getDescription());
+        assertEquals(8000, data.get(1).getVisibility());
+    }
+
+    /**
+     * Tests parsing of incomplete responses
+     * - Verifies missing fields raise WeatherSDKException
+     */
+    @Test
+    void shouldRejectIncompleteResponse() {
+        Exception exception = assertThrows(WeatherSDKException.class, () ->
+                apiClient.parseWeatherData("{\"weather\":[],\"name\":\"London\"}")
+        );
+        assertTrue(exception.getMessage().startsWith("Failed to parse weather data"));
+    }
+
+    /**
+     * Tests parity with a JSON tree read of the same response
+     * - Parses the fixture with org.json
+     * - Verifies the streaming parser reads identical values
+     */
+    @Test
+    void shouldMatchJsonTreeValues() throws Exception {
+        JSONObject root = new JSONObject(LONDON);
+        WeatherData data = apiClient.parseWeatherData(LONDON);
+
+        assertEquals(root.getJSONObject("main").getDouble("temp"), data.getTemp());
+        assertEquals(root.getJSONObject("main").getDouble("feels_like"), data.getFeelsLike());
+        assertEquals(root.getJSONObject("wind").getDouble("speed"), data.getWindSpeed());
+        assertEquals(root.getLong("dt"), data.getDatetime());
+        assertEquals(root.getJSONArray("weather").getJSONObject(0).getString("description"), data.getDescription());
+    }
+
+    /**
+     * Tests string decoding and skipping of unused values
+     * - Uses escapes, non-ASCII text and nested unknown members
+     * - Verifies used fields are decoded correctly
+     */
+    @Test
+    void shouldDecodeEscapesAndSkipUnknownMembers() throws Exception {
+        String json = """
+                {"extra":{"nested":[1,{"a":"}\\""},true,null]},"weather":[{"main":"Snow","description":"light \\"snow\\""},{"main":"Fog"}],
+                 "main":{"temp":-3.25e0,"feels_like":270},"visibility":9999,"wind":{"speed":0.5},
+                 "dt":1675744800,"sys":{"sunrise":1,"sunset":2},"timezone":-18000,"name":"S\\u00e3o Paulo – Zentrum"}
+                """;
+        WeatherData data = apiClient.parseWeatherData(json);
+
+        assertEquals("Snow", data.getMainWeather());
+        assertEquals("light \"snow\"", data.getDescription());
+        assertEquals(-3.25, data.getTemp());
+        assertEquals(270.0, data.getFeelsLike());
+        assertEquals(-18000, data.getTimezone());
+        assertEquals("S\u00e3o Paulo \u2013 Zentrum", data.getCityName());
+    }
+
+    /**
+     * Tests parity with the org.json parser on unusual values
+     * - Reads numbers sent as strings and bare words such as NaN
+     * - Verifies values of the wrong type fail with the same message, naming the value's class
+     * - Checks duplicate keys in read objects are rejected like org.json does
+     */
+    @Test
+    void shouldConvertValuesLikeJsonTree() {
+        String[][] replacements = {
+                {"\"temp\":281.6", "\"temp\":\"280.32\""},
+                {"\"temp\":281.6", "\"temp\":NaN"},
+                {"\"feels_like\":278.9", "\"feels_like\":\"-Infinity\""},
+                {"\"dt\":1675744800", "\"dt\":\"1675744800\""},
+                {"\"sunrise\":1675751262", "\"sunrise\":1.6757512629e9"},
+                {"\"cod\":200", "\"cod\":ok"},
+                {"\"id\":2643743", "\"id\":\"unknown\""},
+                {"\"visibility\":10000", "\"visibility\":\"1e4\""},
+                {"\"speed\":4.6", "\"speed\":true"},
+                {"\"speed\":4.6", "\"speed\":null"},
+                {"\"name\":\"London\"", "\"name\":123"},
+                {"\"name\":\"London\"", "\"name\":1.50"},
+                {"\"main\":{", "\"main\":\"x\",\"ignored\":{"},
+                {"\"weather\":[{\"id\":802,", "\"weather\":[[1],{\"id\":802,"},
+                {"\"temp\":281.6", "\"temp\":281.6,\"temp\":1"},
+                {"\"dt\":1675744800", "\"dt\":1675744800,\"dt\":1"},
+        };
+        for (String[] replacement : replacements) {
+            String json = LONDON.replace(replacement[0], replacement[1]);
+            assertNotEquals(LONDON, json);
+            String expected;
+            try {
+                expected = fields(parseWithJsonTree(json));
+            } catch (Exception e) {
+                expected = "Failed to parse weather data: " + e.getMessage();
+            }
+            String actual;
+            try {
+                actual = fields(apiClient.parseWeatherData(json));
+            } catch (WeatherSDKException e) {
+                actual = e.getMessage();
+            }
+            // org.json adds line and column to the position of syntax errors
+            assertTrue(expected.equals(actual) || expected.startsWith(actual + " [character "),
+                    replacement[1] + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * Read the fields stored in WeatherData with org.json, as the SDK did before
+     */
+    private static WeatherData parseWithJsonTree(String json) {
+        JSONObject root = new JSONObject(json);
+        JSONObject weather = root.getJSONArray("weather").getJSONObject(0);
+        JSONObject main = root.getJSONObject("main");
+        JSONObject wind = root.getJSONObject("wind");
+        JSONObject sys = root.getJSONObject("sys");
+        WeatherData data = new WeatherData();
+        data.setMainWeather(weather.getString("main"));
+        data.setDescription(weather.getString("description"));
+        data.setTemp(main.getDouble("temp"));
+        data.setFeelsLike(main.getDouble("feels_like"));
+        data.setVisibility(root.getInt("visibility"));
+        data.setWindSpeed(wind.getDouble("speed"));
+        data.setDatetime(root.getLong("dt"));
+        data.setSunrise(sys.getLong("sunrise"));
+        data.setSunset(sys.getLong("sunset"));
+        data.setTimezone(root.has("timezone") ? root.getInt("timezone") : sys.getInt("timezone"));
+        data.setCityName(root.getString("name"));
+        data.setCityId(root.optLong("id"));
+        return data;
+    }
+
+    private static String fields(WeatherData data) {
+        return List.of(data.getMainWeather(), data.getDescription(), data.getTemp(), data.getFeelsLike(),
+                data.getVisibility(), data.getWindSpeed(), data.getDatetime(), data.getSunrise(), data.getSunset(),
+                data.getTimezone(), data.getCityName(), data.getCityId()).toString();
+    }
+
+    /**
+     * Tests error message for a missing field
+     * - Verifies the message names the missing field like the previous parser did
+     */
+    @Test
+    void shouldReportMissingField() {
+        String json = LONDON.replace("\"visibility\":10000,", "");
+        Exception exception = assertThrows(WeatherSDKException.class, () -> apiClient.parseWeatherData(json));
+        assertEquals("Failed to parse weather data: JSONObject[\"visibility\"] not found.", exception.getMessage());
+    }
+
+    /**
+     * Tests decoding of compressed response bodies
+     * - Verifies gzip, zlib-wrapped and raw deflate bodies decode to the original
+     * - Checks identity and missing encodings pass the body through
+     * - Ensures unknown encodings and corrupt bodies fail with WeatherSDKException
+     */
+    @Test
+    void shouldDecodeCompressedBody() throws Exception {
+        byte[] body = LONDON.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(body);
+        }
+        ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(zlib)) {
+            out.write(body);
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(body);
+        }
+
+        assertArrayEquals(body, ApiClient.decode(gzip.toByteArray(), "gzip"));
+        assertArrayEquals(body, ApiClient.decode(zlib.toByteArray(), "Deflate"));
+        assertArrayEquals(body, ApiClient.decode(raw.toByteArray(), "deflate"));
+        assertSame(body, ApiClient.decode(body, null));
+        assertSame(body, ApiClient.decode(body, "identity"));
+        assertEquals("London", apiClient.parseWeatherData(ApiClient.decode(gzip.toByteArray(), "gzip")).getCityName());
+
+        assertThrows(WeatherSDKException.class, () -> ApiClient.decode(body, "br"));
+        assertThrows(WeatherSDKException.class, () -> ApiClient.decode(body, "gzip"));
+    }
+
+    /**
+     * Tests requests to a configured API root
+     * - Verifies the request goes to the base URL with the city and key in the query
+     * - Checks the response of the local server is parsed
+     */
+    @Test
+    void shouldFetchFromConfiguredBaseUrl() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        AtomicReference<String> requested = new AtomicReference<>();
+        server.createContext("/data/2.5/weather", exchange -> {
+            requested.set(exchange.getRequestURI().toString());
+            byte[] body = LONDON.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        try {
+            ApiClient client = new ApiClient("test_key", new ApiClientConfig()
+                    .withBaseUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/data/2.5"));
+
+            WeatherData data = client.fetchWeatherData("London");
+
+            assertEquals("London", data.getCityName());
+            assertEquals("/data/2.5/weather?q=London&appid=test_key", requested.get());
+        } finally {
+            server.stop(0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new ApiClientConfig().withBaseUrl("localhost:8080"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for per-city change publishing
+ */
+class ChangePublisherTest {
+
+    /**
+     * Tests the lifetime of per-city publishers
+     * - Verifies looking up publishers without subscribing creates none
+     * - Checks a city's publisher delivers events while subscribed and is dropped after cancelling
+     * - Ensures subscribing after close completes the subscriber without keeping a publisher
+     */
+    @Test
+    void shouldKeepPublishersOnlyForSubscribedCities() throws Exception {
+        ChangePublisher changes = new ChangePublisher(Runnable::run, 4, new WeatherSDKMetrics(WeatherSDKListener.NONE));
+        for (int i = 0; i < 1000; i++) {
+            changes.forCity("city-" + i);
+        }
+        assertEquals(0, changes.getCityCount());
+
+        List<WeatherChange> received = new CopyOnWriteArrayList<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        changes.forCity("oslo").subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(WeatherChange change) {
+                received.add(change);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertEquals(1, changes.getCityCount());
+        assertTrue(changes.isWatched("oslo"));
+        changes.publish("oslo", weather(270.0), weather(271.0));
+        assertEquals(1, received.size());
+
+        subscription[0].cancel();
+        assertEquals(0, changes.getCityCount(), "Publisher should be dropped with its last subscriber");
+        assertFalse(changes.isWatched("oslo"));
+
+        changes.close();
+        CountDownLatch completed = new CountDownLatch(1);
+        changes.forCity("bergen").subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+            }
+
+            @Override
+            public void onNext(WeatherChange change) {
+            }
+
+            @Override
+            public void onError(Throwable error) {
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, changes.getCityCount());
+    }
+
+    private static WeatherData weather(double temp) {
+        WeatherData data = new WeatherData();
+        data.setCityName("Oslo");
+        data.setTemp(temp);
+        data.setTimestamp(System.currentTimeMillis());
+        return data;
+    }
+}
@@ -0,0 +1,48 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the circuit breaker guarding upstream requests
+ */
+class CircuitBreakerTest {
+
+    /**
+     * Tests late results in half-open state
+     * - Lets a request through, then opens the breaker with failures
+     * - Finishes the early request successfully while probing
+     * - Verifies it neither counts as a probe nor closes the breaker
+     * - Checks the breaker closes once the actual probe succeeds
+     */
+    @Test
+    void shouldIgnoreResultsFromBeforeOpening() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerConfig()
+                .withWindow(2, 2)
+                .withFailureRateThreshold(0.5)
+                .withOpenDuration(Duration.ofMillis(50))
+                .withHalfOpenProbes(1), new WeatherSDKMetrics(WeatherSDKListener.NONE));
+        WeatherSDKException unavailable = new WeatherSDKException("Service unavailable", 503);
+
+        long early = breaker.tryAcquire();
+        breaker.onResult(breaker.tryAcquire(), 1000, unavailable);
+        breaker.onResult(breaker.tryAcquire(), 1000, unavailable);
+        assertEquals(CircuitState.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        Thread.sleep(100);
+        long probe = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, probe);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState());
+        breaker.onResult(early, 1000, null);
+        assertEquals(CircuitState.HALF_OPEN, breaker.getState(), "A request sent before opening is no probe");
+        breaker.onCancelled(early);
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire(), "The probe should still hold its place");
+
+        breaker.onResult(probe, 1000, null);
+        assertEquals(CircuitState.CLOSED, breaker.getState());
+    }
+}
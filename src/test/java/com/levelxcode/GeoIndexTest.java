@@ -0,0 +1,62 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the spatial index of cached entries
+ */
+class GeoIndexTest {
+
+    /**
+     * Tests nearest-place queries
+     * - Verifies the nearest of several places within the radius is returned
+     * - Checks places just outside the radius are not matched
+     * - Ensures matches work across the antimeridian and near the poles
+     */
+    @Test
+    void shouldFindNearestPlaceWithinRadius() {
+        GeoIndex index = new GeoIndex(5);
+        index.put("berlin", 52.5244, 13.4105);
+        index.put("mitte", 52.5200, 13.4050);
+        index.put("fiji", -17.0, 179.99);
+        index.put("longyearbyen", 78.2232, 15.6267);
+
+        assertEquals("mitte", index.nearest(52.5190, 13.4040, key -> true));
+        assertEquals("berlin", index.nearest(52.5300, 13.4200, key -> true));
+        assertNull(index.nearest(52.5200, 13.5000, key -> true), "6.4 km away should not match");
+        assertEquals("fiji", index.nearest(-17.0, -179.99, key -> true));
+        assertEquals("longyearbyen", index.nearest(78.2300, 15.7500, key -> true));
+        assertEquals(4, index.size());
+    }
+
+    /**
+     * Tests index maintenance
+     * - Verifies keys failing the presence check are dropped during a query
+     * - Checks moved keys are only found at their new position, and at positions they were fetched for
+     */
+    @Test
+    void shouldDropAndMoveKeys() {
+        GeoIndex index = new GeoIndex(1);
+        index.put("a", 10, 10);
+        index.put("b", 10.001, 10.001);
+
+        assertEquals("b", index.nearest(10.001, 10.001, key -> !key.equals("x")));
+        assertEquals("a", index.nearest(10.001, 10.001, key -> !key.equals("b")));
+        assertEquals(1, index.size(), "Missing key should be dropped");
+
+        index.put("a", 20, 20);
+        assertNull(index.nearest(10, 10, key -> true));
+        assertEquals("a", index.nearest(20, 20, key -> true));
+
+        index.putQueried("a", 30, 30);
+        index.put("a", 20.001, 20.001);
+        assertEquals("a", index.nearest(30, 30, key -> true), "Queried position should survive a move");
+        index.remove("a");
+        assertNull(index.nearest(30, 30, key -> true));
+        index.putQueried("a", 30, 30);
+        assertEquals(0, index.size(), "Queried position alone should not index a key");
+        assertFalse(new GeoIndex(0).isEnabled());
+    }
+}
@@ -0,0 +1,61 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for latency histograms and the recent-latency window used for hedging
+ */
+class LatencyHistogramTest {
+
+    /**
+     * Tests percentile precision
+     * - Records latencies spread over several orders of magnitude
+     * - Verifies each reported percentile is at or at most 12.5% above the true value
+     */
+    @Test
+    void shouldReportPercentilesWithinOneEighth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        for (double percentile : new double[]{0.01, 0.5, 0.9, 0.95, 0.99, 1.0}) {
+            long exact = TimeUnit.MILLISECONDS.toNanos(Math.round(percentile * 1000));
+            long reported = histogram.getPercentileNanos(percentile);
+            assertTrue(reported >= exact && reported <= exact * 1.125,
+                    "p" + percentile + " reported " + reported + " for " + exact);
+        }
+        assertEquals(1000, histogram.getCount());
+    }
+
+    /**
+     * Tests the rotating window
+     * - Records slow latencies, then fast ones a window later
+     * - Verifies percentiles only reflect measurements within the window
+     * - Checks too few measurements report no percentile
+     */
+    @Test
+    void shouldForgetLatenciesOlderThanWindow() {
+        LatencyWindow window = new LatencyWindow(Duration.ofSeconds(60), 6);
+        long start = TimeUnit.HOURS.toNanos(1);
+        for (int i = 0; i < 20; i++) {
+            window.record(TimeUnit.SECONDS.toNanos(2), start);
+        }
+        long slow = window.getPercentileNanos(0.5, 20, start);
+        assertTrue(slow >= TimeUnit.SECONDS.toNanos(2), "Slow latencies should be reported: " + slow);
+
+        long later = start + TimeUnit.SECONDS.toNanos(65);
+        assertEquals(-1, window.getPercentileNanos(0.5, 20, later), "Old latencies should be forgotten");
+        for (int i = 0; i < 20; i++) {
+            window.record(TimeUnit.MILLISECONDS.toNanos(100), later);
+        }
+        long fast = window.getPercentileNanos(0.95, 20, later);
+        assertTrue(fast >= TimeUnit.MILLISECONDS.toNanos(100) && fast < TimeUnit.MILLISECONDS.toNanos(120),
+                "Only recent latencies should be reported: " + fast);
+    }
+}
@@ -0,0 +1,58 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the cache of unknown city names
+ */
+class NegativeCacheTest {
+
+    /**
+     * Tests eviction when full
+     * - Verifies the oldest names are dropped and the one just recorded is kept
+     * - Checks re-recording and forgetting names does not make the cache drop live ones early
+     * - Ensures other failures than 404 are not remembered
+     */
+    @Test
+    void shouldEvictOldestNames() {
+        NegativeCache cache = new NegativeCache(3, 60_000);
+        for (int i = 0; i < 10; i++) {
+            cache.record("bad-" + i, notFound());
+        }
+        assertNull(cache.get("bad-6"));
+        assertNotNull(cache.get("bad-7"));
+        assertNotNull(cache.get("bad-9"));
+
+        cache.record("bad-7", notFound());
+        cache.remove("bad-8");
+        cache.record("new", notFound());
+        assertNotNull(cache.get("bad-7"), "Re-recorded name should count as new");
+        assertNotNull(cache.get("bad-9"));
+        assertNotNull(cache.get("new"));
+
+        cache.record("down", new WeatherSDKException("Service unavailable", 503));
+        assertNull(cache.get("down"));
+    }
+
+    /**
+     * Tests expiry
+     * - Verifies expired names are dropped before live ones when recording
+     */
+    @Test
+    void shouldDropExpiredNamesFirst() throws Exception {
+        NegativeCache cache = new NegativeCache(2, 50);
+        cache.record("old", notFound());
+        Thread.sleep(100);
+        cache.record("a", notFound());
+        cache.record("b", notFound());
+        assertNull(cache.get("old"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+    }
+
+    private static WeatherSDKException notFound() {
+        return new WeatherSDKException("City not found", 404);
+    }
+}
@@ -0,0 +1,104 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the upstream rate limiter
+ */
+class RateLimiterTest {
+
+    /**
+     * Tests priority lanes
+     * - Spends the whole bucket
+     * - Queues a refresh before a lookup
+     * - Verifies the lookup is granted first once tokens come back
+     */
+    @Test
+    void shouldServeLookupsBeforeRefreshes() throws Exception {
+        RateLimiter limiter = new RateLimiter(2, TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(limiter.acquire(RateLimiter.Priority.ON_DEMAND).isDone());
+        assertTrue(limiter.acquire(RateLimiter.Priority.ON_DEMAND).isDone());
+
+        List<String> order = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> refresh = limiter.acquire(RateLimiter.Priority.BACKGROUND)
+                .thenRun(() -> order.add("refresh"));
+        CompletableFuture<Void> lookup = limiter.acquire(RateLimiter.Priority.ON_DEMAND)
+                .thenRun(() -> order.add("lookup"));
+        assertFalse(lookup.isDone(), "Empty bucket should make callers wait");
+
+        CompletableFuture.allOf(refresh, lookup).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("lookup", "refresh"), order);
+        limiter.shutdown();
+    }
+
+    /**
+     * Tests overload handling
+     * - Fills the lookup lane with a bucket's worth of waiting calls
+     * - Verifies the next call fails at once with a 429
+     */
+    @Test
+    void shouldRejectWhenLaneIsFull() {
+        RateLimiter limiter = new RateLimiter(1, TimeUnit.MINUTES.toNanos(1));
+        limiter.acquire(RateLimiter.Priority.ON_DEMAND);
+        limiter.acquire(RateLimiter.Priority.ON_DEMAND);
+
+        CompletableFuture<Void> rejected = limiter.acquire(RateLimiter.Priority.ON_DEMAND);
+        ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+        assertEquals(429, ((WeatherSDKException) error.getCause()).getStatusCode());
+        limiter.shutdown();
+    }
+
+    /**
+     * Tests backoff after upstream throttling
+     * - Reports a 429 with a Retry-After delay while tokens are left
+     * - Verifies no permit is granted before the delay has passed
+     */
+    @Test
+    void shouldPauseForRetryAfter() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, TimeUnit.MILLISECONDS.toNanos(100));
+        limiter.onResponse(new WeatherSDKException("Too Many Requests", 429, 300));
+
+        long start = System.nanoTime();
+        limiter.acquire(RateLimiter.Priority.ON_DEMAND).get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250),
+                "Permit should wait for the Retry-After delay");
+        limiter.shutdown();
+    }
+
+    /**
+     * Tests abandoned waiting calls
+     * - Cancels calls waiting for a permit
+     * - Verifies they no longer fill the lane
+     * - Checks the next token goes to a call still waiting
+     */
+    @Test
+    void shouldSkipCancelledWaiters() throws Exception {
+        RateLimiter full = new RateLimiter(1, TimeUnit.MINUTES.toNanos(1));
+        full.acquire(RateLimiter.Priority.ON_DEMAND);
+        full.acquire(RateLimiter.Priority.ON_DEMAND).cancel(false);
+        assertFalse(full.acquire(RateLimiter.Priority.ON_DEMAND).isCompletedExceptionally(),
+                "A cancelled call should not hold a place in the lane");
+        full.shutdown();
+
+        RateLimiter limiter = new RateLimiter(3, TimeUnit.MILLISECONDS.toNanos(900));
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire(RateLimiter.Priority.ON_DEMAND);
+        }
+        limiter.acquire(RateLimiter.Priority.ON_DEMAND).cancel(false);
+        limiter.acquire(RateLimiter.Priority.ON_DEMAND).orTimeout(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+        long start = System.nanoTime();
+        limiter.acquire(RateLimiter.Priority.ON_DEMAND).get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500),
+                "The first new token should go to the call still waiting");
+        limiter.shutdown();
+    }
+}
@@ -0,0 +1,62 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the timing wheel driving cache expiry
+ */
+class TimingWheelTest {
+
+    /**
+     * Tests firing order
+     * - Verifies items fire once their tick has passed and not before
+     * - Checks items a revolution or more ahead stay scheduled
+     * - Ensures a long idle period fires everything due in one advance
+     */
+    @Test
+    void shouldFireItemsWhenDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 8, 0);
+        wheel.schedule("soon", 25);
+        wheel.schedule("later", 55);
+        wheel.schedule("next revolution", 105);
+        wheel.schedule("overdue", -100);
+        List<String> fired = new ArrayList<>();
+
+        wheel.advance(5, fired::add);
+        assertEquals(List.of("overdue"), fired);
+        wheel.advance(29, fired::add);
+        assertEquals(List.of("overdue"), fired, "Deadlines round up to the next tick");
+        wheel.advance(30, fired::add);
+        assertEquals(List.of("overdue", "soon"), fired);
+        assertEquals(2, wheel.size());
+
+        wheel.advance(10_000, fired::add);
+        assertEquals(List.of("overdue", "soon", "later", "next revolution"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests rescheduling from the expiry callback
+     * - Verifies an item scheduled again while firing fires at its new deadline
+     */
+    @Test
+    void shouldAllowReschedulingWhileFiring() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("entry", 10);
+        List<Long> firedAt = new ArrayList<>();
+
+        wheel.advance(10, item -> {
+            firedAt.add(10L);
+            wheel.schedule(item, 100);
+        });
+        wheel.advance(90, item -> firedAt.add(90L));
+        wheel.advance(100, item -> firedAt.add(100L));
+
+        assertEquals(List.of(10L, 100L), firedAt);
+    }
+}
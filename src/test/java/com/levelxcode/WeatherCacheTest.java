@@ -5,6 +5,11 @@ import com.levelxcode.WeatherData;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -72,4 +77,139 @@ class WeatherCacheTest {
         cache.put("expired", oldData);
         assertNull(cache.get("expired"), "Expired data should be removed from cache");
     }
+
+    /**
+     * Tests second-chance eviction
+     * - Reads the oldest entry before overflowing the cache
+     * - Verifies the recently read entry survives
+     * - Checks the unread entry is evicted instead
+     */
+    @Test
+    void shouldKeepRecentlyReadEntryOnEviction() {
+        cache.put("city1", testData);
+        cache.put("city2", testData);
+        assertNotNull(cache.get("city1"), "Entry should be readable before eviction");
+
+        cache.put("city3", testData); // Should evict city2, not city1
+
+        assertEquals(2, cache.getCachedCities().size(), "Cache should maintain maximum size");
+        assertNotNull(cache.get("city1"), "Recently read entry should survive");
+        assertNull(cache.get("city2"), "Unread entry should be evicted");
+    }
+
+    /**
+     * Tests capacity bound under concurrent writers and readers
+     * - Writes many distinct cities from several threads
+     * - Verifies the cache never ends above its capacity
+     */
+    @Test
+    void shouldStayWithinCapacityUnderConcurrentAccess() throws Exception {
+        WeatherCache concurrentCache = new WeatherCache(100);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            tasks.add(executor.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    String city = "city" + ((i * 8 + offset) % 1_000);
+                    concurrentCache.put(city, testData);
+                    concurrentCache.get(city);
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(concurrentCache.getCachedCities().size() <= 100, "Cache should not exceed capacity");
+    }
+
+    /**
+     * Tests capacity validation
+     */
+    @Test
+    void shouldRejectNonPositiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> new WeatherCache(0));
+    }
+
+    /**
+     * Tests compact storage
+     * - Verifies a packed entry reads back with every field intact
+     * - Checks condition strings are shared through the dictionary
+     * - Ensures expiry still applies to packed entries
+     */
+    @Test
+    void shouldRoundTripCompactEntries() {
+        WeatherCache compactCache = new WeatherCache(10, 0, new WeatherSDKMetrics(WeatherSDKListener.NONE), true);
+        WeatherData data = new WeatherData();
+        data.setMainWeather(new String("Clouds"));
+        data.setDescription("scattered clouds");
+        data.setTemp(281.6);
+        data.setFeelsLike(278.9);
+        data.setVisibility(10000);
+        data.setWindSpeed(4.6);
+        data.setDatetime(1675744800L);
+        data.setSunrise(1675751262L);
+        data.setSunset(1675787560L);
+        data.setTimezone(3600);
+        data.setCityName("London");
+        data.setCityId(2643743L);
+        data.setLatitude(51.5085);
+        data.setLongitude(-0.1257);
+        data.setTimestamp(System.currentTimeMillis());
+        WeatherData other = new WeatherData();
+        other.setMainWeather(new String("Clouds"));
+        other.setTimestamp(data.getTimestamp());
+
+        compactCache.put("london", data);
+        compactCache.put("paris", other);
+        WeatherData read = compactCache.get("london");
+
+        assertTrue(compactCache.isCompact());
+        assertNotSame(data, read, "Compact entries are inflated on read");
+        assertEquals(data.toSnapshot(), read.toSnapshot());
+        assertEquals(51.5085, read.getLatitude());
+        assertSame(read.getMainWeather(), compactCache.get("paris").getMainWeather());
+        assertNull(compactCache.get("paris").getDescription());
+        assertEquals(data.getExpiresAt(), compactCache.getExpiresAt("london"));
+
+        WeatherData expired = new WeatherData();
+        expired.setTimestamp(System.currentTimeMillis() - WeatherData.TTL_MILLIS - 1);
+        compactCache.put("rome", expired);
+        assertNull(compactCache.get("rome"));
+        assertFalse(compactCache.contains("rome"));
+    }
+
+    /**
+     * Tests proactive expiry
+     * - Verifies an entry past its TTL is removed on the next write without being read
+     * - Checks its slot goes to a live entry instead of evicting one
+     * - Ensures a background expiry pass removes entries with a short per-entry TTL
+     */
+    @Test
+    void shouldExpireEntriesWithoutReads() throws Exception {
+        WeatherSDKMetrics metrics = new WeatherSDKMetrics(WeatherSDKListener.NONE);
+        WeatherCache expiringCache = new WeatherCache(2, 0, metrics);
+        WeatherData dead = new WeatherData();
+        dead.setTimestamp(System.currentTimeMillis() - WeatherData.TTL_MILLIS - 1);
+        WeatherData shortLived = new WeatherData();
+        shortLived.setTimestamp(System.currentTimeMillis());
+        shortLived.setTtlMillis(100);
+
+        expiringCache.put("london", testData);
+        expiringCache.put("paris", dead);
+        expiringCache.put("rome", testData);
+        assertTrue(expiringCache.contains("london"), "Live entry should not be evicted for a dead one");
+        assertTrue(expiringCache.contains("rome"));
+        assertFalse(expiringCache.contains("paris"));
+        assertEquals(1, metrics.getExpirations());
+        assertEquals(0, metrics.getEvictions());
+
+        expiringCache.put("rome", shortLived);
+        Thread.sleep(1_200);
+        expiringCache.expire();
+        assertEquals(List.of("london"), expiringCache.getCachedCities());
+        assertEquals(2, metrics.getExpirations());
+    }
 }
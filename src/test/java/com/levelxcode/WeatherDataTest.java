@@ -1,12 +1,15 @@
 package com.levelxcode;
 
 import com.levelxcode.WeatherData;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class WeatherDataTest {
 
@@ -47,4 +50,83 @@ public class WeatherDataTest {
         assertFalse(data.isValid(), "Data should be considered expired");
     }
 
+    /**
+     * Tests serialization parity with the JSON tree format
+     * - Serializes a fully populated object
+     * - Verifies the same members and values as an org.json tree
+     * - Checks org.json formatting of single-member objects and integral doubles
+     */
+    @Test
+    void shouldMatchJsonTreeOutput() throws Exception {
+        WeatherData data = populated();
+        JSONObject expected = new JSONObject()
+                .put("weather", new JSONObject().put("main", "Clouds").put("description", "scattered clouds"))
+                .put("temperature", new JSONObject().put("temp", 261.67).put("feels_like", 262.0))
+                .put("visibility", 10000)
+                .put("wind", new JSONObject().put("speed", 3.1))
+                .put("datetime", 1675744800L)
+                .put("sys", new JSONObject().put("sunrise", 1675751262L).put("sunset", 1675787560L))
+                .put("timezone", 3600)
+                .put("name", "London");
+
+        String json = data.toJson();
+        assertTrue(expected.similar(new JSONObject(json)), "JSON should carry the same values");
+        assertTrue(json.contains("\"wind\": {\"speed\": 3.1}"), "Single-member objects stay on one line");
+        assertTrue(json.contains("\"feels_like\": 262\n"), "Integral doubles drop the fraction");
+        assertTrue(json.startsWith("{\n  \"weather\": {\n    \"main\": \"Clouds\""), "JSON should be indented");
+    }
+
+    /**
+     * Tests memoization of the serialized form
+     * - Verifies repeated calls reuse the same String
+     * - Checks a setter invalidates the cached form
+     */
+    @Test
+    void shouldReuseJsonUntilModified() throws Exception {
+        WeatherData data = populated();
+        String first = data.toJson();
+        assertSame(first, data.toJson(), "Unchanged data should reuse its JSON");
+
+        data.setTemp(270.5);
+        String second = data.toJson();
+        assertNotSame(first, second, "Changed data should be serialized again");
+        assertTrue(second.contains("\"temp\": 270.5"));
+    }
+
+    /**
+     * Tests compact and byte-level output
+     * - Verifies compact JSON has no whitespace
+     * - Checks stream and buffer output match the String form
+     */
+    @Test
+    void shouldWriteCompactAndByteForms() throws Exception {
+        WeatherData data = populated();
+        String compact = data.toCompactJson();
+        assertFalse(compact.contains("\n") || compact.contains(": "), "Compact JSON has no whitespace");
+        assertTrue(compact.contains("\"name\":\"London\""));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        data.writeJson(out, true);
+        assertEquals(data.toJson(), out.toString(StandardCharsets.UTF_8));
+
+        ByteBuffer buffer = data.toJsonBytes(false);
+        assertTrue(buffer.isReadOnly(), "Cached bytes must not be writable");
+        assertEquals(compact, StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    private static WeatherData populated() {
+        WeatherData data = new WeatherData();
+        data.setMainWeather("Clouds");
+        data.setDescription("scattered clouds");
+        data.setTemp(261.67);
+        data.setFeelsLike(262.0);
+        data.setVisibility(10000);
+        data.setWindSpeed(3.1);
+        data.setDatetime(1675744800L);
+        data.setSunrise(1675751262L);
+        data.setSunset(1675787560L);
+        data.setTimezone(3600);
+        data.setCityName("London");
+        return data;
+    }
 }
@@ -0,0 +1,147 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the persistent cache file
+ */
+class WeatherDiskStoreTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * Tests round trip through the file
+     * - Writes a cache holding one fresh and one long-expired entry
+     * - Verifies only the fresh entry is loaded back
+     * - Checks every field, including null strings, survives encoding
+     */
+    @Test
+    void shouldLoadOnlyEntriesWithinMaxAge() throws Exception {
+        WeatherCache cache = new WeatherCache(10);
+        WeatherData fresh = new WeatherData();
+        fresh.setCityName("Zürich");
+        fresh.setMainWeather("Snow");
+        fresh.setCityId(2657896);
+        fresh.setTemp(268.15);
+        fresh.setFeelsLike(263.9);
+        fresh.setWindSpeed(4.1);
+        fresh.setVisibility(3000);
+        fresh.setDatetime(1700000000L);
+        fresh.setSunrise(1699990000L);
+        fresh.setSunset(1700020000L);
+        fresh.setTimezone(3600);
+        fresh.setTimestamp(System.currentTimeMillis());
+        WeatherData old = new WeatherData();
+        old.setCityName("Oslo");
+        old.setTimestamp(System.currentTimeMillis() - 2 * WeatherData.TTL_MILLIS);
+        cache.put("zürich", fresh);
+        cache.put("oslo", old);
+
+        Path file = dir.resolve("cache.bin");
+        new WeatherDiskStore(file, cache, 0, 0).flush();
+        Map<String, WeatherData> loaded =
+                new WeatherDiskStore(file, new WeatherCache(10), 0, 0).load();
+
+        assertEquals(1, loaded.size(), "Expired entry should not be loaded");
+        WeatherData restored = loaded.get("zürich");
+        assertNotNull(restored);
+        assertNull(restored.getDescription());
+        assertEquals(fresh.getTimestamp(), restored.getTimestamp());
+        assertEquals(fresh.toJson(), restored.toJson(), "All fields should survive encoding");
+    }
+
+    /**
+     * Tests handling of missing and corrupt files
+     * - Verifies a missing file loads as empty
+     * - Checks a file with a foreign header is rejected
+     */
+    @Test
+    void shouldRejectForeignFile() throws Exception {
+        Path file = dir.resolve("cache.bin");
+        WeatherDiskStore store = new WeatherDiskStore(file, new WeatherCache(10), 0, 0);
+        assertTrue(store.load().isEmpty(), "Missing file should load as empty");
+
+        Files.writeString(file, "{\"not\": \"a cache file\"}");
+        assertThrows(WeatherSDKException.class, store::load);
+    }
+
+    /**
+     * Tests closing the store while a write is in progress
+     * - Blocks the background write after it has started
+     * - Verifies close waits for the write instead of interrupting it
+     * - Checks the change is on disk once close returns
+     */
+    @Test
+    void shouldFinishWriteInProgressOnClose() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherCache cache = new WeatherCache(10) {
+            @Override
+            public List<String> getCachedCities() {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException("Write interrupted", e);
+                }
+                return super.getCachedCities();
+            }
+        };
+        WeatherData data = new WeatherData();
+        data.setCityName("Oslo");
+        data.setTimestamp(System.currentTimeMillis());
+        cache.put("oslo", data);
+
+        Path file = dir.resolve("cache.bin");
+        WeatherDiskStore store = new WeatherDiskStore(file, cache, 0, 0);
+        store.markDirty();
+        assertTrue(writing.await(5, TimeUnit.SECONDS), "Write should have started");
+        CompletableFuture<Void> closed = CompletableFuture.runAsync(store::close);
+        Thread.sleep(100);
+        release.countDown();
+        closed.get(5, TimeUnit.SECONDS);
+
+        Map<String, WeatherData> loaded = new WeatherDiskStore(file, new WeatherCache(10), 0, 0).load();
+        assertEquals("Oslo", loaded.get("oslo").getCityName(), "Change should be written on close");
+    }
+
+    /**
+     * Tests a failing background write
+     * - Points the store at a path below a regular file
+     * - Verifies the failure reaches the listener and the metrics instead of standard error
+     */
+    @Test
+    void shouldReportFailedWriteToListener() throws Exception {
+        Path blocker = Files.writeString(dir.resolve("blocker"), "not a directory");
+        CompletableFuture<WeatherSDKException> reported = new CompletableFuture<>();
+        WeatherSDKMetrics metrics = new WeatherSDKMetrics(new WeatherSDKListener() {
+            @Override
+            public void onPersistenceFailure(WeatherSDKException error) {
+                reported.complete(error);
+            }
+        });
+        WeatherCache cache = new WeatherCache(10);
+        WeatherData data = new WeatherData();
+        data.setCityName("Oslo");
+        data.setTimestamp(System.currentTimeMillis());
+        cache.put("oslo", data);
+
+        WeatherDiskStore store = new WeatherDiskStore(blocker.resolve("cache.bin"), cache, 0, 0, metrics);
+        store.markDirty();
+
+        assertTrue(reported.get(5, TimeUnit.SECONDS).getMessage().contains("Failed to write weather cache file"));
+        assertEquals(1, metrics.getPersistenceFailures());
+        store.close();
+    }
+}
@@ -0,0 +1,172 @@
+package com.levelxcode;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for WeatherSDK instances sharing a runtime
+ */
+class WeatherSDKRuntimeTest {
+
+    /**
+     * Tests tenants sharing data
+     * - Verifies a city fetched by one tenant is served to another from the shared cache
+     * - Checks only the earliest polling tenant refreshes, and the next one takes over on shutdown
+     * - Ensures closing the runtime shuts down the remaining tenants
+     */
+    @Test
+    void shouldFetchSharedCityOnce() throws Exception {
+        ApiClient first = mock(ApiClient.class);
+        ApiClient second = mock(ApiClient.class);
+        when(first.fetchWeatherData(anyString())).thenReturn(weather("Oslo"));
+
+        WeatherSDKRuntime runtime = new WeatherSDKRuntime(new ApiClientConfig(), new WeatherSDKConfig().withCacheSize(100));
+        WeatherSDKConfig config = new WeatherSDKConfig().withRefreshAhead(Duration.ofMinutes(2));
+        WeatherSDK firstTenant = runtime.newSDK("key1", WeatherSDK.Mode.POLLING, config, first);
+        WeatherSDK secondTenant = runtime.newSDK("key2", WeatherSDK.Mode.POLLING, config, second);
+
+        firstTenant.getWeather("Oslo");
+        String json = secondTenant.getWeather(" OSLO ");
+
+        assertTrue(json.contains("Oslo"));
+        verify(first, times(1)).fetchWeatherData(anyString());
+        verifyNoInteractions(second);
+        assertEquals(1, secondTenant.getMetrics().getCacheHits());
+        assertSame(firstTenant.cache, secondTenant.cache);
+
+        CacheScope scope = runtime.getSharedScope();
+        assertTrue(scope.isRefreshOwner(firstTenant));
+        assertFalse(scope.isRefreshOwner(secondTenant));
+        firstTenant.shutdown();
+        assertTrue(scope.isRefreshOwner(secondTenant));
+        assertEquals(1, runtime.getSDKCount());
+
+        runtime.close();
+        assertEquals(0, runtime.getSDKCount());
+        assertThrows(IllegalStateException.class, () -> runtime.newSDK("key3", WeatherSDK.Mode.ON_DEMAND));
+    }
+
+    /**
+     * Tests tenants sharing a failed fetch
+     * - Lets a second tenant wait on the first tenant's fetch, which fails with 401
+     * - Verifies the first tenant gets the failure and the second one fetches with its own key
+     */
+    @Test
+    void shouldNotPassTenantFailuresToOtherTenants() throws Exception {
+        ApiClient first = mock(ApiClient.class);
+        ApiClient second = mock(ApiClient.class);
+        CompletableFuture<WeatherData> unauthorized = new CompletableFuture<>();
+        when(first.fetchWeatherDataAsync(anyString())).thenReturn(unauthorized);
+        when(second.fetchWeatherDataAsync(anyString())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(weather("Oslo")));
+
+        try (WeatherSDKRuntime runtime = new WeatherSDKRuntime(new ApiClientConfig(),
+                new WeatherSDKConfig().withCacheSize(100))) {
+            WeatherSDK firstTenant = runtime.newSDK("key1", WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig(), first);
+            WeatherSDK secondTenant = runtime.newSDK("key2", WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig(), second);
+
+            CompletableFuture<String> firstLookup = firstTenant.getWeatherAsync("Oslo");
+            CompletableFuture<String> secondLookup = secondTenant.getWeatherAsync("Oslo");
+            unauthorized.completeExceptionally(new WeatherSDKException("Invalid API key", 401));
+
+            ExecutionException error = assertThrows(ExecutionException.class, firstLookup::get);
+            assertEquals(401, ((WeatherSDKException) error.getCause()).getStatusCode());
+            assertTrue(secondLookup.get().contains("Oslo"));
+            verify(second, times(1)).fetchWeatherDataAsync(anyString());
+            assertEquals(1, secondTenant.getCoalescedRequestCount());
+        }
+    }
+
+    /**
+     * Tests tenants keeping their own data
+     * - Verifies each tenant fetches a city with its own client into its own cache
+     * - Checks tenants still share the runtime's scheduler
+     */
+    @Test
+    void shouldKeepTenantCachesApartWithoutSharedData() throws Exception {
+        ApiClient first = mock(ApiClient.class);
+        ApiClient second = mock(ApiClient.class);
+        when(first.fetchWeatherData(anyString())).thenReturn(weather("Oslo"));
+        when(second.fetchWeatherData(anyString())).thenReturn(weather("Oslo"));
+
+        try (WeatherSDKRuntime runtime = new WeatherSDKRuntime()) {
+            WeatherSDK firstTenant = runtime.newSDK("key1", WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig(), first);
+            WeatherSDK secondTenant = runtime.newSDK("key2", WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig(), second);
+
+            firstTenant.getWeather("Oslo");
+            secondTenant.getWeather("Oslo");
+
+            assertFalse(runtime.isDataShared());
+            assertNull(runtime.getSharedMetrics());
+            assertNotSame(firstTenant.cache, secondTenant.cache);
+            verify(first, times(1)).fetchWeatherData(anyString());
+            verify(second, times(1)).fetchWeatherData(anyString());
+            assertEquals(2, runtime.getSDKCount());
+        }
+    }
+
+    /**
+     * Tests resource use of many tenants
+     * - Verifies rate-limited tenants start no limiter threads of their own
+     * - Checks tenants whose refreshes hang do not hold up another tenant's polling
+     */
+    @Test
+    void shouldNotBlockSharedThreadsPerTenant() throws Exception {
+        ApiClient hanging = mock(ApiClient.class);
+        ApiClient healthy = mock(ApiClient.class);
+        when(hanging.fetchWeatherDataAsync(anyString())).thenAnswer(invocation -> new CompletableFuture<>());
+        when(healthy.fetchWeatherDataAsync(anyString())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(weather("Oslo")));
+        WeatherSDKConfig config = new WeatherSDKConfig().withRateLimit(60).withCacheSize(100)
+                .withTtl(Duration.ofSeconds(20)).withRefreshAhead(Duration.ofSeconds(4));
+
+        long limiterThreads = limiterThreads();
+        try (WeatherSDKRuntime runtime = new WeatherSDKRuntime()) {
+            List<WeatherSDK> tenants = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                tenants.add(runtime.newSDK("key" + i, WeatherSDK.Mode.POLLING, config, hanging));
+            }
+            for (WeatherSDK tenant : tenants) {
+                for (int i = 0; i < 10; i++) {
+                    tenant.cache.put("city-" + i, aging("City " + i));
+                }
+            }
+            WeatherSDK healthyTenant = runtime.newSDK("healthy", WeatherSDK.Mode.POLLING, config, healthy);
+            healthyTenant.cache.put("oslo", aging("Oslo"));
+
+            verify(healthy, timeout(5000)).fetchWeatherDataAsync(eq("oslo"));
+            assertEquals(limiterThreads, limiterThreads());
+        }
+    }
+
+    private static long limiterThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("weather-sdk-rate-limiter")).count();
+    }
+
+    private static WeatherData aging(String city) {
+        // Due for polling, two seconds before expiry
+        WeatherData data = weather(city);
+        data.setTimestamp(System.currentTimeMillis() - 18_000);
+        data.setTtlMillis(20_000);
+        return data;
+    }
+
+    private static WeatherData weather(String city) {
+        WeatherData data = new WeatherData();
+        data.setCityName(city);
+        data.setTemp(280.0);
+        data.setTimestamp(System.currentTimeMillis());
+        return data;
+    }
+}
@@ -2,13 +2,37 @@ package com.levelxcode;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for WeatherSDK core functionality
@@ -89,4 +113,1001 @@ class WeatherSDKTest {
         assertTrue(exception.getMessage().contains("cannot be null or empty"),
                 "Should validate city name input");
     }
+
+    /**
+     * Tests single-flight behavior on concurrent cache misses
+     * - Blocks the upstream call until all callers are waiting
+     * - Verifies only one upstream request is made
+     * - Checks coalesced calls are counted
+     */
+    @Test
+    void shouldCoalesceConcurrentMisses() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        CountDownLatch release = new CountDownLatch(1);
+        WeatherData data = new WeatherData();
+        data.setCityName("London");
+        data.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(anyString())).thenAnswer(invocation -> {
+            release.await();
+            return data;
+        });
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> sdk.getWeather("London")));
+        }
+
+        // Wait until every follower has joined the leader's fetch
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (sdk.getCoalescedRequestCount() < 7 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS).contains("London"));
+        }
+        executor.shutdown();
+
+        verify(apiClient, times(1)).fetchWeatherData(anyString());
+        assertEquals(7, sdk.getCoalescedRequestCount(), "Followers should be counted as coalesced");
+    }
+
+    /**
+     * Tests error propagation to coalesced callers
+     * - Fails the shared upstream call
+     * - Verifies every waiting caller receives the same error
+     */
+    @Test
+    void shouldPropagateSharedFetchFailure() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(apiClient.fetchWeatherData(anyString())).thenAnswer(invocation -> {
+            release.await();
+            throw new WeatherSDKException("City not found");
+        });
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(executor.submit(() -> sdk.getWeather("Atlantis")));
+        }
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (sdk.getCoalescedRequestCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            Exception exception = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(WeatherSDKException.class, exception.getCause());
+            assertEquals("City not found", exception.getCause().getMessage());
+        }
+        executor.shutdown();
+        verify(apiClient, times(1)).fetchWeatherData(anyString());
+    }
+
+    /**
+     * Tests asynchronous lookup
+     * - Completes a miss through the non-blocking client
+     * - Verifies a following hit is already completed
+     * - Checks both results match
+     */
+    @Test
+    void shouldServeAsyncMissAndHit() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData data = new WeatherData();
+        data.setCityName("Berlin");
+        data.setTimestamp(System.currentTimeMillis());
+        CompletableFuture<WeatherData> upstream = new CompletableFuture<>();
+        when(apiClient.fetchWeatherDataAsync(anyString())).thenReturn(upstream);
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        CompletableFuture<String> miss = sdk.getWeatherAsync("Berlin");
+        assertFalse(miss.isDone(), "Miss should wait for the upstream response");
+        upstream.complete(data);
+
+        CompletableFuture<String> hit = sdk.getWeatherAsync("berlin ");
+        assertTrue(hit.isDone(), "Hit should complete immediately");
+        assertEquals(miss.get(), hit.get(), "Hit should match fetched data");
+        verify(apiClient, times(1)).fetchWeatherDataAsync(anyString());
+        verify(apiClient, never()).fetchWeatherData(anyString());
+    }
+
+    /**
+     * Tests asynchronous input validation
+     * - Verifies an empty name yields a failed future instead of a thrown exception
+     */
+    @Test
+    void shouldFailAsyncLookupForInvalidCityName() {
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, mock(ApiClient.class));
+        CompletableFuture<String> result = sdk.getWeatherAsync(" ");
+
+        ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(WeatherSDKException.class, exception.getCause());
+    }
+
+    /**
+     * Tests batch lookup
+     * - Deduplicates names differing only in case and whitespace
+     * - Serves cached cities without upstream calls
+     * - Reports per-city errors without failing the batch
+     */
+    @Test
+    void shouldResolveBatchWithPerCityErrors() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData paris = new WeatherData();
+        paris.setCityName("Paris");
+        paris.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherDataAsync(eq("Paris")))
+                .thenReturn(CompletableFuture.completedFuture(paris));
+        when(apiClient.fetchWeatherDataAsync(eq("Atlantis")))
+                .thenReturn(CompletableFuture.failedFuture(new WeatherSDKException("City not found")));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        WeatherData london = new WeatherData();
+        london.setCityName("London");
+        london.setTimestamp(System.currentTimeMillis());
+        sdk.cache.put("london", london);
+
+        Map<String, WeatherResult> results = sdk.getWeatherBatch(
+                List.of("London", "Paris", " paris", "Atlantis", ""), 2);
+
+        assertEquals(List.of("london", "paris", "atlantis", ""), List.copyOf(results.keySet()),
+                "Results should be deduplicated and keep input order");
+        assertTrue(results.get("london").getJson().contains("London"));
+        assertTrue(results.get("paris").getJson().contains("Paris"));
+        assertEquals("City not found", results.get("atlantis").getError().getMessage());
+        assertFalse(results.get("").isSuccess(), "Empty name should fail on its own");
+        verify(apiClient, times(1)).fetchWeatherDataAsync(eq("Paris"));
+        verify(apiClient, never()).fetchWeatherDataAsync(eq("London"));
+    }
+
+    /**
+     * Tests large batches whose fetches fail at once
+     * - Verifies a batch of 50,000 immediately failing cities returns instead of hanging
+     * - Checks every city gets its failure
+     */
+    @Test
+    void shouldRunLargeBatchOfImmediateFailures() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new WeatherSDKException("Service unavailable", 503)));
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        List<String> cities = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            cities.add("city-" + i);
+        }
+
+        Map<String, WeatherResult> results = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> sdk.getWeatherBatch(cities, 4));
+
+        assertEquals(50_000, results.size());
+        assertTrue(results.values().stream().noneMatch(WeatherResult::isSuccess));
+        assertEquals(503, results.get("city-49999").getError().getStatusCode());
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests group fetching of batch misses
+     * - Learns city IDs from lookups by name
+     * - Expires the cached entries
+     * - Verifies the batch refetches them with one group request
+     */
+    @Test
+    void shouldFetchKnownCitiesWithGroupRequest() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData london = new WeatherData();
+        london.setCityName("London");
+        london.setCityId(2643743L);
+        london.setTimestamp(System.currentTimeMillis());
+        WeatherData paris = new WeatherData();
+        paris.setCityName("Paris");
+        paris.setCityId(2988507L);
+        paris.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(eq("London"))).thenReturn(london);
+        when(apiClient.fetchWeatherData(eq("Paris"))).thenReturn(paris);
+        when(apiClient.fetchWeatherDataByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(london, paris)));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        sdk.getWeather("London");
+        sdk.getWeather("Paris");
+        long expired = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(11);
+        london.setTimestamp(expired);
+        paris.setTimestamp(expired);
+
+        Map<String, WeatherResult> results = sdk.getWeatherBatch(List.of("London", "Paris"));
+
+        assertTrue(results.get("london").isSuccess());
+        assertTrue(results.get("paris").isSuccess());
+        verify(apiClient, times(1)).fetchWeatherDataByIdsAsync(eq(List.of(2643743L, 2988507L)));
+        verify(apiClient, never()).fetchWeatherDataAsync(anyString());
+    }
+
+    /**
+     * Tests a city missing from a group response
+     * - Lets the group request return only one of two known cities
+     * - Verifies the missing city is fetched by name instead of failing as not found
+     * - Checks it is not remembered as an unknown name
+     */
+    @Test
+    void shouldFetchCityMissingFromGroupByName() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData london = new WeatherData();
+        london.setCityName("London");
+        london.setCityId(2643743L);
+        london.setTimestamp(System.currentTimeMillis());
+        WeatherData paris = new WeatherData();
+        paris.setCityName("Paris");
+        paris.setCityId(2988507L);
+        paris.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(eq("London"))).thenReturn(london);
+        when(apiClient.fetchWeatherData(eq("Paris"))).thenReturn(paris);
+        when(apiClient.fetchWeatherDataByIdsAsync(anyCollection()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(london)));
+        when(apiClient.fetchWeatherDataAsync(eq("Paris"))).thenReturn(CompletableFuture.completedFuture(paris));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withNegativeCache(100, Duration.ofMinutes(10)), apiClient);
+        sdk.getWeather("London");
+        sdk.getWeather("Paris");
+        long expired = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(11);
+        london.setTimestamp(expired);
+        paris.setTimestamp(expired);
+
+        Map<String, WeatherResult> results = sdk.getWeatherBatch(List.of("London", "Paris"));
+
+        assertTrue(results.get("london").isSuccess());
+        assertTrue(results.get("paris").isSuccess(), "Missing city should be fetched by name");
+        verify(apiClient, times(1)).fetchWeatherDataAsync(eq("Paris"));
+        assertEquals(0, sdk.getMetrics().getNegativeCacheHits());
+        assertTrue(sdk.getWeather("Paris").contains("Paris"));
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests refresh-ahead selection in polling
+     * - Caches one entry close to expiry and one fresh entry
+     * - Verifies only the entry close to expiry is refreshed
+     */
+    @Test
+    void shouldRefreshOnlyEntriesCloseToExpiry() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData refreshed = new WeatherData();
+        refreshed.setCityName("Oslo");
+        refreshed.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherDataAsync(anyString()))
+                .thenReturn(CompletableFuture.completedFuture(refreshed));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withRefreshAhead(Duration.ofMinutes(1)), apiClient);
+        WeatherData aging = new WeatherData();
+        aging.setTimestamp(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(570));
+        WeatherData fresh = new WeatherData();
+        fresh.setTimestamp(System.currentTimeMillis());
+        sdk.cache.put("oslo", aging);
+        sdk.cache.put("rome", fresh);
+
+        sdk.refreshDueCities().join();
+
+        verify(apiClient, times(1)).fetchWeatherDataAsync(eq("oslo"));
+        verify(apiClient, never()).fetchWeatherDataAsync(eq("rome"));
+        assertSame(refreshed, sdk.cache.get("oslo"), "Refreshed data should replace the aging entry");
+    }
+
+    /**
+     * Tests polling while refreshes hang
+     * - Starts a refresh cycle whose fetch never completes
+     * - Verifies a later tick abandons it and refreshes newly due cities
+     * - Checks the hanging city is not fetched twice
+     */
+    @Test
+    void shouldKeepPollingWhileRefreshHangs() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(eq("oslo"))).thenReturn(new CompletableFuture<>());
+        when(apiClient.fetchWeatherDataAsync(eq("paris"))).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(weather("Paris", 285.0, "clear sky", System.currentTimeMillis())));
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.POLLING, new WeatherSDKConfig()
+                .withTtl(Duration.ofSeconds(8)).withRefreshAhead(Duration.ofSeconds(2)), apiClient);
+
+        sdk.cache.put("oslo", aging("Oslo", 1000));
+        verify(apiClient, timeout(3000)).fetchWeatherDataAsync(eq("oslo"));
+        sdk.cache.put("paris", aging("Paris", 5000));
+
+        verify(apiClient, timeout(6000)).fetchWeatherDataAsync(eq("paris"));
+        verify(apiClient, times(1)).fetchWeatherDataAsync(eq("oslo"));
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests stale-while-revalidate
+     * - Caches an expired entry
+     * - Verifies it is returned without waiting for upstream
+     * - Checks one background refresh is started
+     */
+    @Test
+    void shouldServeStaleWhileRevalidating() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(anyString())).thenReturn(new CompletableFuture<>());
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withStaleWhileRevalidate(Duration.ofMinutes(5)), apiClient);
+        WeatherData stale = new WeatherData();
+        stale.setCityName("Madrid");
+        stale.setTimestamp(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(12));
+        sdk.cache.put("madrid", stale);
+
+        assertTrue(sdk.getWeather("Madrid").contains("Madrid"), "Stale data should be served");
+        assertTrue(sdk.getWeather("Madrid").contains("Madrid"), "Stale data should be served again");
+
+        verify(apiClient, times(1)).fetchWeatherDataAsync(anyString());
+        verify(apiClient, never()).fetchWeatherData(anyString());
+    }
+
+    /**
+     * Tests stale-if-error
+     * - Fails upstream with a server error and with "City not found"
+     * - Verifies stale data is served only for the server error
+     */
+    @Test
+    void shouldServeStaleOnlyOnUpstreamFailure() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherData(eq("Lisbon"))).thenThrow(new WeatherSDKException("Server error", 503));
+        when(apiClient.fetchWeatherData(eq("Porto"))).thenThrow(new WeatherSDKException("City not found", 404));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withStaleIfError(Duration.ofMinutes(30)), apiClient);
+        long expired = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(15);
+        WeatherData lisbon = new WeatherData();
+        lisbon.setCityName("Lisbon");
+        lisbon.setTimestamp(expired);
+        WeatherData porto = new WeatherData();
+        porto.setCityName("Porto");
+        porto.setTimestamp(expired);
+        sdk.cache.put("lisbon", lisbon);
+        sdk.cache.put("porto", porto);
+
+        assertTrue(sdk.getWeather("Lisbon").contains("Lisbon"), "Stale data should cover a server error");
+        Exception exception = assertThrows(WeatherSDKException.class, () -> sdk.getWeather("Porto"));
+        assertEquals("City not found", exception.getMessage());
+    }
+
+    /**
+     * Tests typed lookup
+     * - Fetches a city once
+     * - Verifies snapshots carry the parsed values and are shared between hits
+     * - Checks later changes to the cached entry do not alter a returned snapshot
+     */
+    @Test
+    void shouldReturnImmutableSnapshot() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData data = new WeatherData();
+        data.setCityName("Vienna");
+        data.setTemp(280.5);
+        data.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(anyString())).thenReturn(data);
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        WeatherSnapshot first = sdk.getWeatherSnapshot("Vienna");
+        WeatherSnapshot second = sdk.getWeatherSnapshot("vienna");
+
+        assertEquals("Vienna", first.cityName());
+        assertEquals(280.5, first.temp());
+        assertSame(first, second, "Hits should share the cached snapshot");
+
+        data.setTemp(300.0);
+        assertEquals(280.5, first.temp(), "Returned snapshot must not change");
+        verify(apiClient, times(1)).fetchWeatherData(anyString());
+    }
+
+    /**
+     * Tests warm restart from the persistent cache
+     * - Fetches a city with a persistent cache file configured
+     * - Shuts down, which writes the file, and starts a new SDK on it
+     * - Verifies the new SDK serves the city without calling the API
+     */
+    @Test
+    void shouldServePersistedEntriesAfterRestart(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("weather.cache");
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData data = new WeatherData();
+        data.setCityName("Oslo");
+        data.setCityId(3143244);
+        data.setTemp(271.4);
+        data.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(anyString())).thenReturn(data);
+
+        WeatherSDK first = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withPersistentCache(file), apiClient);
+        String json = first.getWeather("Oslo");
+        first.shutdown();
+
+        ApiClient restartedClient = mock(ApiClient.class);
+        WeatherSDK second = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withPersistentCache(file), restartedClient);
+        assertEquals(json, second.getWeather("oslo"), "Restarted SDK should serve the persisted entry");
+        verifyNoInteractions(restartedClient);
+        second.shutdown();
+    }
+
+    /**
+     * Tests metrics and listener events
+     * - Runs a miss, a hit, a failed fetch and an eviction through a size-1 cache
+     * - Verifies counters and upstream latency by status
+     * - Checks the listener receives the same events
+     */
+    @Test
+    void shouldRecordMetricsAndNotifyListener() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherData(anyString())).thenAnswer(invocation -> {
+            String city = invocation.getArgument(0);
+            if (city.equals("Atlantis")) {
+                throw new WeatherSDKException("City not found", 404);
+            }
+            WeatherData data = new WeatherData();
+            data.setCityName(city);
+            data.setTimestamp(System.currentTimeMillis());
+            return data;
+        });
+        List<String> events = new CopyOnWriteArrayList<>();
+        WeatherSDKListener listener = new WeatherSDKListener() {
+            @Override
+            public void onCacheHit(String city) {
+                events.add("hit " + city);
+            }
+
+            @Override
+            public void onCacheMiss(String city) {
+                events.add("miss " + city);
+            }
+
+            @Override
+            public void onEviction(String city) {
+                events.add("evict " + city);
+            }
+
+            @Override
+            public void onUpstreamResponse(int statusCode, long latencyNanos) {
+                events.add("upstream " + statusCode);
+            }
+        };
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withCacheSize(1).withListener(listener), apiClient);
+        sdk.getWeather("Rome");
+        sdk.getWeather("Rome");
+        assertThrows(WeatherSDKException.class, () -> sdk.getWeather("Atlantis"));
+        sdk.getWeather("Milan");
+
+        WeatherSDKMetrics metrics = sdk.getMetrics();
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(3, metrics.getCacheMisses());
+        assertEquals(1, metrics.getEvictions());
+        assertEquals(0, metrics.getInFlightRequests());
+        assertEquals(2, metrics.getUpstreamLatency().get(200).getCount());
+        assertEquals(1, metrics.getUpstreamLatency().get(404).getCount());
+        assertEquals(2, metrics.getSerializeTime().getCount(), "Hits should reuse the memoized JSON");
+        // Rome was read since insertion, so it gets a second chance and Milan is evicted
+        assertEquals(List.of("miss rome", "upstream 200", "hit rome", "miss atlantis", "upstream 404",
+                "miss milan", "upstream 200", "evict milan"), events);
+    }
+
+    /**
+     * Tests negative caching of unknown cities
+     * - Looks up an unknown city twice and a known one once with a size-1 weather cache
+     * - Verifies the repeat fails without an upstream request and keeps the 404 status
+     * - Checks the known city stays cached and negative hits and misses are counted
+     */
+    @Test
+    void shouldRememberCitiesNotFound() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData data = new WeatherData();
+        data.setCityName("Lyon");
+        data.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(eq("Lyon"))).thenReturn(data);
+        when(apiClient.fetchWeatherData(eq("Lyonn"))).thenThrow(new WeatherSDKException("City not found", 404));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withCacheSize(1).withNegativeCache(100, Duration.ofMinutes(1)), apiClient);
+        sdk.getWeather("Lyon");
+        assertThrows(WeatherSDKException.class, () -> sdk.getWeather("Lyonn"));
+        WeatherSDKException repeated = assertThrows(WeatherSDKException.class, () -> sdk.getWeather("lyonn"));
+        assertEquals(404, repeated.getStatusCode());
+        assertEquals("City not found", repeated.getMessage());
+        ExecutionException async = assertThrows(ExecutionException.class,
+                () -> sdk.getWeatherAsync("Lyonn").get());
+        assertEquals("City not found", async.getCause().getMessage());
+
+        verify(apiClient, times(1)).fetchWeatherData(eq("Lyonn"));
+        assertEquals(List.of("lyon"), sdk.cache.getCachedCities(), "Bad names must not displace cached data");
+        assertEquals(2, sdk.getMetrics().getNegativeCacheHits());
+        assertEquals(2, sdk.getMetrics().getNegativeCacheMisses());
+    }
+
+    /**
+     * Tests the circuit breaker
+     * - Fails two fetches with 503 to open the breaker
+     * - Verifies later lookups fail fast without a request, or get the stale entry if there is one
+     * - Checks a successful probe after the open duration closes the breaker and transitions are reported
+     */
+    @Test
+    void shouldOpenCircuitOnUpstreamFailures() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData old = new WeatherData();
+        old.setCityName("Riga");
+        old.setTimestamp(System.currentTimeMillis() - WeatherData.TTL_MILLIS - 1000);
+        WeatherData fresh = new WeatherData();
+        fresh.setCityName("Riga");
+        fresh.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherData(anyString())).thenThrow(new WeatherSDKException("Server error", 503));
+        List<String> transitions = new CopyOnWriteArrayList<>();
+        WeatherSDKListener listener = new WeatherSDKListener() {
+            @Override
+            public void onCircuitStateChange(CircuitState from, CircuitState to) {
+                transitions.add(from + "->" + to);
+            }
+        };
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withListener(listener)
+                .withCircuitBreaker(new CircuitBreakerConfig()
+                        .withWindow(2, 2)
+                        .withOpenDuration(Duration.ofMillis(200))
+                        .withHalfOpenProbes(1)
+                        .withServeStaleWhenOpen(Duration.ofMinutes(5))), apiClient);
+        sdk.cache.put("riga", old);
+        assertThrows(WeatherSDKException.class, () -> sdk.getWeather("Tallinn"));
+        assertThrows(WeatherSDKException.class, () -> sdk.getWeather("Vilnius"));
+        assertEquals(CircuitState.OPEN, sdk.getCircuitState());
+
+        WeatherSDKException rejected = assertThrows(WeatherSDKException.class, () -> sdk.getWeather("Tallinn"));
+        assertEquals(WeatherSDKException.CIRCUIT_OPEN, rejected.getStatusCode());
+        assertEquals(old.toJson(), sdk.getWeather("Riga"), "Open breaker should serve the stale entry");
+        verify(apiClient, times(2)).fetchWeatherData(anyString());
+        assertEquals(2, sdk.getMetrics().getCircuitRejections());
+
+        Thread.sleep(250);
+        reset(apiClient);
+        when(apiClient.fetchWeatherData(anyString())).thenReturn(fresh);
+        assertEquals(fresh.toJson(), sdk.getWeather("Riga"));
+        assertEquals(CircuitState.CLOSED, sdk.getCircuitState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    /**
+     * Tests per-call deadlines
+     * - Lets upstream hang for a lookup with a 100 ms budget
+     * - Verifies the lookup fails with "Deadline exceeded" soon after the budget
+     * - Checks the HTTP request got the remaining budget as its timeout
+     */
+    @Test
+    void shouldFailLookupWhenDeadlinePasses() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(anyString(), any(Duration.class))).thenReturn(new CompletableFuture<>());
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, apiClient);
+        long start = System.nanoTime();
+        WeatherSDKException exception = assertThrows(WeatherSDKException.class,
+                () -> sdk.getWeather("Bergen", Duration.ofMillis(100)));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("Deadline exceeded", exception.getMessage());
+        assertTrue(elapsedMillis >= 90 && elapsedMillis < 5000, "Lookup should end with its budget: " + elapsedMillis);
+        verify(apiClient).fetchWeatherDataAsync(eq("Bergen"),
+                argThat(timeout -> timeout.compareTo(Duration.ofMillis(100)) <= 0));
+    }
+
+    /**
+     * Tests hedged requests
+     * - Records enough fast responses to know the latency percentile
+     * - Lets the first request for a city hang
+     * - Verifies a hedge answers the lookup and the hung request is cancelled
+     */
+    @Test
+    void shouldHedgeSlowRequest() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        CompletableFuture<WeatherData> hung = new CompletableFuture<>();
+        AtomicInteger slowCalls = new AtomicInteger();
+        when(apiClient.fetchWeatherDataAsync(anyString())).thenAnswer(invocation -> {
+            String city = invocation.getArgument(0);
+            if (city.equals("Slow") && slowCalls.getAndIncrement() == 0) {
+                return hung;
+            }
+            WeatherData data = new WeatherData();
+            data.setCityName(city);
+            data.setTimestamp(System.currentTimeMillis());
+            return CompletableFuture.completedFuture(data);
+        });
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withCacheSize(100).withHedging(0.9, 0.1), apiClient);
+        for (int i = 0; i < 25; i++) {
+            sdk.getWeather("Fast" + i);
+        }
+        assertEquals(0, sdk.getMetrics().getHedgedRequests(), "Fast requests should not be hedged");
+
+        assertTrue(sdk.getWeatherAsync("Slow").get(5, TimeUnit.SECONDS).contains("Slow"));
+        assertEquals(1, sdk.getMetrics().getHedgedRequests());
+        assertEquals(2, slowCalls.get());
+        assertThrows(CancellationException.class, () -> hung.get(5, TimeUnit.SECONDS),
+                "Losing request should be cancelled");
+    }
+
+    /**
+     * Tests a fetch whose result cannot be stored
+     * - Lets storing the fetched data throw, for a city and for a position
+     * - Verifies waiting callers get the failure instead of hanging
+     * - Checks the in-flight entry is released so the next lookup fetches again
+     */
+    @Test
+    void shouldReleaseFetchWhenStoringFails() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(anyString())).thenAnswer(invocation -> brokenData());
+        when(apiClient.fetchWeatherDataAsync(anyDouble(), anyDouble(), any(Duration.class)))
+                .thenAnswer(invocation -> brokenData());
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withCacheSize(10), apiClient);
+
+        for (int i = 0; i < 2; i++) {
+            ExecutionException byName = assertThrows(ExecutionException.class,
+                    () -> sdk.getWeatherAsync("Oslo").get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, byName.getCause());
+            ExecutionException byPosition = assertThrows(ExecutionException.class,
+                    () -> sdk.getWeatherAsync(59.91, 10.75).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, byPosition.getCause());
+        }
+        verify(apiClient, times(2)).fetchWeatherDataAsync(anyString());
+        verify(apiClient, times(2)).fetchWeatherDataAsync(anyDouble(), anyDouble(), any(Duration.class));
+        sdk.shutdown();
+    }
+
+    private static CompletableFuture<WeatherData> brokenData() {
+        WeatherData data = spy(new WeatherData());
+        data.setCityName("Oslo");
+        data.setTimestamp(System.currentTimeMillis());
+        doThrow(new IllegalStateException("Cannot store")).when(data).setTtlMillis(anyLong());
+        return CompletableFuture.completedFuture(data);
+    }
+
+    /**
+     * Tests the hedge budget
+     * - Records a long run of fast responses, which would allow many hedges over the SDK's lifetime
+     * - Lets the first request for each of many cities hang at once
+     * - Verifies hedges stay within the capped budget instead of the lifetime share
+     */
+    @Test
+    void shouldCapHedgesAfterQuietPeriod() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        Set<String> hung = ConcurrentHashMap.newKeySet();
+        when(apiClient.fetchWeatherDataAsync(anyString())).thenAnswer(invocation -> {
+            String city = invocation.getArgument(0);
+            if (city.toLowerCase().startsWith("slow") && hung.add(city)) {
+                return new CompletableFuture<>();
+            }
+            WeatherData data = new WeatherData();
+            data.setCityName(city);
+            data.setTimestamp(System.currentTimeMillis());
+            return CompletableFuture.completedFuture(data);
+        });
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withCacheSize(500).withHedging(0.9, 0.1), apiClient);
+        for (int i = 0; i < 300; i++) {
+            sdk.getWeather("Fast" + i);
+        }
+        List<CompletableFuture<String>> lookups = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            lookups.add(sdk.getWeatherAsync("Slow" + i));
+        }
+        Thread.sleep(500);
+
+        // Ten hedges of saved budget plus a tenth of the fifty slow requests
+        long hedged = sdk.getMetrics().getHedgedRequests();
+        assertTrue(hedged >= 10 && hedged <= 15, "Hedges should be capped: " + hedged);
+        assertEquals(hedged, lookups.stream().filter(CompletableFuture::isDone).count());
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests coordinate lookups
+     * - Verifies a position near a cached place is served from memory, but not by the place's name
+     * - Checks a position outside the radius is fetched
+     * - Ensures out-of-range coordinates fail without a request
+     */
+    @Test
+    void shouldServeNearbyCoordinatesFromCache() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData london = new WeatherData();
+        london.setCityName("London");
+        london.setLatitude(51.5085);
+        london.setLongitude(-0.1257);
+        london.setTimestamp(System.currentTimeMillis());
+        WeatherData paris = new WeatherData();
+        paris.setCityName("Paris");
+        paris.setLatitude(48.8534);
+        paris.setLongitude(2.3488);
+        paris.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherDataAsync(eq(51.5090), eq(-0.1260), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(london));
+        when(apiClient.fetchWeatherDataAsync(eq(48.8600), eq(2.3500), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(paris));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withCoordinateRadius(2), apiClient);
+        assertEquals("London", sdk.getWeatherSnapshot(51.5090, -0.1260).cityName());
+        assertEquals("London", sdk.getWeatherSnapshot(51.5150, -0.1100).cityName(), "1.3 km away should hit");
+        assertNull(sdk.cache.get("london"), "Another place may share the resolved name");
+        assertEquals("Paris", sdk.getWeatherAsync(48.8600, 2.3500).thenApply(json -> "Paris").get());
+        assertThrows(WeatherSDKException.class, () -> sdk.getWeather(91, 0));
+
+        verify(apiClient, times(2)).fetchWeatherDataAsync(anyDouble(), anyDouble(), any(Duration.class));
+        verify(apiClient, never()).fetchWeatherData(anyString());
+        assertEquals(1, sdk.getMetrics().getCacheHits());
+    }
+
+    /**
+     * Tests polling a position the API resolves to no place name
+     * - Caches a coordinate lookup whose result has a blank name
+     * - Verifies polling refreshes it by position, never by name
+     * - Checks no refresh failure is reported and the position stays servable
+     */
+    @Test
+    void shouldRefreshUnnamedPositionByCoordinates() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(eq(60.0), eq(10.0), any(Duration.class))).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(weather("", 275.0, "fog", System.currentTimeMillis())));
+        AtomicInteger refreshFailures = new AtomicInteger();
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.POLLING, new WeatherSDKConfig()
+                .withTtl(Duration.ofSeconds(8)).withRefreshAhead(Duration.ofSeconds(2))
+                .withNegativeCache(100, Duration.ofMinutes(10))
+                .withListener(new WeatherSDKListener() {
+                    @Override
+                    public void onRefreshFailure(String city, WeatherSDKException error) {
+                        refreshFailures.incrementAndGet();
+                    }
+                }), apiClient);
+
+        assertTrue(sdk.getWeather(60.0, 10.0).contains("fog"));
+        sdk.cache.put("@60.0000,10.0000", aging("", 1000));
+        verify(apiClient, timeout(3000).times(2)).fetchWeatherDataAsync(eq(60.0), eq(10.0), any(Duration.class));
+
+        assertTrue(sdk.getWeather(60.0, 10.0).contains("fog"));
+        verify(apiClient, never()).fetchWeatherDataAsync(anyString());
+        verify(apiClient, never()).fetchWeatherDataByIdsAsync(any());
+        assertEquals(0, refreshFailures.get());
+        assertEquals(0, sdk.getMetrics().getNegativeCacheHits());
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests coordinate lookups far from the resolved place
+     * - Lets the API resolve a position to a place whose centroid lies beyond the radius
+     * - Verifies repeating the query, or one close to it, is served from memory
+     */
+    @Test
+    void shouldServeRepeatedQueryFarFromCentroid() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        WeatherData district = new WeatherData();
+        district.setCityName("Ealing");
+        district.setLatitude(51.5130);
+        district.setLongitude(-0.3089);
+        district.setTimestamp(System.currentTimeMillis());
+        when(apiClient.fetchWeatherDataAsync(anyDouble(), anyDouble(), any(Duration.class)))
+                .thenReturn(CompletableFuture.completedFuture(district));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withCoordinateRadius(1), apiClient);
+        // About 4.5 km from the centroid
+        assertEquals("Ealing", sdk.getWeatherSnapshot(51.5400, -0.3500).cityName());
+        assertEquals("Ealing", sdk.getWeatherSnapshot(51.5400, -0.3500).cityName());
+        assertEquals("Ealing", sdk.getWeatherSnapshot(51.5420, -0.3480).cityName());
+
+        verify(apiClient, times(1)).fetchWeatherDataAsync(anyDouble(), anyDouble(), any(Duration.class));
+        assertEquals(2, sdk.getMetrics().getCacheHits());
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests measurement-aligned TTLs
+     * - Verifies data measured five minutes before the fetch expires five minutes after it
+     * - Checks data without a measurement time keeps the configured TTL
+     */
+    @Test
+    void shouldAlignTtlWithMeasurementTime() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        long now = System.currentTimeMillis();
+        WeatherData measured = new WeatherData();
+        measured.setCityName("Oslo");
+        measured.setDatetime(now / 1000 - 300);
+        measured.setTimestamp(now);
+        WeatherData undated = new WeatherData();
+        undated.setCityName("Bergen");
+        undated.setTimestamp(now);
+        when(apiClient.fetchWeatherData(eq("Oslo"))).thenReturn(measured);
+        when(apiClient.fetchWeatherData(eq("Bergen"))).thenReturn(undated);
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withTtl(Duration.ofMinutes(10)).withTtlAlignedToMeasurement(true), apiClient);
+        WeatherSnapshot oslo = sdk.getWeatherSnapshot("Oslo");
+        WeatherSnapshot bergen = sdk.getWeatherSnapshot("Bergen");
+
+        assertEquals(Duration.ofMinutes(5).toMillis(), oslo.expiresAt() - oslo.timestamp(), 1000);
+        assertEquals(Duration.ofMinutes(10).toMillis(), bergen.expiresAt() - bergen.timestamp());
+        assertTrue(oslo.isValid());
+        assertThrows(IllegalArgumentException.class, () -> new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND,
+                new WeatherSDKConfig().withTtl(Duration.ofMinutes(1)), apiClient));
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests change subscriptions
+     * - Verifies refreshes that change data emit events naming the changed fields
+     * - Checks a refresh returning the same data emits nothing
+     * - Ensures a subscriber without demand gets its buffer filled and the rest dropped
+     */
+    @Test
+    void shouldPublishChangedFieldsOnRefresh() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        long dueSoon = System.currentTimeMillis() - WeatherData.TTL_MILLIS + 30_000;
+        WeatherData first = weather("Oslo", 270.1, "clear sky", dueSoon);
+        WeatherData warmer = weather("Oslo", 271.5, "clear sky", dueSoon);
+        WeatherData same = weather("Oslo", 271.5, "clear sky", dueSoon);
+        WeatherData cloudy = weather("Oslo", 271.5, "few clouds", dueSoon);
+        when(apiClient.fetchWeatherData(eq("Oslo"))).thenReturn(first);
+        when(apiClient.fetchWeatherDataAsync(eq("oslo"))).thenReturn(CompletableFuture.completedFuture(warmer),
+                CompletableFuture.completedFuture(same), CompletableFuture.completedFuture(cloudy));
+
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withChangeDelivery(Runnable::run, 1), apiClient);
+        List<WeatherChange> received = new CopyOnWriteArrayList<>();
+        sdk.getChangePublisher().subscribe(new Flow.Subscriber<>() {
+            public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+            public void onNext(WeatherChange change) { received.add(change); }
+            public void onError(Throwable error) { }
+            public void onComplete() { }
+        });
+        AtomicInteger idleReceived = new AtomicInteger();
+        sdk.getChangePublisher("OSLO").subscribe(new Flow.Subscriber<>() {
+            public void onSubscribe(Flow.Subscription subscription) { }
+            public void onNext(WeatherChange change) { idleReceived.incrementAndGet(); }
+            public void onError(Throwable error) { }
+            public void onComplete() { }
+        });
+
+        sdk.getWeather("Oslo");
+        for (int i = 0; i < 3; i++) {
+            sdk.refreshDueCities().join();
+        }
+
+        assertEquals(2, received.size());
+        assertEquals("oslo", received.get(0).city());
+        assertEquals(List.of("temp"), received.get(0).changedFields());
+        assertEquals(270.1, received.get(0).previous().temp());
+        assertEquals(271.5, received.get(0).current().temp());
+        assertEquals(List.of("description"), received.get(1).changedFields());
+        assertEquals(0, idleReceived.get());
+        assertEquals(1, sdk.getMetrics().getDroppedChanges(), "Idle subscriber should buffer one event");
+        sdk.shutdown();
+    }
+
+    /**
+     * Tests the shared second-level cache
+     * - Verifies a city fetched by one replica is served to another without an API call
+     * - Checks batch lookups read the shared cache with one multi-get
+     * - Ensures lookups fall back to the API when the shared cache is down or slow
+     */
+    @Test
+    void shouldShareFetchedCitiesThroughSecondLevelCache() throws Exception {
+        LoopbackSharedCache shared = new LoopbackSharedCache();
+        ApiClient firstClient = mock(ApiClient.class);
+        ApiClient secondClient = mock(ApiClient.class);
+        long now = System.currentTimeMillis();
+        when(firstClient.fetchWeatherData(anyString())).thenAnswer(invocation ->
+                weather(invocation.getArgument(0), 280.0, "clear sky", now));
+        when(secondClient.fetchWeatherData(anyString())).thenAnswer(invocation ->
+                weather(invocation.getArgument(0), 290.0, "clear sky", now));
+        when(secondClient.fetchWeatherDataAsync(anyString())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture(weather(invocation.getArgument(0), 290.0, "clear sky", now)));
+        WeatherSDK first = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withSharedCache(shared, Duration.ofMillis(200)), firstClient);
+        WeatherSDK second = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withSharedCache(shared, Duration.ofMillis(200)), secondClient);
+
+        first.getWeather("Oslo");
+        first.getWeather("Bergen");
+        assertEquals(2, shared.size());
+        assertEquals(280.0, second.getWeatherSnapshot("Oslo").temp());
+        Map<String, WeatherResult> batch = second.getWeatherBatch(List.of("Bergen", "Tromso"));
+
+        assertTrue(batch.get("bergen").isSuccess());
+        assertTrue(batch.get("tromso").isSuccess());
+        verify(secondClient, never()).fetchWeatherData(anyString());
+        verify(secondClient, times(1)).fetchWeatherDataAsync(anyString());
+        assertEquals(2, second.getMetrics().getSharedCacheHits());
+        assertEquals(1, second.getMetrics().getSharedCacheMisses());
+        assertEquals(3, shared.size(), "Fetched city should be written through");
+
+        shared.setAvailable(false);
+        assertEquals(290.0, second.getWeatherSnapshot("Stavanger").temp());
+        assertEquals(1, second.getMetrics().getSharedCacheErrors());
+        first.shutdown();
+        second.shutdown();
+
+        WeatherSDK slow = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withSharedCache(new LoopbackSharedCache(Duration.ofSeconds(5)), Duration.ofMillis(50)), secondClient);
+        long start = System.nanoTime();
+        assertEquals(290.0, slow.getWeatherSnapshot("Oslo").temp());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2), "Slow shared cache should time out");
+        assertEquals(1, slow.getMetrics().getSharedCacheErrors());
+        slow.shutdown();
+    }
+
+    /**
+     * Tests an open circuit breaker through the batch and polling paths
+     * - Trips the breaker with failing lookups
+     * - Verifies a 3,000-city batch fails fast instead of hanging
+     * - Checks a refresh cycle over 500 due cities completes with every city failed and no API call
+     */
+    @Test
+    void shouldFailFastThroughBatchAndPollingWhenCircuitOpen() throws Exception {
+        ApiClient apiClient = mock(ApiClient.class);
+        when(apiClient.fetchWeatherDataAsync(anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new WeatherSDKException("Service unavailable", 503)));
+        AtomicInteger refreshFailures = new AtomicInteger();
+        WeatherSDK sdk = new WeatherSDK(TEST_API_KEY, WeatherSDK.Mode.ON_DEMAND, new WeatherSDKConfig()
+                .withCacheSize(1000)
+                .withCircuitBreaker(new CircuitBreakerConfig().withOpenDuration(Duration.ofMinutes(5)))
+                .withListener(new WeatherSDKListener() {
+                    @Override
+                    public void onRefreshFailure(String city, WeatherSDKException error) {
+                        if (error.getStatusCode() == WeatherSDKException.CIRCUIT_OPEN) {
+                            refreshFailures.incrementAndGet();
+                        }
+                    }
+                }), apiClient);
+        for (int i = 0; i < 30; i++) {
+            sdk.getWeatherAsync("trip-" + i).handle((json, error) -> null).join();
+        }
+        assertEquals(CircuitState.OPEN, sdk.getCircuitState());
+        List<String> cities = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            cities.add("city-" + i);
+        }
+        long dueSoon = System.currentTimeMillis() - WeatherData.TTL_MILLIS + 30_000;
+        for (int i = 0; i < 500; i++) {
+            sdk.cache.put("cached-" + i, weather("Cached " + i, 280.0, "clear sky", dueSoon));
+        }
+
+        Map<String, WeatherResult> results = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> sdk.getWeatherBatch(cities));
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> sdk.refreshDueCities().join());
+
+        assertEquals(3000, results.size());
+        assertTrue(results.values().stream().allMatch(result ->
+                result.getError().getStatusCode() == WeatherSDKException.CIRCUIT_OPEN));
+        assertEquals(500, refreshFailures.get());
+        verify(apiClient, atMost(30)).fetchWeatherDataAsync(anyString());
+        sdk.shutdown();
+    }
+
+    private static WeatherData aging(String city, long remainingMillis) {
+        // Eight second TTL, due for polling with a two second refresh-ahead margin
+        WeatherData data = weather(city, 280.0, "clear sky", System.currentTimeMillis() - 8000 + remainingMillis);
+        data.setTtlMillis(8000);
+        return data;
+    }
+
+    private static WeatherData weather(String city, double temp, String description, long timestamp) {
+        WeatherData data = new WeatherData();
+        data.setCityName(city);
+        data.setTemp(temp);
+        data.setDescription(description);
+        data.setTimestamp(timestamp);
+        return data;
+    }
 }